@@ -0,0 +1,93 @@
+package com.example.ecommerce.benchmark;
+
+import com.example.ecommerce.entity.CartItem;
+import com.example.ecommerce.entity.Money;
+import com.example.ecommerce.entity.Product;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cart-view money arithmetic: the BigDecimal-then-Double code the cart used before Money
+ * against the long-cents path it uses now, plus rendering the total as JSON.
+ * Run with mvn -Pbenchmark verify; -prof gc reports the allocation per operation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoneyBenchmark {
+
+    @Param({"3", "20"})
+    private int cartSize;
+
+    private List<CartItem> items;
+    private ObjectMapper objectMapper;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        items = new ArrayList<>();
+        for (int i = 0; i < cartSize; i++) {
+            BigDecimal price = BigDecimal.valueOf(100 + random.nextInt(50000), 2);
+            Product product = new Product("Product " + i, "", price, 100, "Books");
+            items.add(new CartItem(null, product, 1 + random.nextInt(3)));
+        }
+        objectMapper = new ObjectMapper();
+    }
+
+    // What CartItem.getSubtotal and the Double-returning cart total did before
+    @Benchmark
+    public double bigDecimalTotalAsDouble() {
+        return bigDecimalTotal().doubleValue();
+    }
+
+    @Benchmark
+    public Money longCentsTotal() {
+        return Money.ofCents(centsTotal());
+    }
+
+    // Rendering a freshly computed total, as the cart view does; a reused BigDecimal caches its text
+    @Benchmark
+    public byte[] bigDecimalTotalToJson() throws Exception {
+        return objectMapper.writeValueAsBytes(bigDecimalTotal());
+    }
+
+    @Benchmark
+    public byte[] longCentsTotalToJson() throws Exception {
+        return objectMapper.writeValueAsBytes(Money.ofCents(centsTotal()));
+    }
+
+    private BigDecimal bigDecimalTotal() {
+        BigDecimal total = BigDecimal.ZERO;
+        for (CartItem item : items) {
+            total = total.add(item.getProduct().getPrice().multiply(BigDecimal.valueOf(item.getQuantity())));
+        }
+        return total;
+    }
+
+    private long centsTotal() {
+        long total = 0;
+        for (CartItem item : items) {
+            total = Math.addExact(total, item.getSubtotalCents());
+        }
+        return total;
+    }
+}
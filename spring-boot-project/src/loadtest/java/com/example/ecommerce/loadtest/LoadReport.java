@@ -0,0 +1,159 @@
+package com.example.ecommerce.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramLogWriter;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-step latency histograms (microseconds) and error counts, plus the pass/fail gate.
+ */
+class LoadReport {
+
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(2);
+
+    private final Map<String, Histogram> latencies = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+    private final LongAdder dropped = new LongAdder();
+
+    void record(String step, long latencyNanos, boolean ok) {
+        long micros = Math.min(TimeUnit.NANOSECONDS.toMicros(latencyNanos), HIGHEST_TRACKABLE_MICROS);
+        latencies.computeIfAbsent(step, s -> new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 3)).recordValue(micros);
+        LongAdder stepErrors = errors.computeIfAbsent(step, s -> new LongAdder());
+        if (!ok) {
+            stepErrors.increment();
+        }
+    }
+
+    void dropped() {
+        dropped.increment();
+    }
+
+    Properties summary(long durationNanos) {
+        double seconds = durationNanos / 1e9;
+        Properties summary = new Properties();
+        long totalCount = dropped.sum();
+        long totalErrors = dropped.sum();
+        for (Map.Entry<String, Histogram> entry : new TreeMap<>(latencies).entrySet()) {
+            String step = entry.getKey();
+            Histogram histogram = entry.getValue();
+            long count = histogram.getTotalCount();
+            long stepErrors = errors.get(step).sum();
+            totalCount += count;
+            totalErrors += stepErrors;
+
+            summary.setProperty(step + ".count", Long.toString(count));
+            summary.setProperty(step + ".throughput", format(count / seconds));
+            summary.setProperty(step + ".p50-ms", millis(histogram.getValueAtPercentile(50)));
+            summary.setProperty(step + ".p90-ms", millis(histogram.getValueAtPercentile(90)));
+            summary.setProperty(step + ".p99-ms", millis(histogram.getValueAtPercentile(99)));
+            summary.setProperty(step + ".max-ms", millis(histogram.getMaxValue()));
+            summary.setProperty(step + ".error-rate", format(count == 0 ? 0 : (double) stepErrors / count));
+        }
+        summary.setProperty("total.count", Long.toString(totalCount));
+        summary.setProperty("total.dropped", Long.toString(dropped.sum()));
+        summary.setProperty("total.throughput", format(totalCount / seconds));
+        summary.setProperty("total.error-rate", format(totalCount == 0 ? 0 : (double) totalErrors / totalCount));
+        return summary;
+    }
+
+    void print(PrintStream out, long durationNanos) {
+        Properties summary = summary(durationNanos);
+        out.printf("%n%-16s %8s %9s %9s %9s %9s %9s %8s%n",
+                "step", "count", "req/s", "p50 ms", "p90 ms", "p99 ms", "max ms", "errors");
+        for (String step : new TreeMap<>(latencies).keySet()) {
+            out.printf("%-16s %8s %9s %9s %9s %9s %9s %7.2f%%%n", step,
+                    summary.getProperty(step + ".count"),
+                    summary.getProperty(step + ".throughput"),
+                    summary.getProperty(step + ".p50-ms"),
+                    summary.getProperty(step + ".p90-ms"),
+                    summary.getProperty(step + ".p99-ms"),
+                    summary.getProperty(step + ".max-ms"),
+                    Double.parseDouble(summary.getProperty(step + ".error-rate")) * 100);
+        }
+        out.printf("%-16s %8s %9s %49s %7.2f%%%n", "total",
+                summary.getProperty("total.count"), summary.getProperty("total.throughput"),
+                "dropped arrivals: " + summary.getProperty("total.dropped"),
+                Double.parseDouble(summary.getProperty("total.error-rate")) * 100);
+    }
+
+    // One .hlog per step, loadable in HdrHistogram's plotter for full percentile curves
+    void writeHistograms(Path directory) throws IOException {
+        for (Map.Entry<String, Histogram> entry : latencies.entrySet()) {
+            try (PrintStream out = new PrintStream(Files.newOutputStream(directory.resolve(entry.getKey() + ".hlog")))) {
+                HistogramLogWriter writer = new HistogramLogWriter(out);
+                writer.outputComment("Latency in microseconds for step " + entry.getKey());
+                writer.outputLegend();
+                writer.outputIntervalHistogram(entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Absolute limits come from gate.max-error-rate and gate.p99-ms.&lt;step&gt;; when gate.baseline
+     * points at an earlier summary.properties, each step's p99 may also grow by at most
+     * gate.max-p99-regression (a fraction), ignoring differences under gate.p99-noise-ms.
+     */
+    static List<String> gate(Properties summary, Properties config) throws IOException {
+        List<String> violations = new ArrayList<>();
+
+        double maxErrorRate = Double.parseDouble(config.getProperty("gate.max-error-rate", "0.01"));
+        double errorRate = Double.parseDouble(summary.getProperty("total.error-rate"));
+        if (errorRate > maxErrorRate) {
+            violations.add(String.format("error rate %.4f exceeds %.4f", errorRate, maxErrorRate));
+        }
+
+        Properties baseline = new Properties();
+        String baselinePath = config.getProperty("gate.baseline", "").trim();
+        if (!baselinePath.isEmpty() && Files.exists(Path.of(baselinePath))) {
+            try (var in = Files.newBufferedReader(Path.of(baselinePath))) {
+                baseline.load(in);
+            }
+        }
+        double maxRegression = Double.parseDouble(config.getProperty("gate.max-p99-regression", "0.2"));
+        double noiseMs = Double.parseDouble(config.getProperty("gate.p99-noise-ms", "5"));
+
+        for (String key : summary.stringPropertyNames()) {
+            if (!key.endsWith(".p99-ms")) {
+                continue;
+            }
+            String step = key.substring(0, key.length() - ".p99-ms".length());
+            double p99 = Double.parseDouble(summary.getProperty(key));
+
+            String limit = config.getProperty("gate.p99-ms." + step);
+            if (limit != null && p99 > Double.parseDouble(limit)) {
+                violations.add(String.format("%s p99 %.1f ms exceeds limit %s ms", step, p99, limit));
+            }
+
+            String previous = baseline.getProperty(key);
+            if (previous != null) {
+                double baselineP99 = Double.parseDouble(previous);
+                if (p99 > baselineP99 * (1 + maxRegression) && p99 - baselineP99 > noiseMs) {
+                    violations.add(String.format("%s p99 %.1f ms regressed from baseline %.1f ms", step, p99, baselineP99));
+                }
+            }
+        }
+        return violations;
+    }
+
+    private static String millis(long micros) {
+        return format(micros / 1000.0);
+    }
+
+    private static String format(double value) {
+        return String.format(Locale.ROOT, "%.2f", value);
+    }
+}
@@ -0,0 +1,219 @@
+package com.example.ecommerce.loadtest;
+
+import com.example.ecommerce.EcommerceApiApplication;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Replays a weighted mix of shopper scenarios against an in-process instance of the API (H2)
+ * at an open-model arrival rate: sessions start on schedule whether or not earlier ones have
+ * finished, and latency is measured from the scheduled start so queueing is not hidden.
+ * Exits non-zero when the regression gate fails. Run with {@code mvn -Pload-test verify}.
+ */
+public class LoadTestRunner {
+
+    private static final String JWT_SECRET = "loadTestSecretKeyThatIsLongEnoughForHs256Signing";
+
+    public static void main(String[] args) throws Exception {
+        Properties config = loadConfig(args.length > 0 ? Path.of(args[0]) : null);
+        Path outputDir = Path.of(config.getProperty("output-dir", "target/load-test"));
+
+        List<String> springArgs = new ArrayList<>(List.of(
+                "--server.port=0",
+                "--spring.jpa.show-sql=false",
+                "--spring.h2.console.enabled=false",
+                "--logging.level.com.example.ecommerce=WARN",
+                "--logging.level.org.springframework.security=WARN",
+                "--jwt.secret=" + JWT_SECRET));
+        springArgs.addAll(Arrays.asList(config.getProperty("spring-args", "").trim().split("\\s+")));
+        springArgs.removeIf(String::isEmpty);
+
+        ConfigurableApplicationContext context = new SpringApplication(EcommerceApiApplication.class)
+                .run(springArgs.toArray(new String[0]));
+        int exitCode;
+        try {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            exitCode = run(config, URI.create("http://localhost:" + port), outputDir);
+        } finally {
+            context.close();
+        }
+        System.exit(exitCode);
+    }
+
+    private static int run(Properties config, URI baseUri, Path outputDir) throws Exception {
+        double arrivalRate = Double.parseDouble(config.getProperty("arrival-rate", "20"));
+        boolean poisson = "poisson".equalsIgnoreCase(config.getProperty("arrival-distribution", "poisson"));
+        long warmupNanos = TimeUnit.SECONDS.toNanos(Long.parseLong(config.getProperty("warmup-seconds", "10")));
+        long durationNanos = TimeUnit.SECONDS.toNanos(Long.parseLong(config.getProperty("duration-seconds", "60")));
+        int maxConcurrency = Integer.parseInt(config.getProperty("max-concurrency", "200"));
+        long thinkTimeMs = Long.parseLong(config.getProperty("think-time-ms", "0"));
+
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        ObjectMapper mapper = new ObjectMapper();
+        List<Scenario> scenarios = Scenario.parse(config);
+        ShopperSession.Catalog catalog = ShopperSession.Catalog.fetch(client, mapper, baseUri);
+        List<String> users = registerUsers(client, mapper, baseUri, Integer.parseInt(config.getProperty("users", "50")));
+
+        // Sessions started during warm-up record into their own report, which is thrown away; one still
+        // in flight when measuring starts keeps loading the server but never adds samples
+        LoadReport warmupReport = new LoadReport();
+        LoadReport report = new LoadReport();
+        // Open model: a full pool drops the arrival (reported as an error) instead of delaying the schedule
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(0, maxConcurrency, 30, TimeUnit.SECONDS,
+                new SynchronousQueue<>());
+        Random random = new Random(Long.parseLong(config.getProperty("seed", "42")));
+
+        System.out.printf("Load test: %.1f sessions/s (%s) for %ds after %ds warm-up, scenarios %s%n",
+                arrivalRate, poisson ? "poisson" : "uniform", TimeUnit.NANOSECONDS.toSeconds(durationNanos),
+                TimeUnit.NANOSECONDS.toSeconds(warmupNanos), scenarios);
+
+        double meanIntervalNanos = TimeUnit.SECONDS.toNanos(1) / arrivalRate;
+        long start = System.nanoTime();
+        long measureFrom = start + warmupNanos;
+        long end = measureFrom + durationNanos;
+        boolean measuring = warmupNanos == 0;
+        long next = start;
+        int arrivals = 0;
+
+        while (next < end) {
+            long wait = next - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            if (!measuring && next >= measureFrom) {
+                System.out.printf("Warm-up done, %d warm-up sessions still running%n", executor.getActiveCount());
+                measuring = true;
+            }
+
+            LoadReport sessionReport = measuring ? report : warmupReport;
+            Scenario scenario = Scenario.pick(scenarios, random);
+            ShopperSession session = new ShopperSession(client, mapper, baseUri, catalog, sessionReport,
+                    users.get(arrivals++ % users.size()), new Random(random.nextLong()), thinkTimeMs);
+            long intendedStart = next;
+            try {
+                executor.execute(() -> session.run(scenario.steps(), intendedStart));
+            } catch (RejectedExecutionException e) {
+                sessionReport.dropped();
+            }
+
+            next += poisson
+                    ? (long) (-Math.log(1 - random.nextDouble()) * meanIntervalNanos)
+                    : (long) meanIntervalNanos;
+        }
+
+        executor.shutdown();
+        executor.awaitTermination(30, TimeUnit.SECONDS);
+
+        report.print(System.out, durationNanos);
+        Properties summary = report.summary(durationNanos);
+        Files.createDirectories(outputDir);
+        try (var out = Files.newBufferedWriter(outputDir.resolve("summary.properties"))) {
+            summary.store(out, "Load test summary");
+        }
+        report.writeHistograms(outputDir);
+
+        List<String> violations = LoadReport.gate(summary, config);
+        if (violations.isEmpty()) {
+            System.out.println("Load test gate passed");
+            return 0;
+        }
+        violations.forEach(violation -> System.out.println("GATE FAILED: " + violation));
+        return 1;
+    }
+
+    // Accounts are created up front so BCrypt hashing on signup does not skew the measured mix
+    private static List<String> registerUsers(HttpClient client, ObjectMapper mapper, URI baseUri, int count)
+            throws IOException, InterruptedException {
+        List<String> emails = new ArrayList<>();
+        long runId = System.currentTimeMillis();
+        for (int i = 0; i < count; i++) {
+            String email = "loadtest-" + runId + "-" + i + "@example.com";
+            JsonNode body = mapper.createObjectNode()
+                    .put("name", "Load Test " + i)
+                    .put("email", email)
+                    .put("password", ShopperSession.PASSWORD);
+            int status = ShopperSession.post(client, mapper, baseUri.resolve("/api/auth/signup"), body, null).statusCode();
+            if (status != 200) {
+                throw new IllegalStateException("Could not register load test user " + email + ": HTTP " + status);
+            }
+            emails.add(email);
+        }
+        return emails;
+    }
+
+    private static Properties loadConfig(Path path) throws IOException {
+        Properties config = new Properties();
+        if (path != null) {
+            try (InputStream in = Files.newInputStream(path)) {
+                config.load(in);
+            }
+        } else {
+            try (InputStream in = LoadTestRunner.class.getResourceAsStream("/load-test.properties")) {
+                if (in != null) {
+                    config.load(in);
+                }
+            }
+        }
+        return config;
+    }
+
+    record Scenario(String name, int weight, List<String> steps) {
+
+        static List<Scenario> parse(Properties config) {
+            List<Scenario> scenarios = new ArrayList<>();
+            for (String name : config.getProperty("scenarios", "browse").split(",")) {
+                name = name.trim();
+                String steps = config.getProperty("scenario." + name + ".steps");
+                if (steps == null) {
+                    throw new IllegalArgumentException("No steps configured for scenario " + name);
+                }
+                List<String> stepList = Arrays.stream(steps.split(",")).map(String::trim).toList();
+                stepList.forEach(ShopperSession::validateStep);
+                scenarios.add(new Scenario(name,
+                        Integer.parseInt(config.getProperty("scenario." + name + ".weight", "1")), stepList));
+            }
+            return scenarios;
+        }
+
+        static Scenario pick(List<Scenario> scenarios, Random random) {
+            int total = scenarios.stream().mapToInt(Scenario::weight).sum();
+            int roll = random.nextInt(total);
+            for (Scenario scenario : scenarios) {
+                roll -= scenario.weight();
+                if (roll < 0) {
+                    return scenario;
+                }
+            }
+            return scenarios.get(scenarios.size() - 1);
+        }
+
+        @Override
+        public String toString() {
+            return name + "(" + weight + ")";
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package com.example.ecommerce.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One visitor walking through a scenario's steps in order. A failed step ends the session,
+ * since later steps usually depend on it (no token, no cart item).
+ */
+class ShopperSession {
+
+    static final String PASSWORD = "password123";
+
+    private static final Set<String> STEPS = Set.of("signin", "list-products", "filter-products",
+            "product-detail", "add-to-cart", "view-cart", "update-cart", "clear-cart");
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    private final HttpClient client;
+    private final ObjectMapper mapper;
+    private final URI baseUri;
+    private final Catalog catalog;
+    private final LoadReport report;
+    private final String email;
+    private final Random random;
+    private final long thinkTimeMs;
+
+    private String token;
+    private Long cartItemId;
+
+    ShopperSession(HttpClient client, ObjectMapper mapper, URI baseUri, Catalog catalog, LoadReport report,
+                   String email, Random random, long thinkTimeMs) {
+        this.client = client;
+        this.mapper = mapper;
+        this.baseUri = baseUri;
+        this.catalog = catalog;
+        this.report = report;
+        this.email = email;
+        this.random = random;
+        this.thinkTimeMs = thinkTimeMs;
+    }
+
+    static void validateStep(String step) {
+        if (!STEPS.contains(step)) {
+            throw new IllegalArgumentException("Unknown load test step '" + step + "', expected one of " + STEPS);
+        }
+    }
+
+    void run(List<String> steps, long intendedStartNanos) {
+        long intended = intendedStartNanos;
+        for (String step : steps) {
+            boolean ok;
+            try {
+                ok = execute(step);
+            } catch (IOException e) {
+                ok = false;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            long finished = System.nanoTime();
+            report.record(step, finished - intended, ok);
+            if (!ok) {
+                return;
+            }
+            if (thinkTimeMs > 0) {
+                try {
+                    Thread.sleep(thinkTimeMs);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+            intended = finished + TimeUnit.MILLISECONDS.toNanos(thinkTimeMs);
+        }
+    }
+
+    private boolean execute(String step) throws IOException, InterruptedException {
+        switch (step) {
+            case "signin": {
+                JsonNode body = mapper.createObjectNode().put("email", email).put("password", PASSWORD);
+                HttpResponse<String> response = post(client, mapper, uri("/api/auth/signin"), body, null);
+                if (response.statusCode() != 200) {
+                    return false;
+                }
+                token = mapper.readTree(response.body()).path("token").asText(null);
+                return token != null;
+            }
+            case "list-products":
+                return get(uri("/api/products?page=" + random.nextInt(catalog.pages()) + "&size=10")).statusCode() == 200;
+            case "filter-products": {
+                String category = catalog.categories().get(random.nextInt(catalog.categories().size()));
+                int minPrice = random.nextInt(100);
+                return get(uri("/api/products?category=" + encode(category) + "&minPrice=" + minPrice
+                        + "&maxPrice=" + (minPrice + 500) + "&sortBy=price")).statusCode() == 200;
+            }
+            case "product-detail":
+                return get(uri("/api/products/" + catalog.randomProductId(random))).statusCode() == 200;
+            case "add-to-cart": {
+                JsonNode body = mapper.createObjectNode()
+                        .put("productId", catalog.randomProductId(random))
+                        .put("quantity", 1);
+                return post(client, mapper, uri("/api/cart/add"), body, token).statusCode() == 200;
+            }
+            case "view-cart": {
+                HttpResponse<String> response = get(uri("/api/cart"));
+                if (response.statusCode() != 200) {
+                    return false;
+                }
+                JsonNode items = mapper.readTree(response.body()).path("items");
+                cartItemId = items.size() > 0 ? items.get(random.nextInt(items.size())).path("id").asLong() : null;
+                return true;
+            }
+            case "update-cart": {
+                if (cartItemId == null) {
+                    return false;
+                }
+                JsonNode body = mapper.createObjectNode().put("quantity", 1 + random.nextInt(2));
+                HttpRequest request = request(uri("/api/cart/update/" + cartItemId))
+                        .header("Content-Type", "application/json")
+                        .PUT(HttpRequest.BodyPublishers.ofString(mapper.writeValueAsString(body)))
+                        .build();
+                return client.send(request, HttpResponse.BodyHandlers.ofString()).statusCode() == 200;
+            }
+            case "clear-cart": {
+                HttpRequest request = request(uri("/api/cart/clear")).DELETE().build();
+                return client.send(request, HttpResponse.BodyHandlers.ofString()).statusCode() == 200;
+            }
+            default:
+                throw new IllegalArgumentException("Unknown load test step " + step);
+        }
+    }
+
+    private HttpResponse<String> get(URI uri) throws IOException, InterruptedException {
+        return client.send(request(uri).GET().build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpRequest.Builder request(URI uri) {
+        return authorized(HttpRequest.newBuilder(uri).timeout(REQUEST_TIMEOUT), token);
+    }
+
+    private URI uri(String path) {
+        return baseUri.resolve(path);
+    }
+
+    static HttpResponse<String> post(HttpClient client, ObjectMapper mapper, URI uri, JsonNode body, String token)
+            throws IOException, InterruptedException {
+        HttpRequest request = authorized(HttpRequest.newBuilder(uri).timeout(REQUEST_TIMEOUT), token)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(mapper.writeValueAsString(body)))
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static HttpRequest.Builder authorized(HttpRequest.Builder builder, String token) {
+        return token != null ? builder.header("Authorization", "Bearer " + token) : builder;
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Product ids and categories read once before the run so steps hit real rows.
+     */
+    record Catalog(List<Long> productIds, List<String> categories, int pages) {
+
+        private static final int PAGE_SIZE = 100;
+        private static final int MAX_PRODUCTS = 1000;
+
+        static Catalog fetch(HttpClient client, ObjectMapper mapper, URI baseUri) throws IOException, InterruptedException {
+            // The API serves at most 100 products per page, so up to MAX_PRODUCTS are read page by page
+            List<Long> ids = new ArrayList<>();
+            int totalItems = 0;
+            for (int pageNumber = 0; ids.size() < MAX_PRODUCTS; pageNumber++) {
+                HttpResponse<String> products = client.send(
+                        HttpRequest.newBuilder(baseUri.resolve("/api/products?page=" + pageNumber + "&size=" + PAGE_SIZE))
+                                .GET().build(),
+                        HttpResponse.BodyHandlers.ofString());
+                if (products.statusCode() != 200) {
+                    throw new IllegalStateException("Could not read the catalog: HTTP " + products.statusCode());
+                }
+                JsonNode page = mapper.readTree(products.body());
+                page.path("products").forEach(product -> ids.add(product.path("id").asLong()));
+                totalItems = page.path("totalItems").asInt();
+                if (pageNumber + 1 >= page.path("totalPages").asInt()) {
+                    break;
+                }
+            }
+
+            HttpResponse<String> categoryResponse = client.send(
+                    HttpRequest.newBuilder(baseUri.resolve("/api/products/categories")).GET().build(),
+                    HttpResponse.BodyHandlers.ofString());
+            List<String> categories = new ArrayList<>();
+            mapper.readTree(categoryResponse.body()).forEach(category -> categories.add(category.asText()));
+
+            if (ids.isEmpty() || categories.isEmpty()) {
+                throw new IllegalStateException("Load test needs seeded products; the catalog is empty");
+            }
+            int pages = Math.max(1, (totalItems + 9) / 10);
+            return new Catalog(ids, categories, pages);
+        }
+
+        long randomProductId(Random random) {
+            return productIds.get(random.nextInt(productIds.size()));
+        }
+    }
+}
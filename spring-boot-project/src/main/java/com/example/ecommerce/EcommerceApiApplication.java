@@ -2,11 +2,15 @@ package com.example.ecommerce;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
 
 @SpringBootApplication
 public class EcommerceApiApplication {
 
     public static void main(String[] args) {
-        SpringApplication.run(EcommerceApiApplication.class, args);
+        SpringApplication application = new SpringApplication(EcommerceApiApplication.class);
+        // Records bean creation steps for StartupTimelineReporter
+        application.setApplicationStartup(new BufferingApplicationStartup(10000));
+        application.run(args);
     }
-}
\ No newline at end of file
+}
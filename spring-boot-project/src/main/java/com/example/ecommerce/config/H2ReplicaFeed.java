@@ -0,0 +1,126 @@
+package com.example.ecommerce.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Local stand-in for replication (replica profile): copies every table of the in-memory H2
+ * primary into a separate in-memory H2 replica database, one transaction per run, through linked
+ * tables. Each copy stamps replica_heartbeat with the time it started, so the replica's lag query
+ * reports how far behind it is. A full copy per run is only meant for demo-sized data.
+ */
+public class H2ReplicaFeed {
+
+    private static final Logger logger = LoggerFactory.getLogger(H2ReplicaFeed.class);
+
+    private static final String LINK_SCHEMA = "PRIMARY_FEED";
+
+    private final String primaryUrl;
+    private final String username;
+    private final String password;
+    private final List<ReadReplicaProperties.Replica> replicas;
+    private final Set<String> linked = new LinkedHashSet<>();
+
+    public H2ReplicaFeed(String primaryUrl, String username, String password,
+                         List<ReadReplicaProperties.Replica> replicas) {
+        this.primaryUrl = primaryUrl;
+        this.username = username;
+        this.password = password;
+        this.replicas = replicas;
+        // An empty heartbeat table reads as "replication not running" until the first copy
+        for (ReadReplicaProperties.Replica replica : replicas) {
+            try (Connection connection = connect(replica);
+                 Statement statement = connection.createStatement()) {
+                statement.execute("CREATE TABLE IF NOT EXISTS replica_heartbeat (id INT PRIMARY KEY, applied_at TIMESTAMP)");
+            } catch (SQLException e) {
+                throw new IllegalStateException("Cannot open H2 replica " + replica.getUrl(), e);
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.datasource.routing.h2-feed.interval-ms:1000}")
+    public void copy() {
+        List<String> tables;
+        try {
+            tables = primaryTables();
+        } catch (SQLException e) {
+            logger.warn("H2 replica feed cannot read the primary: {}", e.getMessage());
+            return;
+        }
+        for (ReadReplicaProperties.Replica replica : replicas) {
+            try (Connection connection = connect(replica)) {
+                copy(connection, replica.getUrl(), tables);
+            } catch (SQLException e) {
+                logger.warn("H2 replica feed to {} failed: {}", replica.getUrl(), e.getMessage());
+            }
+        }
+    }
+
+    private void copy(Connection connection, String replicaUrl, List<String> tables) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE SCHEMA IF NOT EXISTS " + LINK_SCHEMA);
+            for (String table : tables) {
+                if (linked.add(replicaUrl + "/" + table)) {
+                    link(connection, table);
+                    statement.execute("CREATE TABLE IF NOT EXISTS PUBLIC.\"" + table + "\" AS SELECT * FROM "
+                            + LINK_SCHEMA + ".\"" + table + "\" WITH NO DATA");
+                }
+            }
+
+            connection.setAutoCommit(false);
+            try {
+                statement.execute("MERGE INTO replica_heartbeat KEY (id) VALUES (1, CURRENT_TIMESTAMP)");
+                for (String table : tables) {
+                    statement.execute("DELETE FROM PUBLIC.\"" + table + "\"");
+                    statement.execute("INSERT INTO PUBLIC.\"" + table + "\" SELECT * FROM " + LINK_SCHEMA + ".\"" + table + "\"");
+                }
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            }
+        }
+    }
+
+    private void link(Connection connection, String table) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE LINKED TABLE IF NOT EXISTS " + LINK_SCHEMA + ".\"" + table + "\"('org.h2.Driver', "
+                    + literal(primaryUrl) + ", " + literal(username) + ", " + literal(password) + ", 'PUBLIC', "
+                    + literal(table) + ") READONLY");
+        }
+    }
+
+    private static String literal(String value) {
+        return "'" + (value != null ? value : "").replace("'", "''") + "'";
+    }
+
+    private List<String> primaryTables() throws SQLException {
+        List<String> tables = new ArrayList<>();
+        try (Connection connection = DriverManager.getConnection(primaryUrl, username, password);
+             Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT table_name FROM information_schema.tables " +
+                     "WHERE table_schema = 'PUBLIC' AND table_type = 'BASE TABLE' ORDER BY table_name")) {
+            while (rs.next()) {
+                tables.add(rs.getString(1));
+            }
+        }
+        return tables;
+    }
+
+    private Connection connect(ReadReplicaProperties.Replica replica) throws SQLException {
+        return DriverManager.getConnection(replica.getUrl(),
+                replica.getUsername() != null ? replica.getUsername() : username,
+                replica.getPassword() != null ? replica.getPassword() : password);
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.ecommerce.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+@ConfigurationProperties(prefix = "app.query-guard")
+public class QueryGuardProperties {
+
+    // Larger page requests are served at this size
+    private int maxPageSize = 100;
+
+    // Pages starting past this many rows are rejected: OFFSET still reads every skipped row
+    private int maxOffset = 10000;
+
+    // Queries slower than this are logged and counted
+    private Duration slowQueryThreshold = Duration.ofMillis(500);
+
+    // Statement timeout for endpoints without an entry in timeouts; JDBC rounds up to whole seconds
+    private Duration defaultTimeout = Duration.ofSeconds(5);
+
+    // Statement timeout per endpoint name, as passed to QueryGuard
+    private Map<String, Duration> timeouts = new HashMap<>();
+
+    // Getters and Setters
+    public int getMaxPageSize() { return maxPageSize; }
+    public void setMaxPageSize(int maxPageSize) { this.maxPageSize = maxPageSize; }
+
+    public int getMaxOffset() { return maxOffset; }
+    public void setMaxOffset(int maxOffset) { this.maxOffset = maxOffset; }
+
+    public Duration getSlowQueryThreshold() { return slowQueryThreshold; }
+    public void setSlowQueryThreshold(Duration slowQueryThreshold) { this.slowQueryThreshold = slowQueryThreshold; }
+
+    public Duration getDefaultTimeout() { return defaultTimeout; }
+    public void setDefaultTimeout(Duration defaultTimeout) { this.defaultTimeout = defaultTimeout; }
+
+    public Map<String, Duration> getTimeouts() { return timeouts; }
+    public void setTimeouts(Map<String, Duration> timeouts) { this.timeouts = timeouts; }
+}
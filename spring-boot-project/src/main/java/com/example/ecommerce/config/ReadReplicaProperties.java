@@ -0,0 +1,57 @@
+package com.example.ecommerce.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@ConfigurationProperties(prefix = "app.datasource.routing")
+public class ReadReplicaProperties {
+
+    private boolean enabled = false;
+
+    // Replicas reporting more lag than this are skipped until they catch up
+    private Duration maxReplicaLag = Duration.ofSeconds(5);
+
+    // After a user's write, their reads stay on the primary for this long
+    private Duration readYourWritesWindow = Duration.ofSeconds(10);
+
+    private List<Replica> replicas = new ArrayList<>();
+
+    public static class Replica {
+
+        private String url;
+        private String username;
+        private String password;
+
+        // Query returning the replica lag in seconds as its first column; no lag check when empty
+        private String lagQuery;
+
+        // Getters and Setters
+        public String getUrl() { return url; }
+        public void setUrl(String url) { this.url = url; }
+
+        public String getUsername() { return username; }
+        public void setUsername(String username) { this.username = username; }
+
+        public String getPassword() { return password; }
+        public void setPassword(String password) { this.password = password; }
+
+        public String getLagQuery() { return lagQuery; }
+        public void setLagQuery(String lagQuery) { this.lagQuery = lagQuery; }
+    }
+
+    // Getters and Setters
+    public boolean isEnabled() { return enabled; }
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+    public Duration getMaxReplicaLag() { return maxReplicaLag; }
+    public void setMaxReplicaLag(Duration maxReplicaLag) { this.maxReplicaLag = maxReplicaLag; }
+
+    public Duration getReadYourWritesWindow() { return readYourWritesWindow; }
+    public void setReadYourWritesWindow(Duration readYourWritesWindow) { this.readYourWritesWindow = readYourWritesWindow; }
+
+    public List<Replica> getReplicas() { return replicas; }
+    public void setReplicas(List<Replica> replicas) { this.replicas = replicas; }
+}
@@ -0,0 +1,70 @@
+package com.example.ecommerce.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+@Configuration
+@EnableConfigurationProperties(ReadReplicaProperties.class)
+@ConditionalOnProperty(prefix = "app.datasource.routing", name = "enabled", havingValue = "true")
+public class ReadReplicaRoutingConfig {
+
+    private ReplicaRoutingDataSource routingDataSource;
+
+    @Bean
+    @Primary
+    public DataSource dataSource(DataSourceProperties primaryProperties, ReadReplicaProperties routingProperties) {
+        HikariDataSource primary = primaryProperties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+        // spring.datasource.hikari.* only binds to the auto-configured pool
+        primary.setExceptionOverrideClassName(StatementTimeoutExceptionOverride.class.getName());
+
+        List<DataSource> replicas = new ArrayList<>();
+        List<String> lagQueries = new ArrayList<>();
+        for (ReadReplicaProperties.Replica replica : routingProperties.getReplicas()) {
+            HikariDataSource replicaDataSource = DataSourceBuilder.create()
+                    .type(HikariDataSource.class)
+                    .driverClassName(primaryProperties.determineDriverClassName())
+                    .url(replica.getUrl())
+                    .username(replica.getUsername() != null ? replica.getUsername() : primaryProperties.determineUsername())
+                    .password(replica.getPassword() != null ? replica.getPassword() : primaryProperties.determinePassword())
+                    .build();
+            replicaDataSource.setReadOnly(true);
+            replicaDataSource.setExceptionOverrideClassName(StatementTimeoutExceptionOverride.class.getName());
+            replicas.add(replicaDataSource);
+            lagQueries.add(replica.getLagQuery());
+        }
+
+        routingDataSource = new ReplicaRoutingDataSource(primary, replicas, lagQueries, routingProperties);
+        routingDataSource.afterPropertiesSet();
+
+        // Defer the physical connection until the first statement, when the read-only flag is set
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "app.datasource.routing.h2-feed", name = "enabled", havingValue = "true")
+    public H2ReplicaFeed h2ReplicaFeed(DataSourceProperties primaryProperties, ReadReplicaProperties routingProperties) {
+        return new H2ReplicaFeed(primaryProperties.determineUrl(), primaryProperties.determineUsername(),
+                primaryProperties.determinePassword(), routingProperties.getReplicas());
+    }
+
+    @Scheduled(fixedDelayString = "${app.datasource.routing.lag-check-interval-ms:2000}")
+    public void checkReplicaLag() {
+        if (routingDataSource != null) {
+            routingDataSource.refreshReplicaLag();
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package com.example.ecommerce.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends read-only transactions to a healthy replica and everything else to the primary.
+ * Must sit behind a LazyConnectionDataSourceProxy so the lookup happens after the
+ * transaction's read-only flag is known.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    public static final String PRIMARY = "primary";
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+
+    private final List<ReplicaTarget> replicas = new ArrayList<>();
+    private final Map<String, Long> lastWriteByUser = new ConcurrentHashMap<>();
+    private final AtomicInteger nextReplica = new AtomicInteger();
+    private final long maxReplicaLagMs;
+    private final long readYourWritesWindowMs;
+
+    public ReplicaRoutingDataSource(DataSource primary, List<DataSource> replicaDataSources,
+                                    List<String> lagQueries, ReadReplicaProperties properties) {
+        this.maxReplicaLagMs = properties.getMaxReplicaLag().toMillis();
+        this.readYourWritesWindowMs = properties.getReadYourWritesWindow().toMillis();
+
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        for (int i = 0; i < replicaDataSources.size(); i++) {
+            String key = "replica-" + i;
+            targets.put(key, replicaDataSources.get(i));
+            replicas.add(new ReplicaTarget(key, replicaDataSources.get(i), lagQueries.get(i)));
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return trackWrites(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return trackWrites(super.getConnection(username, password));
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        String user = currentUser();
+
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return PRIMARY;
+        }
+
+        if (user != null) {
+            Long lastWrite = lastWriteByUser.get(user);
+            if (lastWrite != null && System.currentTimeMillis() - lastWrite < readYourWritesWindowMs) {
+                return PRIMARY;
+            }
+        }
+
+        int size = replicas.size();
+        int start = Math.floorMod(nextReplica.getAndIncrement(), Math.max(size, 1));
+        for (int i = 0; i < size; i++) {
+            ReplicaTarget replica = replicas.get((start + i) % size);
+            if (replica.healthy) {
+                return replica.key;
+            }
+        }
+        return PRIMARY;
+    }
+
+    public void refreshReplicaLag() {
+        for (ReplicaTarget replica : replicas) {
+            boolean wasHealthy = replica.healthy;
+            replica.healthy = measureLagMs(replica) <= maxReplicaLagMs;
+            if (wasHealthy != replica.healthy) {
+                logger.warn("Replica {} is now {}", replica.key, replica.healthy ? "in rotation" : "out of rotation");
+            }
+        }
+
+        long cutoff = System.currentTimeMillis() - readYourWritesWindowMs;
+        lastWriteByUser.values().removeIf(lastWrite -> lastWrite < cutoff);
+    }
+
+    public Map<String, Boolean> getReplicaHealth() {
+        Map<String, Boolean> health = new HashMap<>();
+        for (ReplicaTarget replica : replicas) {
+            health.put(replica.key, replica.healthy);
+        }
+        return health;
+    }
+
+    private long measureLagMs(ReplicaTarget replica) {
+        if (replica.lagQuery == null || replica.lagQuery.isBlank()) {
+            return 0;
+        }
+        try (Connection connection = replica.dataSource.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(replica.lagQuery)) {
+            if (rs.next() && rs.getObject(1) != null) {
+                return (long) (rs.getDouble(1) * 1000);
+            }
+            // No lag reported means replication is not running
+            return Long.MAX_VALUE;
+        } catch (Exception e) {
+            logger.error("Lag check failed for replica {}: {}", replica.key, e.getMessage());
+            return Long.MAX_VALUE;
+        }
+    }
+
+    /**
+     * Read-your-writes only starts once a user's write is committed: a transaction that merely
+     * could write (every non-read-only one) leaves the user's reads on the replicas.
+     */
+    private Connection trackWrites(Connection connection) {
+        String user = currentUser();
+        if (user == null || TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return connection;
+        }
+        boolean[] wrote = {false};
+        Runnable onWrite = () -> {
+            if (wrote[0]) {
+                return;
+            }
+            wrote[0] = true;
+            if (TransactionSynchronizationManager.isSynchronizationActive()) {
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        lastWriteByUser.put(user, System.currentTimeMillis());
+                    }
+                });
+            } else {
+                // Auto-commit: the statement is the transaction
+                lastWriteByUser.put(user, System.currentTimeMillis());
+            }
+        };
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    if (method.getName().startsWith("prepare") && isWrite(args)) {
+                        onWrite.run();
+                    }
+                    Object result = invoke(connection, method, args);
+                    if (result instanceof Statement statement && "createStatement".equals(method.getName())) {
+                        return Proxy.newProxyInstance(Statement.class.getClassLoader(), new Class<?>[]{Statement.class},
+                                (statementProxy, statementMethod, statementArgs) -> {
+                                    if ((statementMethod.getName().startsWith("execute")
+                                            || "addBatch".equals(statementMethod.getName())) && isWrite(statementArgs)) {
+                                        onWrite.run();
+                                    }
+                                    return invoke(statement, statementMethod, statementArgs);
+                                });
+                    }
+                    return result;
+                });
+    }
+
+    private static boolean isWrite(Object[] args) {
+        if (args == null || args.length == 0 || !(args[0] instanceof String sql)) {
+            return false;
+        }
+        String statement = sql.stripLeading();
+        int end = 0;
+        while (end < statement.length() && Character.isLetter(statement.charAt(end))) {
+            end++;
+        }
+        String verb = statement.substring(0, end).toUpperCase(Locale.ROOT);
+        return verb.equals("INSERT") || verb.equals("UPDATE") || verb.equals("DELETE") || verb.equals("MERGE");
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+
+    private String currentUser() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || authentication instanceof AnonymousAuthenticationToken) {
+            return null;
+        }
+        return authentication.getName();
+    }
+
+    private static class ReplicaTarget {
+        private final String key;
+        private final DataSource dataSource;
+        private final String lagQuery;
+        private volatile boolean healthy;
+
+        ReplicaTarget(String key, DataSource dataSource, String lagQuery) {
+            this.key = key;
+            this.dataSource = dataSource;
+            this.lagQuery = lagQuery;
+            // A replica with a lag query waits for its first check before taking reads
+            this.healthy = lagQuery == null || lagQuery.isBlank();
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.example.ecommerce.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+/**
+ * Picks the database holding a user's cart_items, orders, order_items and archived_orders.
+ * Users and products stay on the catalog datasource. With sharding off there is a single
+ * shard backed by the catalog datasource itself, so callers need no separate unsharded path.
+ */
+public class ShardRouter {
+
+    private final List<Shard> shards;
+    private final List<HikariDataSource> ownedPools;
+    private final ExecutorService scatterPool;
+
+    public ShardRouter(List<Shard> shards) {
+        this(shards, List.of());
+    }
+
+    // ownedPools are the shard connection pools the router closes on shutdown
+    public ShardRouter(List<Shard> shards, List<HikariDataSource> ownedPools) {
+        this.shards = List.copyOf(shards);
+        this.ownedPools = List.copyOf(ownedPools);
+        this.scatterPool = shards.size() > 1 ? Executors.newFixedThreadPool(shards.size(), runnable -> {
+            Thread thread = new Thread(runnable, "shard-scatter");
+            thread.setDaemon(true);
+            return thread;
+        }) : null;
+    }
+
+    public int size() {
+        return shards.size();
+    }
+
+    public List<Shard> all() {
+        return shards;
+    }
+
+    public Shard forUser(Long userId) {
+        return shards.get(shardOf(userId));
+    }
+
+    public int shardOf(long userId) {
+        // MurmurHash3 finalizer: consecutive ids spread evenly and independently of the shard count
+        long hash = userId;
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return (int) Math.floorMod(hash, (long) shards.size());
+    }
+
+    /**
+     * Runs the query on every shard in parallel and returns the results in shard order.
+     * A failing shard fails the whole call; partial answers would look like missing rows.
+     */
+    public <T> List<T> scatter(Function<Shard, T> query) {
+        List<T> results = new ArrayList<>(shards.size());
+        if (scatterPool == null) {
+            results.add(query.apply(shards.get(0)));
+            return results;
+        }
+
+        List<Future<T>> futures = new ArrayList<>(shards.size());
+        for (Shard shard : shards) {
+            futures.add(scatterPool.submit(() -> query.apply(shard)));
+        }
+        try {
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for shards", e);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : new IllegalStateException(e.getCause());
+        } finally {
+            futures.forEach(future -> future.cancel(true));
+        }
+        return results;
+    }
+
+    /**
+     * One past the highest id of the table on any shard.
+     */
+    public long nextId(String table) {
+        long next = 1;
+        for (Long max : scatter(shard -> shard.getJdbcTemplate()
+                .queryForObject("SELECT COALESCE(MAX(id), 0) FROM " + table, Long.class))) {
+            next = Math.max(next, max + 1);
+        }
+        return next;
+    }
+
+    /**
+     * Moves the table's identity past nextValue on every shard. Shard i hands out ids congruent
+     * to i + 1 modulo the shard count, so ids stay unique across shards. MySQL keeps the step in
+     * auto_increment_increment and auto_increment_offset, which ShardingConfig sets on every pooled
+     * connection; a shard whose connections hand out ids on another step is refused.
+     */
+    public void restartIdentity(String table, long nextValue) {
+        int count = shards.size();
+        for (Shard shard : shards) {
+            JdbcTemplate jdbcTemplate = shard.getJdbcTemplate();
+            String database = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                    connection.getMetaData().getDatabaseProductName());
+            if ("MySQL".equalsIgnoreCase(database)) {
+                long[] step = jdbcTemplate.queryForObject(
+                        "SELECT @@SESSION.auto_increment_increment, @@SESSION.auto_increment_offset",
+                        (rs, row) -> new long[]{rs.getLong(1), rs.getLong(2)});
+                if (step[0] != count || step[1] != shard.getIndex() + 1) {
+                    throw new IllegalStateException("Shard " + shard.getIndex() + " hands out ids with auto_increment_increment="
+                            + step[0] + " and auto_increment_offset=" + step[1] + "; ids would overlap across shards unless they are "
+                            + count + " and " + (shard.getIndex() + 1));
+                }
+                jdbcTemplate.execute("ALTER TABLE " + table + " AUTO_INCREMENT = " + nextValue);
+            } else {
+                long start = nextValue + Math.floorMod(shard.getIndex() + 1 - nextValue, (long) count);
+                jdbcTemplate.execute("ALTER TABLE " + table + " ALTER COLUMN id RESTART WITH " + start
+                        + " SET INCREMENT BY " + count);
+            }
+        }
+    }
+
+    public void shutdown() {
+        if (scatterPool != null) {
+            scatterPool.shutdownNow();
+        }
+        ownedPools.forEach(HikariDataSource::close);
+    }
+
+    public static class Shard {
+
+        private final int index;
+        private final JdbcTemplate jdbcTemplate;
+        private final TransactionTemplate transactionTemplate;
+
+        public Shard(int index, JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate) {
+            this.index = index;
+            this.jdbcTemplate = jdbcTemplate;
+            this.transactionTemplate = transactionTemplate;
+        }
+
+        // Getters
+        public int getIndex() { return index; }
+
+        public JdbcTemplate getJdbcTemplate() { return jdbcTemplate; }
+
+        public TransactionTemplate getTransactionTemplate() { return transactionTemplate; }
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.ecommerce.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Configuration
+@EnableConfigurationProperties(ShardingProperties.class)
+public class ShardingConfig {
+
+    private static final String[] SHARDED_TABLES = {"cart_items", "orders", "order_items"};
+
+    @Bean(destroyMethod = "shutdown")
+    public ShardRouter shardRouter(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                                   DataSourceProperties catalogProperties, ShardingProperties shardingProperties,
+                                   ResourceLoader resourceLoader, @Value("${app.cart.store:jpa}") String cartStore) {
+        if (!shardingProperties.isEnabled()) {
+            return new ShardRouter(List.of(new ShardRouter.Shard(0, jdbcTemplate, transactionTemplate)));
+        }
+        if (shardingProperties.getShards().isEmpty()) {
+            throw new IllegalStateException("app.sharding.enabled needs at least one app.sharding.shards entry");
+        }
+        // JPA entities can only reach the catalog datasource
+        if ("jpa".equals(cartStore)) {
+            throw new IllegalStateException("app.sharding.enabled needs app.cart.store=sharded or memory");
+        }
+
+        List<ShardRouter.Shard> shards = new ArrayList<>();
+        List<HikariDataSource> pools = new ArrayList<>();
+        int count = shardingProperties.getShards().size();
+        for (ShardingProperties.Shard shard : shardingProperties.getShards()) {
+            HikariDataSource dataSource = DataSourceBuilder.create()
+                    .type(HikariDataSource.class)
+                    .driverClassName(catalogProperties.determineDriverClassName())
+                    .url(shard.getUrl())
+                    .username(shard.getUsername() != null ? shard.getUsername() : catalogProperties.determineUsername())
+                    .password(shard.getPassword() != null ? shard.getPassword() : catalogProperties.determinePassword())
+                    .build();
+            dataSource.setPoolName("shard-" + shards.size());
+            dataSource.setExceptionOverrideClassName(StatementTimeoutExceptionOverride.class.getName());
+            // MySQL keeps the identity step per session: shard i hands out ids congruent to i + 1
+            // modulo the shard count, as restartIdentity sets up on H2
+            if (shard.getUrl().startsWith("jdbc:mysql:")) {
+                dataSource.setConnectionInitSql("SET SESSION auto_increment_increment = " + count
+                        + ", auto_increment_offset = " + (shards.size() + 1));
+            }
+            pools.add(dataSource);
+
+            if (shardingProperties.isInitializeSchema()) {
+                new ResourceDatabasePopulator(resourceLoader.getResource(shardingProperties.getSchemaLocation()))
+                        .execute(dataSource);
+            }
+            shards.add(new ShardRouter.Shard(shards.size(), new JdbcTemplate(dataSource),
+                    new TransactionTemplate(new DataSourceTransactionManager(dataSource))));
+        }
+
+        ShardRouter router = new ShardRouter(shards, pools);
+        if (shardingProperties.isInitializeSchema()) {
+            for (String table : SHARDED_TABLES) {
+                router.restartIdentity(table, router.nextId(table));
+            }
+        }
+        return router;
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.ecommerce.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@ConfigurationProperties(prefix = "app.sharding")
+public class ShardingProperties {
+
+    private boolean enabled = false;
+
+    // Creates the shard tables on start-up; leave off where shards are provisioned by migrations
+    private boolean initializeSchema = false;
+
+    private String schemaLocation = "classpath:schema-shard.sql";
+
+    // Order matters: a user's shard is picked by index, so reordering or resizing moves users
+    private List<Shard> shards = new ArrayList<>();
+
+    public static class Shard {
+
+        private String url;
+        private String username;
+        private String password;
+
+        // Getters and Setters
+        public String getUrl() { return url; }
+        public void setUrl(String url) { this.url = url; }
+
+        public String getUsername() { return username; }
+        public void setUsername(String username) { this.username = username; }
+
+        public String getPassword() { return password; }
+        public void setPassword(String password) { this.password = password; }
+    }
+
+    // Getters and Setters
+    public boolean isEnabled() { return enabled; }
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+    public boolean isInitializeSchema() { return initializeSchema; }
+    public void setInitializeSchema(boolean initializeSchema) { this.initializeSchema = initializeSchema; }
+
+    public String getSchemaLocation() { return schemaLocation; }
+    public void setSchemaLocation(String schemaLocation) { this.schemaLocation = schemaLocation; }
+
+    public List<Shard> getShards() { return shards; }
+    public void setShards(List<Shard> shards) { this.shards = shards; }
+}
@@ -0,0 +1,40 @@
+package com.example.ecommerce.config;
+
+import com.example.ecommerce.security.JwtUtils;
+import com.example.ecommerce.service.CartStore;
+import com.example.ecommerce.service.TokenRevocationService;
+import com.example.ecommerce.service.UserDetailsServiceImpl;
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.boot.jdbc.init.DataSourceScriptDatabaseInitializer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class StartupConfig {
+
+    // Beans every authenticated request needs stay eager even when lazy initialization is on,
+    // so the first requests after a scale-out don't pay for them
+    @Bean
+    static LazyInitializationExcludeFilter eagerHotPathBeans() {
+        return LazyInitializationExcludeFilter.forBeanTypes(JwtUtils.class, UserDetailsServiceImpl.class,
+                TokenRevocationService.class, CartStore.class);
+    }
+
+    // With background JPA bootstrap the entityManagerFactory bean exists before Hibernate has created
+    // the schema, and eager @Scheduled beans pull in data.sql early; the script waits for the schema
+    @Bean
+    static BeanPostProcessor scriptInitializerAwaitsJpaSchema(ObjectProvider<EntityManagerFactory> entityManagerFactory) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSourceScriptDatabaseInitializer) {
+                    entityManagerFactory.ifAvailable(EntityManagerFactory::getMetamodel);
+                }
+                return bean;
+            }
+        };
+    }
+}
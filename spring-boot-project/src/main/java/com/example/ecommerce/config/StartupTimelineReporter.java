@@ -0,0 +1,135 @@
+package com.example.ecommerce.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
+import org.springframework.boot.context.metrics.buffering.StartupTimeline;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.metrics.ApplicationStartup;
+import org.springframework.core.metrics.StartupStep;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Logs how long the node took to become ready and which beans cost the most to create.
+ * Durations are self time: a bean's own instantiation minus the beans it pulled in. The cold start
+ * is compared with app.startup.baseline-ms, the same build started without fast-start on the same
+ * hardware, and the target is app.startup.target-reduction-percent below that baseline.
+ */
+@Component
+public class StartupTimelineReporter {
+
+    private static final Logger logger = LoggerFactory.getLogger(StartupTimelineReporter.class);
+
+    @Autowired
+    private ApplicationStartup applicationStartup;
+
+    @Value("${app.startup.report:false}")
+    private boolean reportEnabled;
+
+    @Value("${app.startup.baseline-ms:0}")
+    private long baselineMs;
+
+    @Value("${app.startup.target-reduction-percent:40}")
+    private int targetReductionPercent;
+
+    @Value("${app.startup.top-beans:15}")
+    private int topBeans;
+
+    @Value("${app.startup.exit-on-ready:false}")
+    private boolean exitOnReady;
+
+    // Ahead of the other ready listeners, so the timeline ends where startup ends and not after the warm-up
+    @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onReady(ApplicationReadyEvent event) {
+        if (applicationStartup instanceof BufferingApplicationStartup buffering) {
+            // Always drain so the buffered steps don't stay on the heap
+            StartupTimeline timeline = buffering.drainBufferedTimeline();
+            if (reportEnabled) {
+                report(event, timeline);
+            }
+        }
+
+        if (exitOnReady) {
+            // Used by the AppCDS training run: stop once startup has loaded every class it needs
+            logger.info("Startup complete, exiting (app.startup.exit-on-ready)");
+            System.exit(SpringApplication.exit(event.getApplicationContext()));
+        }
+    }
+
+    private void report(ApplicationReadyEvent event, StartupTimeline timeline) {
+        long jvmUptimeMs = ManagementFactory.getRuntimeMXBean().getUptime();
+        long contextMs = event.getTimeTaken() != null ? event.getTimeTaken().toMillis() : -1;
+
+        Map<Long, Long> childNanos = new HashMap<>();
+        for (StartupTimeline.TimelineEvent timelineEvent : timeline.getEvents()) {
+            Long parentId = timelineEvent.getStartupStep().getParentId();
+            if (parentId != null) {
+                childNanos.merge(parentId, timelineEvent.getDuration().toNanos(), Long::sum);
+            }
+        }
+
+        List<BeanCost> costs = new ArrayList<>();
+        for (StartupTimeline.TimelineEvent timelineEvent : timeline.getEvents()) {
+            StartupStep step = timelineEvent.getStartupStep();
+            if (!"spring.beans.instantiate".equals(step.getName())) {
+                continue;
+            }
+            String beanName = "?";
+            for (StartupStep.Tag tag : step.getTags()) {
+                if ("beanName".equals(tag.getKey())) {
+                    beanName = tag.getValue();
+                }
+            }
+            long selfNanos = timelineEvent.getDuration().toNanos() - childNanos.getOrDefault(step.getId(), 0L);
+            costs.add(new BeanCost(beanName, selfNanos));
+        }
+        costs.sort((a, b) -> Long.compare(b.selfNanos, a.selfNanos));
+
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("Startup timeline: ready %d ms after JVM start (application context %d ms), %d beans created%n",
+                jvmUptimeMs, contextMs, costs.size()));
+        for (int i = 0; i < Math.min(topBeans, costs.size()); i++) {
+            BeanCost cost = costs.get(i);
+            report.append(String.format("  %8.1f ms  %s%n", cost.selfNanos / 1_000_000.0, cost.beanName));
+        }
+        logger.info(report.toString());
+
+        if (baselineMs <= 0) {
+            logger.info("Cold start took {} ms; set app.startup.baseline-ms to compare it with a start without fast-start",
+                    jvmUptimeMs);
+            return;
+        }
+        long targetMs = baselineMs * (100 - targetReductionPercent) / 100;
+        long savedPercent = Math.round(100.0 * (baselineMs - jvmUptimeMs) / baselineMs);
+        if (jvmUptimeMs > targetMs) {
+            logger.warn("Cold start took {} ms against a {} ms baseline ({}% faster), above the {} ms target ({}% below baseline)",
+                    jvmUptimeMs, baselineMs, savedPercent, targetMs, targetReductionPercent);
+        } else {
+            logger.info("Cold start took {} ms against a {} ms baseline ({}% faster), within the {} ms target ({}% below baseline)",
+                    jvmUptimeMs, baselineMs, savedPercent, targetMs, targetReductionPercent);
+        }
+    }
+
+    private static class BeanCost {
+        private final String beanName;
+        private final long selfNanos;
+
+        BeanCost(String beanName, long selfNanos) {
+            this.beanName = beanName;
+            this.selfNanos = selfNanos;
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.ecommerce.config;
+
+import com.zaxxer.hikari.SQLExceptionOverride;
+
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+
+/**
+ * Hikari closes a connection on any SQLTimeoutException. A statement cancelled by its query
+ * timeout (see QueryGuard) leaves the connection usable, and closing it would also break the
+ * rollback that follows, so those connections stay in the pool.
+ */
+public class StatementTimeoutExceptionOverride implements SQLExceptionOverride {
+
+    @java.lang.Override
+    public Override adjudicate(SQLException e) {
+        return e instanceof SQLTimeoutException ? Override.DO_NOT_EVICT : Override.CONTINUE_EVICT;
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.ecommerce.controller;
+
+import com.example.ecommerce.entity.Order;
+import com.example.ecommerce.service.OrderStore;
+import com.example.ecommerce.service.QueryGuard;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+@CrossOrigin(origins = "*", maxAge = 3600)
+@RestController
+@RequestMapping("/api/admin/orders")
+public class AdminOrderController {
+
+    @Autowired
+    private OrderStore orderStore;
+
+    @Autowired
+    private QueryGuard queryGuard;
+
+    // Newest orders in one status across all users (and all shards when sharding is on)
+    @GetMapping
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> getOrdersByStatus(@RequestParam String status,
+                                               @RequestParam(defaultValue = "50") int size) {
+        Order.OrderStatus orderStatus;
+        try {
+            orderStatus = Order.OrderStatus.valueOf(status.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            Map<String, String> response = new HashMap<>();
+            response.put("message", "Unknown status: " + status);
+            return ResponseEntity.badRequest().body(response);
+        }
+        int limit = queryGuard.pageSize("admin-orders", size);
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("status", orderStatus);
+        response.put("orders", queryGuard.execute("admin-orders",
+                () -> orderStore.findOrderSummariesByStatus(orderStatus, limit)));
+        response.put("total", queryGuard.execute("admin-orders", () -> orderStore.countByStatus(orderStatus)));
+        return ResponseEntity.ok(response);
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.ecommerce.controller;
+
+import com.example.ecommerce.entity.StockMovement;
+import com.example.ecommerce.repository.StockMovementRepository;
+import com.example.ecommerce.repository.StockSnapshotRepository;
+import com.example.ecommerce.service.ProductBulkService;
+import com.example.ecommerce.service.StockLedger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@CrossOrigin(origins = "*", maxAge = 3600)
+@RestController
+@RequestMapping("/api/admin/products")
+public class AdminProductController {
+
+    @Autowired
+    private ProductBulkService productBulkService;
+
+    @Autowired
+    private StockLedger stockLedger;
+
+    @Autowired
+    private StockMovementRepository stockMovementRepository;
+
+    @Autowired
+    private StockSnapshotRepository stockSnapshotRepository;
+
+    @PostMapping("/price-adjustments")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> adjustCategoryPrices(@RequestBody Map<String, Object> request) {
+        Object category = request.get("category");
+        Object percent = request.get("percent");
+
+        if (category == null || percent == null) {
+            Map<String, String> response = new HashMap<>();
+            response.put("message", "category and percent are required");
+            return ResponseEntity.badRequest().body(response);
+        }
+
+        BigDecimal change;
+        try {
+            change = new BigDecimal(percent.toString());
+        } catch (NumberFormatException e) {
+            Map<String, String> response = new HashMap<>();
+            response.put("message", "percent must be a number");
+            return ResponseEntity.badRequest().body(response);
+        }
+        if (change.compareTo(BigDecimal.valueOf(-100)) <= 0 || change.compareTo(BigDecimal.valueOf(1000)) > 0) {
+            Map<String, String> response = new HashMap<>();
+            response.put("message", "percent must be greater than -100 and at most 1000");
+            return ResponseEntity.badRequest().body(response);
+        }
+
+        return ResponseEntity.ok(productBulkService.adjustCategoryPrices(category.toString(), change));
+    }
+
+    @PostMapping("/stock-adjustments")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> adjustStock(@RequestBody Map<String, List<Map<String, Object>>> request,
+                                         Authentication authentication) {
+        List<Map<String, Object>> adjustments = request.get("adjustments");
+
+        if (adjustments == null || adjustments.isEmpty()) {
+            Map<String, String> response = new HashMap<>();
+            response.put("message", "adjustments must list productId and delta pairs");
+            return ResponseEntity.badRequest().body(response);
+        }
+
+        List<StockMovement> movements = new ArrayList<>(adjustments.size());
+        for (Map<String, Object> adjustment : adjustments) {
+            if (adjustment.get("productId") == null || adjustment.get("delta") == null) {
+                Map<String, String> response = new HashMap<>();
+                response.put("message", "every adjustment needs productId and delta");
+                return ResponseEntity.badRequest().body(response);
+            }
+            // Deliveries can be booked as RESTOCK; anything else is an ADJUSTMENT
+            StockMovement.MovementType type = "RESTOCK".equalsIgnoreCase(String.valueOf(adjustment.get("type")))
+                    ? StockMovement.MovementType.RESTOCK : StockMovement.MovementType.ADJUSTMENT;
+            long productId;
+            int delta;
+            try {
+                productId = Long.parseLong(adjustment.get("productId").toString());
+                delta = Integer.parseInt(adjustment.get("delta").toString());
+            } catch (NumberFormatException e) {
+                Map<String, String> response = new HashMap<>();
+                response.put("message", "productId and delta must be whole numbers");
+                return ResponseEntity.badRequest().body(response);
+            }
+            Object reference = adjustment.get("reference");
+            movements.add(new StockMovement(productId, delta,
+                    type, reference != null ? reference.toString() : "admin:" + authentication.getName()));
+        }
+
+        return ResponseEntity.ok(productBulkService.adjustStock(movements));
+    }
+
+    // Reconciliation view: the exact stock, the snapshot it builds on and the latest movements
+    @GetMapping("/{id}/stock")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> getStock(@PathVariable Long id) {
+        Long stock = stockLedger.currentStock(List.of(id)).get(id);
+        if (stock == null) {
+            return ResponseEntity.notFound().build();
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("productId", id);
+        response.put("stock", stock);
+        response.put("snapshot", stockSnapshotRepository.findById(id).orElse(null));
+        response.put("recentMovements", stockMovementRepository.findTop50ByProductIdOrderByIdDesc(id));
+        return ResponseEntity.ok(response);
+    }
+}
@@ -6,9 +6,12 @@ import com.example.ecommerce.dto.RegisterRequest;
 import com.example.ecommerce.entity.User;
 import com.example.ecommerce.repository.UserRepository;
 import com.example.ecommerce.security.JwtUtils;
+import com.example.ecommerce.service.TokenRevocationService;
+import io.jsonwebtoken.Claims;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
@@ -36,6 +39,9 @@ public class AuthController {
     @Autowired
     JwtUtils jwtUtils;
     
+    @Autowired
+    TokenRevocationService tokenRevocationService;
+    
     @PostMapping("/signin")
     public ResponseEntity<?> authenticateUser(@Valid @RequestBody AuthRequest loginRequest) {
         
@@ -86,4 +92,47 @@ public class AuthController {
         
         return ResponseEntity.ok(response);
     }
-}
\ No newline at end of file
+    
+    @PostMapping("/logout")
+    public ResponseEntity<?> logout(@RequestHeader(value = "Authorization", required = false) String authorization) {
+        Claims claims = authorization != null && authorization.startsWith("Bearer ")
+                ? jwtUtils.parseJwtClaims(authorization.substring(7)) : null;
+        Map<String, String> response = new HashMap<>();
+        
+        if (claims == null) {
+            response.put("message", "Error: A valid bearer token is required");
+            return ResponseEntity.status(401).body(response);
+        }
+        
+        tokenRevocationService.revoke(claims);
+        response.put("message", "Signed out successfully");
+        return ResponseEntity.ok(response);
+    }
+    
+    @PostMapping("/logout-all")
+    public ResponseEntity<?> logoutEverywhere(Authentication authentication) {
+        Map<String, String> response = new HashMap<>();
+        
+        if (authentication == null || !(authentication.getPrincipal() instanceof User user)) {
+            response.put("message", "Error: A valid bearer token is required");
+            return ResponseEntity.status(401).body(response);
+        }
+        
+        tokenRevocationService.revokeAllFor(user.getEmail());
+        response.put("message", "All sessions signed out");
+        return ResponseEntity.ok(response);
+    }
+    
+    @PostMapping("/users/{id}/revoke-tokens")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> revokeUserTokens(@PathVariable Long id) {
+        return userRepository.findById(id)
+                .map(user -> {
+                    tokenRevocationService.revokeAllFor(user.getEmail());
+                    Map<String, String> response = new HashMap<>();
+                    response.put("message", "All tokens revoked for " + user.getEmail());
+                    return ResponseEntity.ok(response);
+                })
+                .orElse(ResponseEntity.notFound().build());
+    }
+}
@@ -1,16 +1,22 @@
 package com.example.ecommerce.controller;
 
 import com.example.ecommerce.entity.CartItem;
+import com.example.ecommerce.entity.Money;
 import com.example.ecommerce.entity.Product;
 import com.example.ecommerce.entity.User;
-import com.example.ecommerce.repository.CartItemRepository;
 import com.example.ecommerce.repository.ProductRepository;
+import com.example.ecommerce.service.CartStore;
+import com.example.ecommerce.service.OptimisticRetry;
+import com.example.ecommerce.service.ProductProjection;
+import com.example.ecommerce.service.StockLedger;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -21,33 +27,71 @@ import java.util.Optional;
 public class CartController {
     
     @Autowired
-    private CartItemRepository cartItemRepository;
+    private CartStore cartStore;
     
     @Autowired
     private ProductRepository productRepository;
     
+    @Autowired
+    private OptimisticRetry optimisticRetry;
+
+    @Autowired
+    private StockLedger stockLedger;
+
+    @Autowired
+    private ProductProjection productProjection;
+    
     @GetMapping
-    public ResponseEntity<Map<String, Object>> getCart(Authentication authentication) {
+    public ResponseEntity<Map<String, Object>> getCart(@RequestParam(required = false) String fields,
+                                                       Authentication authentication) {
         User user = (User) authentication.getPrincipal();
-        List<CartItem> cartItems = cartItemRepository.findByUser(user);
+        List<String> productFields = productProjection.parseFields(fields);
+        List<CartItem> cartItems = cartStore.findByUser(user);
         
-        Double total = cartItemRepository.getCartTotalByUser(user);
-        if (total == null) total = 0.0;
+        // Summed in cents from the products already loaded with the items: no second query
+        long totalCents = 0;
+        for (CartItem item : cartItems) {
+            totalCents = Math.addExact(totalCents, item.getSubtotalCents());
+        }
         
         Map<String, Object> response = new HashMap<>();
-        response.put("items", cartItems);
-        response.put("total", total);
+        response.put("items", productFields == null ? cartItems : projectItems(productFields, cartItems));
+        response.put("total", Money.ofCents(totalCents));
         response.put("itemCount", cartItems.size());
         
         return ResponseEntity.ok(response);
     }
     
+    // fields= narrows the product inside each item; the cart stores load whole products anyway
+    private List<Map<String, Object>> projectItems(List<String> productFields, List<CartItem> cartItems) {
+        List<Map<String, Object>> items = new ArrayList<>(cartItems.size());
+        Map<Long, Long> stock = productProjection.stockFor(productFields,
+                cartItems.stream().map(item -> item.getProduct().getId()).toList());
+        for (CartItem item : cartItems) {
+            Map<String, Object> projected = new LinkedHashMap<>();
+            projected.put("id", item.getId());
+            projected.put("product", productProjection.project(productFields, item.getProduct(), stock));
+            projected.put("quantity", item.getQuantity());
+            projected.put("version", item.getVersion());
+            projected.put("addedAt", item.getAddedAt());
+            projected.put("subtotal", item.getSubtotal());
+            items.add(projected);
+        }
+        return items;
+    }
+    
     @PostMapping("/add")
     public ResponseEntity<?> addToCart(@RequestBody Map<String, Object> request, Authentication authentication) {
         User user = (User) authentication.getPrincipal();
         Long productId = Long.valueOf(request.get("productId").toString());
         Integer quantity = Integer.valueOf(request.get("quantity").toString());
         
+        // The cart save is the attempt's only write and every cart store rejects a stale one without
+        // changing anything, so re-running the increment from a fresh read is safe
+        return optimisticRetry.execute("cart.add", () -> applyAddToCart(user, productId, quantity));
+    }
+    
+    private ResponseEntity<?> applyAddToCart(User user, Long productId, Integer quantity) {
         Optional<Product> optionalProduct = productRepository.findById(productId);
         if (!optionalProduct.isPresent() || !optionalProduct.get().getActive()) {
             Map<String, String> response = new HashMap<>();
@@ -57,29 +101,29 @@ public class CartController {
         
         Product product = optionalProduct.get();
         
-        if (!product.hasStock(quantity)) {
+        if (!stockLedger.hasStock(product.getId(), quantity)) {
             Map<String, String> response = new HashMap<>();
             response.put("message", "Insufficient stock");
             return ResponseEntity.badRequest().body(response);
         }
         
-        Optional<CartItem> existingCartItem = cartItemRepository.findByUserAndProduct(user, product);
+        Optional<CartItem> existingCartItem = cartStore.findByUserAndProduct(user, product);
         
         if (existingCartItem.isPresent()) {
             CartItem cartItem = existingCartItem.get();
             int newQuantity = cartItem.getQuantity() + quantity;
             
-            if (!product.hasStock(newQuantity)) {
+            if (!stockLedger.hasStock(product.getId(), newQuantity)) {
                 Map<String, String> response = new HashMap<>();
                 response.put("message", "Insufficient stock for requested quantity");
                 return ResponseEntity.badRequest().body(response);
             }
             
             cartItem.setQuantity(newQuantity);
-            cartItemRepository.save(cartItem);
+            cartStore.save(cartItem);
         } else {
             CartItem cartItem = new CartItem(user, product, quantity);
-            cartItemRepository.save(cartItem);
+            cartStore.save(cartItem);
         }
         
         Map<String, String> response = new HashMap<>();
@@ -93,7 +137,11 @@ public class CartController {
         User user = (User) authentication.getPrincipal();
         Integer quantity = request.get("quantity");
         
-        Optional<CartItem> optionalCartItem = cartItemRepository.findById(itemId);
+        return optimisticRetry.execute("cart.update", () -> applyCartItemUpdate(user, itemId, quantity));
+    }
+    
+    private ResponseEntity<?> applyCartItemUpdate(User user, Long itemId, Integer quantity) {
+        Optional<CartItem> optionalCartItem = cartStore.findById(user, itemId);
         if (!optionalCartItem.isPresent()) {
             Map<String, String> response = new HashMap<>();
             response.put("message", "Cart item not found");
@@ -110,20 +158,20 @@ public class CartController {
         }
         
         if (quantity <= 0) {
-            cartItemRepository.delete(cartItem);
+            cartStore.delete(cartItem);
             Map<String, String> response = new HashMap<>();
             response.put("message", "Item removed from cart");
             return ResponseEntity.ok(response);
         }
         
-        if (!cartItem.getProduct().hasStock(quantity)) {
+        if (!stockLedger.hasStock(cartItem.getProduct().getId(), quantity)) {
             Map<String, String> response = new HashMap<>();
             response.put("message", "Insufficient stock");
             return ResponseEntity.badRequest().body(response);
         }
         
         cartItem.setQuantity(quantity);
-        cartItemRepository.save(cartItem);
+        cartStore.save(cartItem);
         
         Map<String, String> response = new HashMap<>();
         response.put("message", "Cart updated successfully");
@@ -134,7 +182,7 @@ public class CartController {
     public ResponseEntity<?> removeFromCart(@PathVariable Long itemId, Authentication authentication) {
         User user = (User) authentication.getPrincipal();
         
-        Optional<CartItem> optionalCartItem = cartItemRepository.findById(itemId);
+        Optional<CartItem> optionalCartItem = cartStore.findById(user, itemId);
         if (!optionalCartItem.isPresent()) {
             return ResponseEntity.notFound().build();
         }
@@ -148,7 +196,7 @@ public class CartController {
             return ResponseEntity.status(403).body(response);
         }
         
-        cartItemRepository.delete(cartItem);
+        cartStore.delete(cartItem);
         
         Map<String, String> response = new HashMap<>();
         response.put("message", "Item removed from cart successfully");
@@ -158,7 +206,7 @@ public class CartController {
     @DeleteMapping("/clear")
     public ResponseEntity<?> clearCart(Authentication authentication) {
         User user = (User) authentication.getPrincipal();
-        cartItemRepository.deleteByUser(user);
+        cartStore.deleteByUser(user);
         
         Map<String, String> response = new HashMap<>();
         response.put("message", "Cart cleared successfully");
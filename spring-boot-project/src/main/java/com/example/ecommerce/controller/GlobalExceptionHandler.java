@@ -0,0 +1,73 @@
+package com.example.ecommerce.controller;
+
+import com.example.ecommerce.service.CartStore;
+import com.example.ecommerce.service.QueryGuard;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.OptimisticLockException;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Hibernate;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.util.ClassUtils;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@RestControllerAdvice
+public class GlobalExceptionHandler {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<Map<String, Object>> handleOptimisticLockConflict(OptimisticLockingFailureException e) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("message", "The resource was modified concurrently; reload and retry");
+
+        // Send back the current state so the client can merge without another round trip
+        if (e instanceof CartStore.ConflictException conflict) {
+            // Cart stores that keep lines outside JPA report the line themselves
+            response.put("current", conflict.getCurrent());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+        }
+
+        Class<?> entityClass = null;
+        Object entityId = null;
+        if (e instanceof ObjectOptimisticLockingFailureException objectFailure
+                && objectFailure.getPersistentClassName() != null) {
+            // Hibernate reports the entity name, which is the class name for our entities
+            entityClass = ClassUtils.resolveClassName(objectFailure.getPersistentClassName(), getClass().getClassLoader());
+            entityId = objectFailure.getIdentifier();
+        } else if (e.getCause() instanceof OptimisticLockException lockException && lockException.getEntity() != null) {
+            // Conflicts found at commit arrive as the JPA exception carrying the stale entity
+            entityClass = Hibernate.getClass(lockException.getEntity());
+            entityId = entityManager.getEntityManagerFactory().getPersistenceUnitUtil().getIdentifier(lockException.getEntity());
+        }
+        
+        if (entityClass != null && entityId != null) {
+            entityManager.clear();
+            response.put("current", entityManager.find(entityClass, entityId));
+        }
+
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+    }
+    
+    @ExceptionHandler(QueryGuard.RejectedQueryException.class)
+    public ResponseEntity<Map<String, Object>> handleRejectedQuery(QueryGuard.RejectedQueryException e) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("message", e.getMessage());
+        return ResponseEntity.badRequest().body(response);
+    }
+    
+    @ExceptionHandler(QueryTimeoutException.class)
+    public ResponseEntity<Map<String, Object>> handleQueryTimeout(QueryTimeoutException e) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("message", "The query took too long; narrow the filters and retry");
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(response);
+    }
+}
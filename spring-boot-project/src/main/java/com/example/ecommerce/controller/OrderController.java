@@ -0,0 +1,120 @@
+package com.example.ecommerce.controller;
+
+import com.example.ecommerce.dto.OrderSummary;
+import com.example.ecommerce.entity.Order;
+import com.example.ecommerce.entity.User;
+import com.example.ecommerce.service.OrderArchiveService;
+import com.example.ecommerce.service.OrderStore;
+import com.example.ecommerce.service.QueryGuard;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+@CrossOrigin(origins = "*", maxAge = 3600)
+@RestController
+@RequestMapping("/api/orders")
+public class OrderController {
+
+    @Autowired
+    private OrderStore orderStore;
+
+    @Autowired
+    private OrderArchiveService orderArchiveService;
+
+    @Autowired
+    private QueryGuard queryGuard;
+
+    @GetMapping
+    public ResponseEntity<?> getOrderHistory(@RequestParam(defaultValue = "20") int size,
+                                             @RequestParam(required = false) String cursor,
+                                             Authentication authentication) {
+        User user = (User) authentication.getPrincipal();
+        int limit = queryGuard.pageSize("order-history", size);
+
+        Object[] position = cursor == null ? new Object[2] : decodeCursor(cursor);
+        if (position == null) {
+            Map<String, String> response = new HashMap<>();
+            response.put("message", "Invalid cursor");
+            return ResponseEntity.badRequest().body(response);
+        }
+        LocalDateTime beforeDate = (LocalDateTime) position[0];
+        Long beforeId = (Long) position[1];
+
+        // One extra row tells whether another page exists without a COUNT query
+        List<OrderSummary> orders = queryGuard.execute("order-history",
+                () -> orderStore.findOrderSummaries(user, beforeDate, beforeId, limit + 1));
+        List<OrderSummary> archived = queryGuard.execute("order-history",
+                () -> orderArchiveService.findOrderSummaries(user.getId(), beforeDate, beforeId, limit + 1));
+        // Both sides are keyset pages in the same order, so the merged page is simply their first rows.
+        // The two reads are separate transactions: an order archived in between shows up in both,
+        // never in neither, so duplicates are dropped by id
+        if (!archived.isEmpty()) {
+            List<OrderSummary> merged = new ArrayList<>(orders);
+            merged.addAll(archived);
+            merged.sort(OrderSummary.NEWEST_FIRST);
+            Set<Long> seen = new HashSet<>();
+            orders = new ArrayList<>(merged.size());
+            for (OrderSummary order : merged) {
+                if (seen.add(order.getId())) {
+                    orders.add(order);
+                }
+            }
+        }
+
+        boolean hasMore = orders.size() > limit;
+        if (hasMore) {
+            orders = orders.subList(0, limit);
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("orders", orders);
+        response.put("hasMore", hasMore);
+        response.put("nextCursor", hasMore ? encodeCursor(orders.get(orders.size() - 1)) : null);
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<?> getOrder(@PathVariable Long id, Authentication authentication) {
+        User user = (User) authentication.getPrincipal();
+        Optional<Order> order = orderStore.findDetail(user, id);
+        if (order.isPresent()) {
+            return ResponseEntity.ok(order.get());
+        }
+
+        // Older orders live in the archive as the JSON they are served as
+        Optional<byte[]> archived = orderArchiveService.findOrderJson(id, user.getId());
+        if (archived.isPresent()) {
+            return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(archived.get());
+        } else {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    // The cursor is the (orderDate, id) of the last summary returned, opaque to clients
+    private static String encodeCursor(OrderSummary last) {
+        String position = last.getOrderDate() + "|" + last.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Object[] decodeCursor(String cursor) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|");
+            return new Object[]{LocalDateTime.parse(parts[0]), Long.valueOf(parts[1])};
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+}
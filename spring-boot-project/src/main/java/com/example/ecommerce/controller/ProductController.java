@@ -2,19 +2,35 @@ package com.example.ecommerce.controller;
 
 import com.example.ecommerce.entity.Product;
 import com.example.ecommerce.repository.ProductRepository;
+import com.example.ecommerce.service.BestSellerService;
+import com.example.ecommerce.service.OptimisticRetry;
+import com.example.ecommerce.service.ProductChangeFeed;
+import com.example.ecommerce.service.ProductFacetIndex;
+import com.example.ecommerce.service.ProductProjection;
+import com.example.ecommerce.service.ProductJsonCache;
+import com.example.ecommerce.service.QueryGuard;
+import com.example.ecommerce.service.RecommendationService;
+import com.example.ecommerce.service.RequestCoalescer;
+import com.example.ecommerce.service.StockLedger;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import jakarta.validation.Valid;
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
 
@@ -23,11 +39,52 @@ import java.util.Optional;
 @RequestMapping("/api/products")
 public class ProductController {
     
+    // Client sort keys and the indexed Product properties they sort on
+    private static final Map<String, String> SORTABLE = Map.of(
+            "id", "id",
+            "name", "name",
+            "price", "price",
+            "createdAt", "createdAt");
+    
+    private static final int MAX_BATCH_IDS = 100;
+    
+    private static final MediaType SMILE = MediaType.parseMediaType("application/x-jackson-smile");
+    
     @Autowired
     private ProductRepository productRepository;
     
+    @Autowired
+    private ProductJsonCache productJsonCache;
+    
+    @Autowired
+    private OptimisticRetry optimisticRetry;
+    
+    @Autowired
+    private ProductFacetIndex productFacetIndex;
+    
+    @Autowired
+    private RecommendationService recommendationService;
+    
+    @Autowired
+    private QueryGuard queryGuard;
+    
+    @Autowired
+    private RequestCoalescer requestCoalescer;
+    
+    @Autowired
+    private StockLedger stockLedger;
+    
+    @Autowired
+    private ProductChangeFeed productChangeFeed;
+    
+    @Autowired
+    private ProductProjection productProjection;
+    
+    @Autowired
+    private BestSellerService bestSellerService;
+    
     @GetMapping
-    public ResponseEntity<Map<String, Object>> getAllProducts(
+    public ResponseEntity<?> getAllProducts(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(defaultValue = "id") String sortBy,
@@ -35,36 +92,163 @@ public class ProductController {
             @RequestParam(required = false) String name,
             @RequestParam(required = false) String category,
             @RequestParam(required = false) BigDecimal minPrice,
-            @RequestParam(required = false) BigDecimal maxPrice) {
+            @RequestParam(required = false) BigDecimal maxPrice,
+            @RequestParam(required = false) String fields,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
         
-        Sort sort = sortDir.equalsIgnoreCase("desc") ? 
-            Sort.by(sortBy).descending() : Sort.by(sortBy).ascending();
+        Pageable pageable = queryGuard.pageable("product-list", page, size, sortBy, sortDir, SORTABLE);
+        List<String> selected = productProjection.parseFields(fields);
         
-        Pageable pageable = PageRequest.of(page, size, sort);
+        if (selected != null || prefersBinary(accept)) {
+            // Rendered by the negotiated converter (JSON, CBOR or Smile) rather than from cached JSON
+            Page<?> products = queryGuard.execute("product-list", () -> selected != null
+                    ? productProjection.findProductsWithFilters(selected, name, category, minPrice, maxPrice, pageable)
+                    : productRepository.findProductsWithFilters(name, category, minPrice, maxPrice, pageable));
+            Map<String, Object> response = new HashMap<>();
+            response.put("products", products.getContent());
+            response.put("currentPage", products.getNumber());
+            response.put("totalItems", products.getTotalElements());
+            response.put("totalPages", products.getTotalPages());
+            return ResponseEntity.ok(response);
+        }
         
-        Page<Product> products = productRepository.findProductsWithFilters(
-            name, category, minPrice, maxPrice, pageable);
+        // Identical concurrent requests (a promotion going live) share one query and one rendering
+        byte[] body = requestCoalescer.execute("product-list", listKey(name, category, minPrice, maxPrice, pageable), () -> {
+            Page<Product> products = queryGuard.execute("product-list", () -> productRepository.findProductsWithFilters(
+                name, category, minPrice, maxPrice, pageable));
+            // Assembled from pre-rendered product JSON: {"products":[...],"currentPage","totalItems","totalPages"}
+            return productJsonCache.toJsonPage(products);
+        });
         
-        Map<String, Object> response = new HashMap<>();
-        response.put("products", products.getContent());
-        response.put("currentPage", products.getNumber());
-        response.put("totalItems", products.getTotalElements());
-        response.put("totalPages", products.getTotalPages());
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body);
+    }
+    
+    // True when the client ranks CBOR or Smile above JSON
+    private static boolean prefersBinary(String accept) {
+        if (accept == null) {
+            return false;
+        }
+        MediaType preferred = null;
+        for (MediaType mediaType : MediaType.parseMediaTypes(accept)) {
+            if (preferred == null || mediaType.getQualityValue() > preferred.getQualityValue()) {
+                preferred = mediaType;
+            }
+        }
+        return preferred != null && (preferred.isCompatibleWith(MediaType.APPLICATION_CBOR)
+                || preferred.isCompatibleWith(SMILE)) && !preferred.isWildcardSubtype();
+    }
+    
+    // Normalized so requests that run the same query share a key: the name match is case-insensitive
+    // and 10 and 10.00 are the same price bound
+    private static String listKey(String name, String category, BigDecimal minPrice, BigDecimal maxPrice,
+                                  Pageable pageable) {
+        return (name == null ? "" : name.toLowerCase(Locale.ROOT)) + '|'
+                + (category == null ? "" : category) + '|'
+                + (minPrice == null ? "" : minPrice.stripTrailingZeros().toPlainString()) + '|'
+                + (maxPrice == null ? "" : maxPrice.stripTrailingZeros().toPlainString()) + '|'
+                + pageable.getPageNumber() + '|' + pageable.getPageSize() + '|' + pageable.getSort();
+    }
+    
+    // Served from the rankings BestSellerService keeps in memory; without a category, every category
+    @GetMapping("/best-sellers")
+    public ResponseEntity<?> getBestSellers(@RequestParam(required = false) String category,
+                                            @RequestParam(defaultValue = "30d") String window,
+                                            @RequestParam(defaultValue = "10") int limit) {
+        BestSellerService.Window range = BestSellerService.Window.parse(window);
+        if (category == null) {
+            return ResponseEntity.ok(bestSellerService.topSellers(range));
+        }
+        return ResponseEntity.ok(bestSellerService.topSellers(category, range, Math.max(1, limit)));
+    }
+    
+    // Several products in one round trip, in the order asked for; inactive and unknown ids are
+    // listed under "missing"
+    @GetMapping("/batch")
+    public ResponseEntity<byte[]> getProductsByIds(@RequestParam List<Long> ids) {
+        List<Long> requested = new ArrayList<>(new LinkedHashSet<>(ids));
+        if (requested.size() > MAX_BATCH_IDS) {
+            throw new QueryGuard.RejectedQueryException("At most " + MAX_BATCH_IDS + " ids per request");
+        }
         
-        return ResponseEntity.ok(response);
+        Map<Long, Product> productsById = new HashMap<>();
+        for (Product product : queryGuard.execute("product-batch", () -> productRepository.findAllById(requested))) {
+            productsById.put(product.getId(), product);
+        }
+        List<Product> found = new ArrayList<>(requested.size());
+        List<Long> missing = new ArrayList<>();
+        for (Long id : requested) {
+            Product product = productsById.get(id);
+            if (product != null && product.getActive()) {
+                found.add(product);
+            } else {
+                missing.add(id);
+            }
+        }
+        
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(productJsonCache.toJsonBatch(found, missing));
+    }
+    
+    // Incremental sync: NDJSON of products changed after the watermark (deactivated ones included,
+    // so consumers can drop them), ending with {"nextWatermark":...,"hasMore":...}
+    @GetMapping("/changes")
+    public ResponseEntity<StreamingResponseBody> getProductChanges(@RequestParam(required = false) String since,
+                                                                   @RequestParam(defaultValue = "1000") int limit) {
+        ProductChangeFeed.Watermark watermark = ProductChangeFeed.Watermark.parse(since);
+        int rows = productChangeFeed.limit(limit);
+        
+        StreamingResponseBody body = out -> productChangeFeed.stream(watermark, rows, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .body(body);
     }
     
     @GetMapping("/{id}")
-    public ResponseEntity<Product> getProductById(@PathVariable Long id) {
+    public ResponseEntity<byte[]> getProductById(@PathVariable Long id) {
         Optional<Product> product = productRepository.findById(id);
         
         if (product.isPresent() && product.get().getActive()) {
-            return ResponseEntity.ok(product.get());
+            return ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(productJsonCache.toJson(product.get()));
         } else {
             return ResponseEntity.notFound().build();
         }
     }
     
+    @GetMapping("/{id}/related")
+    public ResponseEntity<List<Product>> getRelatedProducts(@PathVariable Long id,
+                                                            @RequestParam(defaultValue = "10") int limit) {
+        List<Long> relatedIds = recommendationService.relatedProductIds(id, Math.max(1, Math.min(limit, 50)));
+        
+        // Keep the co-occurrence ranking; findAllById returns rows in arbitrary order
+        Map<Long, Product> productsById = new HashMap<>();
+        for (Product product : productRepository.findAllById(relatedIds)) {
+            productsById.put(product.getId(), product);
+        }
+        List<Product> related = new ArrayList<>();
+        for (Long relatedId : relatedIds) {
+            Product product = productsById.get(relatedId);
+            if (product != null && product.getActive()) {
+                related.add(product);
+            }
+        }
+        return ResponseEntity.ok(related);
+    }
+    
+    @GetMapping("/facets")
+    public ResponseEntity<Map<String, Object>> getFacets(
+            @RequestParam(required = false) String name,
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) BigDecimal minPrice,
+            @RequestParam(required = false) BigDecimal maxPrice,
+            @RequestParam(required = false) BigDecimal[] priceBuckets) {
+        return ResponseEntity.ok(productFacetIndex.facets(name, category, minPrice, maxPrice, priceBuckets));
+    }
+    
     @GetMapping("/categories")
     public ResponseEntity<List<String>> getCategories() {
         List<String> categories = productRepository.findDistinctCategories();
@@ -75,25 +259,50 @@ public class ProductController {
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<Product> createProduct(@Valid @RequestBody Product product) {
         Product savedProduct = productRepository.save(product);
+        productFacetIndex.upsert(savedProduct);
         return ResponseEntity.ok(savedProduct);
     }
     
     @PutMapping("/{id}")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<Product> updateProduct(@PathVariable Long id, @Valid @RequestBody Product productDetails) {
+    public ResponseEntity<?> updateProduct(@PathVariable Long id, @Valid @RequestBody Product productDetails) {
+        // Setting every field is idempotent, so a lost race is simply re-applied on fresh state
+        ResponseEntity<?> response = optimisticRetry.execute("product.update", () -> applyProductUpdate(id, productDetails));
+        if (response.getBody() instanceof Product updatedProduct) {
+            // Set after commit: the response shows the new level, the column keeps the last snapshot
+            updatedProduct.setStockQuantity(productDetails.getStockQuantity());
+            productJsonCache.evict(id);
+            productFacetIndex.upsert(updatedProduct);
+        }
+        return response;
+    }
+    
+    private ResponseEntity<?> applyProductUpdate(Long id, Product productDetails) {
         Optional<Product> optionalProduct = productRepository.findById(id);
         
         if (optionalProduct.isPresent()) {
             Product product = optionalProduct.get();
+            
+            // A client that sends the version it edited gets a conflict instead of overwriting newer changes
+            if (productDetails.getVersion() != null && !productDetails.getVersion().equals(product.getVersion())) {
+                optimisticRetry.recordConflict("product.update");
+                Map<String, Object> response = new HashMap<>();
+                response.put("message", "Product was modified by someone else; reload and retry");
+                response.put("current", product);
+                return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+            }
+            
             product.setName(productDetails.getName());
             product.setDescription(productDetails.getDescription());
             product.setPrice(productDetails.getPrice());
-            product.setStockQuantity(productDetails.getStockQuantity());
             product.setCategory(productDetails.getCategory());
             product.setImageUrl(productDetails.getImageUrl());
             product.setActive(productDetails.getActive());
             
-            Product updatedProduct = productRepository.save(product);
+            Product updatedProduct = productRepository.saveAndFlush(product);
+            // Stock is never written in place; the ledger records the difference to the requested level
+            // in this transaction, so the product change and the adjustment commit or roll back together
+            stockLedger.setStock(id, productDetails.getStockQuantity(), "product-update");
             return ResponseEntity.ok(updatedProduct);
         } else {
             return ResponseEntity.notFound().build();
@@ -109,6 +318,8 @@ public class ProductController {
             Product product = optionalProduct.get();
             product.setActive(false); // Soft delete
             productRepository.save(product);
+            productJsonCache.evict(id);
+            productFacetIndex.remove(id);
             
             Map<String, String> response = new HashMap<>();
             response.put("message", "Product deleted successfully");
@@ -121,7 +332,13 @@ public class ProductController {
     @GetMapping("/low-stock")
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<List<Product>> getLowStockProducts(@RequestParam(defaultValue = "10") Integer threshold) {
-        List<Product> lowStockProducts = productRepository.findByStockQuantityLessThan(threshold);
+        // products.stock_quantity lags by a snapshot interval; the ledger has the exact figure
+        Map<Long, Long> stock = stockLedger.stockBelow(threshold);
+        List<Product> lowStockProducts = new ArrayList<>(productRepository.findAllById(stock.keySet()));
+        lowStockProducts.sort(Comparator.comparing(Product::getId));
+        for (Product product : lowStockProducts) {
+            product.setStockQuantity(Math.toIntExact(stock.get(product.getId())));
+        }
         return ResponseEntity.ok(lowStockProducts);
     }
 }
\ No newline at end of file
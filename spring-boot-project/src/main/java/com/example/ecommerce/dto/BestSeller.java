@@ -0,0 +1,34 @@
+package com.example.ecommerce.dto;
+
+import java.math.BigDecimal;
+
+public class BestSeller {
+    
+    private Long productId;
+    private String name;
+    private BigDecimal price;
+    private long unitsSold;
+    
+    // Constructors
+    public BestSeller() {}
+    
+    public BestSeller(Long productId, String name, BigDecimal price, long unitsSold) {
+        this.productId = productId;
+        this.name = name;
+        this.price = price;
+        this.unitsSold = unitsSold;
+    }
+    
+    // Getters and Setters
+    public Long getProductId() { return productId; }
+    public void setProductId(Long productId) { this.productId = productId; }
+    
+    public String getName() { return name; }
+    public void setName(String name) { this.name = name; }
+    
+    public BigDecimal getPrice() { return price; }
+    public void setPrice(BigDecimal price) { this.price = price; }
+    
+    public long getUnitsSold() { return unitsSold; }
+    public void setUnitsSold(long unitsSold) { this.unitsSold = unitsSold; }
+}
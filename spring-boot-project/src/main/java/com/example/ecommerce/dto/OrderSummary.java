@@ -0,0 +1,48 @@
+package com.example.ecommerce.dto;
+
+import com.example.ecommerce.entity.Money;
+import com.example.ecommerce.entity.Order;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+
+public class OrderSummary {
+    
+    // The order history and admin lists sort by, with id breaking ties between equal dates
+    public static final Comparator<OrderSummary> NEWEST_FIRST = Comparator
+            .comparing(OrderSummary::getOrderDate).thenComparing(OrderSummary::getId).reversed();
+    
+    private Long id;
+    private LocalDateTime orderDate;
+    private Order.OrderStatus status;
+    private Money totalAmount;
+    private long itemCount;
+    
+    // Constructors
+    public OrderSummary() {}
+    
+    // Used by the JPQL constructor expression in OrderRepository
+    public OrderSummary(Long id, LocalDateTime orderDate, Order.OrderStatus status, Money totalAmount, long itemCount) {
+        this.id = id;
+        this.orderDate = orderDate;
+        this.status = status;
+        this.totalAmount = totalAmount;
+        this.itemCount = itemCount;
+    }
+    
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    
+    public LocalDateTime getOrderDate() { return orderDate; }
+    public void setOrderDate(LocalDateTime orderDate) { this.orderDate = orderDate; }
+    
+    public Order.OrderStatus getStatus() { return status; }
+    public void setStatus(Order.OrderStatus status) { this.status = status; }
+    
+    public Money getTotalAmount() { return totalAmount; }
+    public void setTotalAmount(Money totalAmount) { this.totalAmount = totalAmount; }
+    
+    public long getItemCount() { return itemCount; }
+    public void setItemCount(long itemCount) { this.itemCount = itemCount; }
+}
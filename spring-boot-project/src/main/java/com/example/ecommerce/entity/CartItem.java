@@ -1,20 +1,25 @@
 package com.example.ecommerce.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotNull;
+import org.hibernate.annotations.ColumnDefault;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "cart_items")
+@Table(name = "cart_items", indexes = {
+        // Cart lookups by user, and the last change per user for CartPurgeService
+        @Index(name = "idx_cart_items_user_updated", columnList = "user_id, updated_at")
+})
 public class CartItem {
     
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
     
+    @JsonIgnore
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
     private User user;
@@ -28,9 +33,19 @@ public class CartItem {
     @Column(nullable = false)
     private Integer quantity;
     
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private Long version;
+    
     @Column(name = "added_at")
     private LocalDateTime addedAt;
     
+    // Stamped by the database on insert and on every update, so quantity changes count as cart activity
+    @Column(name = "updated_at", insertable = false, updatable = false,
+            columnDefinition = "TIMESTAMP(6) DEFAULT CURRENT_TIMESTAMP(6) ON UPDATE CURRENT_TIMESTAMP(6)")
+    private LocalDateTime updatedAt;
+    
     // Constructors
     public CartItem() {}
     
@@ -48,8 +63,13 @@ public class CartItem {
     }
     
     // Business methods
-    public BigDecimal getSubtotal() {
-        return product.getPrice().multiply(BigDecimal.valueOf(quantity));
+    public Money getSubtotal() {
+        return Money.ofCents(getSubtotalCents());
+    }
+    
+    @JsonIgnore
+    public long getSubtotalCents() {
+        return Math.multiplyExact(product.getPriceCents(), quantity);
     }
     
     public void updateQuantity(Integer newQuantity) {
@@ -69,6 +89,11 @@ public class CartItem {
     public Integer getQuantity() { return quantity; }
     public void setQuantity(Integer quantity) { this.quantity = quantity; }
     
+    public Long getVersion() { return version; }
+    public void setVersion(Long version) { this.version = version; }
+    
     public LocalDateTime getAddedAt() { return addedAt; }
     public void setAddedAt(LocalDateTime addedAt) { this.addedAt = addedAt; }
+    
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
 }
\ No newline at end of file
@@ -0,0 +1,138 @@
+package com.example.ecommerce.entity;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * An amount in cents. Arithmetic is exact long arithmetic that throws on overflow instead of
+ * wrapping; loops that add up many amounts should sum getCents() into a long and wrap the
+ * result once. Stored through MoneyConverter in the existing DECIMAL(10,2) columns and written
+ * to JSON as a plain decimal number with two places, the same as the BigDecimal it replaces,
+ * and to CBOR and Smile as their native decimal.
+ */
+@JsonSerialize(using = Money.Serializer.class)
+@JsonDeserialize(using = Money.Deserializer.class)
+public final class Money implements Comparable<Money> {
+
+    public static final Money ZERO = new Money(0);
+
+    private final long cents;
+
+    private Money(long cents) {
+        this.cents = cents;
+    }
+
+    public static Money ofCents(long cents) {
+        return cents == 0 ? ZERO : new Money(cents);
+    }
+
+    public static Money of(BigDecimal amount) {
+        return ofCents(centsOf(amount));
+    }
+
+    /**
+     * Rounds half-up to whole cents, like the DECIMAL(10,2) columns do on insert.
+     */
+    public static long centsOf(BigDecimal amount) {
+        return amount.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    public long getCents() {
+        return cents;
+    }
+
+    public Money plus(Money other) {
+        return ofCents(Math.addExact(cents, other.cents));
+    }
+
+    public Money minus(Money other) {
+        return ofCents(Math.subtractExact(cents, other.cents));
+    }
+
+    public Money times(int quantity) {
+        return ofCents(Math.multiplyExact(cents, quantity));
+    }
+
+    public boolean isZero() {
+        return cents == 0;
+    }
+
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(cents, 2);
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        return Long.compare(cents, other.cents);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof Money money && money.cents == cents;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(cents);
+    }
+
+    @Override
+    public String toString() {
+        char[] buffer = new char[24];
+        int length = formatInto(cents, buffer);
+        return new String(buffer, buffer.length - length, length);
+    }
+
+    // Writes "-12.05"-style text into the end of buffer and returns its length
+    private static int formatInto(long cents, char[] buffer) {
+        int pos = buffer.length;
+        // Work with a non-positive value so Long.MIN_VALUE has no overflowing negation
+        long rest = cents > 0 ? -cents : cents;
+        for (int digit = 0; digit < 2; digit++) {
+            buffer[--pos] = (char) ('0' - rest % 10);
+            rest /= 10;
+        }
+        buffer[--pos] = '.';
+        do {
+            buffer[--pos] = (char) ('0' - rest % 10);
+            rest /= 10;
+        } while (rest != 0);
+        if (cents < 0) {
+            buffer[--pos] = '-';
+        }
+        return buffer.length - pos;
+    }
+
+    static class Serializer extends JsonSerializer<Money> {
+
+        @Override
+        public void serialize(Money value, JsonGenerator generator, SerializerProvider serializers) throws IOException {
+            // Binary formats (CBOR, Smile) would write the text as a string; they get a native decimal
+            if (!generator.canWriteFormattedNumbers()) {
+                generator.writeNumber(BigDecimal.valueOf(value.cents, 2));
+                return;
+            }
+            char[] buffer = new char[24];
+            int length = formatInto(value.cents, buffer);
+            generator.writeNumber(buffer, buffer.length - length, length);
+        }
+    }
+
+    static class Deserializer extends JsonDeserializer<Money> {
+
+        @Override
+        public Money deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            return Money.of(parser.getDecimalValue());
+        }
+    }
+}
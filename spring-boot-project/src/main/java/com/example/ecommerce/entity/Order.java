@@ -1,27 +1,36 @@
 package com.example.ecommerce.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotNull;
+import org.hibernate.annotations.ColumnDefault;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.Set;
 
 @Entity
-@Table(name = "orders")
+@Table(name = "orders", indexes = {
+        // Serves order history: one user's orders newest first, with id as the keyset tie-breaker
+        @Index(name = "idx_orders_user_date", columnList = "user_id, order_date, id"),
+        // Serves the admin list of orders in one status, newest first
+        @Index(name = "idx_orders_status_date", columnList = "status, order_date, id"),
+        // Serves OrderFeed's scan for recently cancelled orders
+        @Index(name = "idx_orders_status_updated", columnList = "status, updated_at")
+})
 public class Order {
     
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
     
+    @JsonIgnore
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
     private User user;
     
     @NotNull(message = "Total amount is required")
     @Column(nullable = false, precision = 10, scale = 2)
-    private BigDecimal totalAmount;
+    private Money totalAmount;
     
     @Enumerated(EnumType.STRING)
     @Column(nullable = false)
@@ -30,6 +39,11 @@ public class Order {
     @Column(name = "shipping_address", columnDefinition = "TEXT")
     private String shippingAddress;
     
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private Long version;
+    
     @Column(name = "order_date")
     private LocalDateTime orderDate;
     
@@ -39,6 +53,11 @@ public class Order {
     @Column(name = "delivered_date")
     private LocalDateTime deliveredDate;
     
+    // Stamped by the database on every update, including ones made outside this application
+    @Column(name = "updated_at", insertable = false, updatable = false,
+            columnDefinition = "TIMESTAMP(6) DEFAULT CURRENT_TIMESTAMP(6) ON UPDATE CURRENT_TIMESTAMP(6)")
+    private LocalDateTime updatedAt;
+    
     @OneToMany(mappedBy = "order", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private Set<OrderItem> orderItems;
     
@@ -49,7 +68,7 @@ public class Order {
     // Constructors
     public Order() {}
     
-    public Order(User user, BigDecimal totalAmount, String shippingAddress) {
+    public Order(User user, Money totalAmount, String shippingAddress) {
         this.user = user;
         this.totalAmount = totalAmount;
         this.shippingAddress = shippingAddress;
@@ -94,8 +113,8 @@ public class Order {
     public User getUser() { return user; }
     public void setUser(User user) { this.user = user; }
     
-    public BigDecimal getTotalAmount() { return totalAmount; }
-    public void setTotalAmount(BigDecimal totalAmount) { this.totalAmount = totalAmount; }
+    public Money getTotalAmount() { return totalAmount; }
+    public void setTotalAmount(Money totalAmount) { this.totalAmount = totalAmount; }
     
     public OrderStatus getStatus() { return status; }
     public void setStatus(OrderStatus status) { this.status = status; }
@@ -103,6 +122,9 @@ public class Order {
     public String getShippingAddress() { return shippingAddress; }
     public void setShippingAddress(String shippingAddress) { this.shippingAddress = shippingAddress; }
     
+    public Long getVersion() { return version; }
+    public void setVersion(Long version) { this.version = version; }
+    
     public LocalDateTime getOrderDate() { return orderDate; }
     public void setOrderDate(LocalDateTime orderDate) { this.orderDate = orderDate; }
     
@@ -112,6 +134,8 @@ public class Order {
     public LocalDateTime getDeliveredDate() { return deliveredDate; }
     public void setDeliveredDate(LocalDateTime deliveredDate) { this.deliveredDate = deliveredDate; }
     
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    
     public Set<OrderItem> getOrderItems() { return orderItems; }
     public void setOrderItems(Set<OrderItem> orderItems) { this.orderItems = orderItems; }
 }
\ No newline at end of file
@@ -1,17 +1,29 @@
 package com.example.ecommerce.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.DecimalMin;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.Set;
 
 @Entity
-@Table(name = "products")
+@Table(name = "products", indexes = {
+        // Every sort key the product list accepts is indexed; see ProductController.SORTABLE
+        @Index(name = "idx_products_name", columnList = "name"),
+        @Index(name = "idx_products_price", columnList = "price"),
+        @Index(name = "idx_products_created_at", columnList = "created_at"),
+        @Index(name = "idx_products_category_price", columnList = "category, price"),
+        // Keyset order of the change feed, see ProductChangeFeed
+        @Index(name = "idx_products_updated_at", columnList = "updated_at, id")
+})
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 public class Product {
     
     @Id
@@ -32,7 +44,8 @@ public class Product {
     
     @NotNull(message = "Stock quantity is required")
     @Min(value = 0, message = "Stock quantity cannot be negative")
-    @Column(nullable = false)
+    // Opening balance on insert, afterwards the last StockLedger snapshot; changes go through the ledger
+    @Column(nullable = false, updatable = false)
     private Integer stockQuantity;
     
     @NotBlank(message = "Category is required")
@@ -44,25 +57,37 @@ public class Product {
     @Column(nullable = false)
     private Boolean active = true;
     
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private Long version;
+    
     @Column(name = "created_at")
     private LocalDateTime createdAt;
     
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
     
+    @JsonIgnore
     @OneToMany(mappedBy = "product", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private Set<OrderItem> orderItems;
     
+    @JsonIgnore
     @OneToMany(mappedBy = "product", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private Set<CartItem> cartItems;
     
+    // price in cents for cart and order arithmetic, kept in step with price
+    @JsonIgnore
+    @Transient
+    private long priceCents;
+    
     // Constructors
     public Product() {}
     
     public Product(String name, String description, BigDecimal price, Integer stockQuantity, String category) {
         this.name = name;
         this.description = description;
-        this.price = price;
+        setPrice(price);
         this.stockQuantity = stockQuantity;
         this.category = category;
         this.createdAt = LocalDateTime.now();
@@ -81,25 +106,9 @@ public class Product {
         updatedAt = LocalDateTime.now();
     }
     
-    // Business methods
-    public boolean isInStock() {
-        return stockQuantity > 0;
-    }
-    
-    public boolean hasStock(int quantity) {
-        return stockQuantity >= quantity;
-    }
-    
-    public void reduceStock(int quantity) {
-        if (hasStock(quantity)) {
-            this.stockQuantity -= quantity;
-        } else {
-            throw new IllegalArgumentException("Insufficient stock");
-        }
-    }
-    
-    public void addStock(int quantity) {
-        this.stockQuantity += quantity;
+    @PostLoad
+    protected void onLoad() {
+        priceCents = price == null ? 0 : Money.centsOf(price);
     }
     
     // Getters and Setters
@@ -113,7 +122,13 @@ public class Product {
     public void setDescription(String description) { this.description = description; }
     
     public BigDecimal getPrice() { return price; }
-    public void setPrice(BigDecimal price) { this.price = price; }
+    public void setPrice(BigDecimal price) {
+        this.price = price;
+        this.priceCents = price == null ? 0 : Money.centsOf(price);
+    }
+    
+    @JsonIgnore
+    public long getPriceCents() { return priceCents; }
     
     public Integer getStockQuantity() { return stockQuantity; }
     public void setStockQuantity(Integer stockQuantity) { this.stockQuantity = stockQuantity; }
@@ -127,6 +142,9 @@ public class Product {
     public Boolean getActive() { return active; }
     public void setActive(Boolean active) { this.active = active; }
     
+    public Long getVersion() { return version; }
+    public void setVersion(Long version) { this.version = version; }
+    
     public LocalDateTime getCreatedAt() { return createdAt; }
     public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
     
@@ -0,0 +1,70 @@
+package com.example.ecommerce.entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * One change to a product's stock. Rows are only ever inserted; current stock is the product's
+ * last StockSnapshot plus the movements after it (see StockLedger).
+ */
+@Entity
+@Table(name = "stock_movements", indexes = {
+        @Index(name = "idx_stock_movements_product", columnList = "product_id, id")
+})
+public class StockMovement {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "product_id", nullable = false)
+    private Long productId;
+    
+    @Column(nullable = false)
+    private Integer delta;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private MovementType type;
+    
+    // Order id, admin, batch name... whatever lets someone reconcile the movement later
+    private String reference;
+    
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+    
+    // Constructors
+    public StockMovement() {}
+    
+    public StockMovement(Long productId, Integer delta, MovementType type, String reference) {
+        this.productId = productId;
+        this.delta = delta;
+        this.type = type;
+        this.reference = reference;
+        this.createdAt = LocalDateTime.now();
+    }
+    
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    
+    public Long getProductId() { return productId; }
+    public void setProductId(Long productId) { this.productId = productId; }
+    
+    public Integer getDelta() { return delta; }
+    public void setDelta(Integer delta) { this.delta = delta; }
+    
+    public MovementType getType() { return type; }
+    public void setType(MovementType type) { this.type = type; }
+    
+    public String getReference() { return reference; }
+    public void setReference(String reference) { this.reference = reference; }
+    
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+    
+    public enum MovementType {
+        RESERVATION, SALE, RESTOCK, ADJUSTMENT
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.ecommerce.entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * A product's stock balance with every movement up to and including movementId folded in.
+ */
+@Entity
+@Table(name = "stock_snapshots")
+public class StockSnapshot {
+    
+    @Id
+    @Column(name = "product_id")
+    private Long productId;
+    
+    @Column(nullable = false)
+    private Integer balance;
+    
+    @Column(name = "movement_id", nullable = false)
+    private Long movementId;
+    
+    @Column(name = "taken_at", nullable = false)
+    private LocalDateTime takenAt;
+    
+    // Constructors
+    public StockSnapshot() {}
+    
+    // Getters and Setters
+    public Long getProductId() { return productId; }
+    public void setProductId(Long productId) { this.productId = productId; }
+    
+    public Integer getBalance() { return balance; }
+    public void setBalance(Integer balance) { this.balance = balance; }
+    
+    public Long getMovementId() { return movementId; }
+    public void setMovementId(Long movementId) { this.movementId = movementId; }
+    
+    public LocalDateTime getTakenAt() { return takenAt; }
+    public void setTakenAt(LocalDateTime takenAt) { this.takenAt = takenAt; }
+}
@@ -46,6 +46,10 @@ public class User implements UserDetails {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
     
+    // Tokens issued before this instant are rejected ("sign out everywhere")
+    @Column(name = "tokens_valid_after")
+    private LocalDateTime tokensValidAfter;
+    
     @OneToMany(mappedBy = "user", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private Set<Order> orders;
     
@@ -126,6 +130,9 @@ public class User implements UserDetails {
     public Role getRole() { return role; }
     public void setRole(Role role) { this.role = role; }
     
+    public LocalDateTime getTokensValidAfter() { return tokensValidAfter; }
+    public void setTokensValidAfter(LocalDateTime tokensValidAfter) { this.tokensValidAfter = tokensValidAfter; }
+    
     public LocalDateTime getCreatedAt() { return createdAt; }
     public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
     
@@ -0,0 +1,84 @@
+package com.example.ecommerce.jfr;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+
+/**
+ * Always-on flight recording (the jfr profile): the JDK "default" settings plus the application
+ * events above their thresholds, kept in a bounded on-disk ring buffer. Dump it after a latency
+ * spike with jcmd &lt;pid&gt; JFR.dump name=ecommerce-continuous filename=spike.jfr; it is also
+ * written to app.jfr.continuous.dump-file on shutdown.
+ */
+@Component
+@ConditionalOnProperty(name = "app.jfr.continuous.enabled", havingValue = "true")
+public class ContinuousRecording {
+
+    private static final Logger logger = LoggerFactory.getLogger(ContinuousRecording.class);
+
+    public static final String NAME = "ecommerce-continuous";
+
+    @Value("${app.jfr.continuous.settings:default}")
+    private String settings;
+
+    @Value("${app.jfr.continuous.max-age:6h}")
+    private Duration maxAge;
+
+    @Value("${app.jfr.continuous.max-size-mb:250}")
+    private long maxSizeMb;
+
+    @Value("${app.jfr.continuous.dump-file:ecommerce-continuous.jfr}")
+    private String dumpFile;
+
+    @Value("${app.jfr.continuous.handler-threshold-ms:20}")
+    private long handlerThresholdMs;
+
+    @Value("${app.jfr.continuous.repository-threshold-ms:10}")
+    private long repositoryThresholdMs;
+
+    @Value("${app.jfr.continuous.auth-threshold-ms:5}")
+    private long authThresholdMs;
+
+    private Recording recording;
+
+    @PostConstruct
+    public void start() throws IOException, ParseException {
+        recording = new Recording(Configuration.getConfiguration(settings));
+        recording.setName(NAME);
+        recording.setToDisk(true);
+        recording.setMaxAge(maxAge);
+        recording.setMaxSize(maxSizeMb * 1024 * 1024);
+        recording.setDestination(Path.of(dumpFile));
+        recording.setDumpOnExit(true);
+
+        recording.enable(HandlerEvent.class).withThreshold(Duration.ofMillis(handlerThresholdMs));
+        recording.enable(RepositoryEvent.class).withThreshold(Duration.ofMillis(repositoryThresholdMs));
+        recording.enable(JwtValidationEvent.class).withThreshold(Duration.ofMillis(authThresholdMs));
+        recording.enable(UserLoadEvent.class).withThreshold(Duration.ofMillis(authThresholdMs));
+        // BCrypt is slow by design; every hash is worth seeing
+        recording.enable(PasswordEncoderEvent.class).withoutThreshold();
+
+        recording.start();
+        logger.info("Continuous flight recording '{}' started ({} settings, last {} / {} MB)",
+                NAME, settings, maxAge, maxSizeMb);
+    }
+
+    @PreDestroy
+    public void stop() {
+        // Stopping writes the buffered window to the destination
+        recording.stop();
+        logger.info("Continuous flight recording written to {}", Path.of(dumpFile).toAbsolutePath());
+        recording.close();
+    }
+}
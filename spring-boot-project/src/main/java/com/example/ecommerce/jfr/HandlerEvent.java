@@ -0,0 +1,29 @@
+package com.example.ecommerce.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.example.ecommerce.Handler")
+@Label("Controller Handler")
+@Category({"E-commerce", "Web"})
+@Description("A controller handling one request, from handler lookup to the response being complete")
+@StackTrace(false)
+public class HandlerEvent extends Event {
+
+    @Label("HTTP Method")
+    public String method;
+
+    @Label("Endpoint")
+    @Description("Matched URI pattern, e.g. /api/products/{id}")
+    public String endpoint;
+
+    @Label("Handler")
+    public String handler;
+
+    @Label("Status")
+    public int status;
+}
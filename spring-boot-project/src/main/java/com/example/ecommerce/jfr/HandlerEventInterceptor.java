@@ -0,0 +1,50 @@
+package com.example.ecommerce.jfr;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+/**
+ * Emits a HandlerEvent per request. For async handlers (streamed responses) the event spans
+ * both dispatches and is committed once the response is complete.
+ */
+public class HandlerEventInterceptor implements HandlerInterceptor {
+
+    private static final String EVENT_ATTRIBUTE = HandlerEventInterceptor.class.getName() + ".event";
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (request.getAttribute(EVENT_ATTRIBUTE) == null) {
+            HandlerEvent event = new HandlerEvent();
+            if (event.isEnabled()) {
+                event.begin();
+                request.setAttribute(EVENT_ATTRIBUTE, event);
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        HandlerEvent event = (HandlerEvent) request.getAttribute(EVENT_ATTRIBUTE);
+        if (event == null) {
+            return;
+        }
+        request.removeAttribute(EVENT_ATTRIBUTE);
+        event.end();
+        if (event.shouldCommit()) {
+            event.method = request.getMethod();
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            event.endpoint = pattern != null ? pattern.toString() : request.getRequestURI();
+            if (handler instanceof HandlerMethod handlerMethod) {
+                event.handler = handlerMethod.getBeanType().getSimpleName() + "." + handlerMethod.getMethod().getName();
+            }
+            // An exception still here was not handled by GlobalExceptionHandler
+            event.status = ex != null && response.getStatus() < 400 ? 500 : response.getStatus();
+            event.commit();
+        }
+    }
+}
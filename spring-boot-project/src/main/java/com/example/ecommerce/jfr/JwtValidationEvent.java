@@ -0,0 +1,22 @@
+package com.example.ecommerce.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.example.ecommerce.JwtValidation")
+@Label("JWT Validation")
+@Category({"E-commerce", "Security"})
+@Description("Signature and expiry check of a bearer token plus the revocation lookup")
+@StackTrace(false)
+public class JwtValidationEvent extends Event {
+
+    @Label("Valid")
+    public boolean valid;
+
+    @Label("Revoked")
+    public boolean revoked;
+}
@@ -0,0 +1,22 @@
+package com.example.ecommerce.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.example.ecommerce.PasswordEncoder")
+@Label("Password Hash")
+@Category({"E-commerce", "Security"})
+@Description("A BCrypt encode or match")
+@StackTrace(false)
+public class PasswordEncoderEvent extends Event {
+
+    @Label("Operation")
+    public String operation;
+
+    @Label("Matched")
+    public boolean matched;
+}
@@ -0,0 +1,27 @@
+package com.example.ecommerce.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.example.ecommerce.Repository")
+@Label("Repository Call")
+@Category({"E-commerce", "Data"})
+@Description("A Spring Data repository method call")
+@StackTrace(false)
+public class RepositoryEvent extends Event {
+
+    @Label("Method")
+    @Description("Repository and method, e.g. ProductRepository.findById")
+    public String method;
+
+    @Label("Rows")
+    @Description("Entities returned, or -1 when not known (counts, streams, failures)")
+    public int rows;
+
+    @Label("Exception")
+    public String exception;
+}
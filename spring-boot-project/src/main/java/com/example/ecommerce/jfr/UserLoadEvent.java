@@ -0,0 +1,19 @@
+package com.example.ecommerce.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.example.ecommerce.UserLoad")
+@Label("User Load")
+@Category({"E-commerce", "Security"})
+@Description("Loading the user of an authenticated request")
+@StackTrace(false)
+public class UserLoadEvent extends Event {
+
+    @Label("Found")
+    public boolean found;
+}
@@ -20,9 +20,6 @@ public interface CartItemRepository extends JpaRepository<CartItem, Long> {
     
     void deleteByUser(User user);
     
-    @Query("SELECT SUM(ci.quantity * ci.product.price) FROM CartItem ci WHERE ci.user = :user")
-    Double getCartTotalByUser(@Param("user") User user);
-    
     @Query("SELECT COUNT(ci) FROM CartItem ci WHERE ci.user = :user")
     Long getCartItemCountByUser(@Param("user") User user);
 }
\ No newline at end of file
@@ -1,5 +1,7 @@
 package com.example.ecommerce.repository;
 
+import com.example.ecommerce.dto.OrderSummary;
+import com.example.ecommerce.entity.Money;
 import com.example.ecommerce.entity.Order;
 import com.example.ecommerce.entity.User;
 import org.springframework.data.domain.Page;
@@ -9,8 +11,10 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface OrderRepository extends JpaRepository<Order, Long> {
@@ -30,6 +34,37 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
     @Query("SELECT COUNT(o) FROM Order o WHERE o.user = :user")
     Long countOrdersByUser(@Param("user") User user);
     
+    // Spring Data would read a Money return type as a projection, so the sum comes back as a decimal
     @Query("SELECT SUM(o.totalAmount) FROM Order o WHERE o.user = :user AND o.status != 'CANCELLED'")
-    Double getTotalSpentByUser(@Param("user") User user);
-}
\ No newline at end of file
+    BigDecimal sumTotalSpentByUser(@Param("user") User user);
+    
+    default Money getTotalSpentByUser(User user) {
+        BigDecimal total = sumTotalSpentByUser(user);
+        return total == null ? Money.ZERO : Money.of(total);
+    }
+    
+    // Order history, newest first. Keyset pages continue strictly after the last (orderDate, id)
+    // seen, so deep pages cost the same as the first; limit comes from the Pageable.
+    @Query("SELECT new com.example.ecommerce.dto.OrderSummary(o.id, o.orderDate, o.status, o.totalAmount, COUNT(i)) " +
+           "FROM Order o LEFT JOIN o.orderItems i WHERE o.user = :user " +
+           "GROUP BY o.id, o.orderDate, o.status, o.totalAmount ORDER BY o.orderDate DESC, o.id DESC")
+    List<OrderSummary> findOrderSummaries(@Param("user") User user, Pageable pageable);
+    
+    @Query("SELECT new com.example.ecommerce.dto.OrderSummary(o.id, o.orderDate, o.status, o.totalAmount, COUNT(i)) " +
+           "FROM Order o LEFT JOIN o.orderItems i WHERE o.user = :user " +
+           "AND (o.orderDate < :orderDate OR (o.orderDate = :orderDate AND o.id < :id)) " +
+           "GROUP BY o.id, o.orderDate, o.status, o.totalAmount ORDER BY o.orderDate DESC, o.id DESC")
+    List<OrderSummary> findOrderSummariesBefore(@Param("user") User user, @Param("orderDate") LocalDateTime orderDate,
+                                                @Param("id") Long id, Pageable pageable);
+    
+    @Query("SELECT new com.example.ecommerce.dto.OrderSummary(o.id, o.orderDate, o.status, o.totalAmount, COUNT(i)) " +
+           "FROM Order o LEFT JOIN o.orderItems i WHERE o.status = :status " +
+           "GROUP BY o.id, o.orderDate, o.status, o.totalAmount ORDER BY o.orderDate DESC, o.id DESC")
+    List<OrderSummary> findOrderSummariesByStatus(@Param("status") Order.OrderStatus status, Pageable pageable);
+    
+    long countByStatus(Order.OrderStatus status);
+    
+    @Query("SELECT DISTINCT o FROM Order o LEFT JOIN FETCH o.orderItems i LEFT JOIN FETCH i.product " +
+           "WHERE o.id = :id AND o.user = :user")
+    Optional<Order> findDetailByIdAndUser(@Param("id") Long id, @Param("user") User user);
+}
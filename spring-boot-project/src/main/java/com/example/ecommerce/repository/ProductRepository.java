@@ -1,10 +1,13 @@
 package com.example.ecommerce.repository;
 
 import com.example.ecommerce.entity.Product;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
@@ -22,6 +25,8 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
     
     Page<Product> findByCategoryAndActiveTrue(String category, Pageable pageable);
     
+    // Fetch a whole page (at most app.query-guard.max-page-size rows) in one round trip
+    @QueryHints(value = @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "100"), forCounting = false)
     @Query("SELECT p FROM Product p WHERE p.active = true AND " +
            "(:name IS NULL OR LOWER(p.name) LIKE LOWER(CONCAT('%', :name, '%'))) AND " +
            "(:category IS NULL OR p.category = :category) AND " +
@@ -2,8 +2,14 @@ package com.example.ecommerce.repository;
 
 import com.example.ecommerce.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -12,4 +18,13 @@ public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByEmail(String email);
     
     boolean existsByEmail(String email);
+    
+    @Modifying
+    @Transactional
+    @Query("UPDATE User u SET u.tokensValidAfter = :validAfter WHERE u.email = :email")
+    int updateTokensValidAfter(@Param("email") String email, @Param("validAfter") LocalDateTime validAfter);
+    
+    // email, tokensValidAfter pairs for watermarks set after the given instant
+    @Query("SELECT u.email, u.tokensValidAfter FROM User u WHERE u.tokensValidAfter > :since")
+    List<Object[]> findTokenWatermarksSince(@Param("since") LocalDateTime since);
 }
\ No newline at end of file
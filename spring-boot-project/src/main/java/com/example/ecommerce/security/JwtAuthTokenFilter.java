@@ -1,6 +1,10 @@
 package com.example.ecommerce.security;
 
+import com.example.ecommerce.jfr.JwtValidationEvent;
+import com.example.ecommerce.jfr.UserLoadEvent;
+import com.example.ecommerce.service.TokenRevocationService;
 import com.example.ecommerce.service.UserDetailsServiceImpl;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -25,6 +29,9 @@ public class JwtAuthTokenFilter extends OncePerRequestFilter {
     @Autowired
     private UserDetailsServiceImpl userDetailsService;
     
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+    
     private static final Logger logger = LoggerFactory.getLogger(JwtAuthTokenFilter.class);
     
     @Override
@@ -32,10 +39,11 @@ public class JwtAuthTokenFilter extends OncePerRequestFilter {
                                     FilterChain filterChain) throws ServletException, IOException {
         try {
             String jwt = parseJwt(request);
-            if (jwt != null && jwtUtils.validateJwtToken(jwt)) {
-                String username = jwtUtils.getUserNameFromJwtToken(jwt);
+            Claims claims = jwt != null ? validate(jwt) : null;
+            if (claims != null) {
+                String username = claims.getSubject();
                 
-                UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+                UserDetails userDetails = loadUser(username);
                 UsernamePasswordAuthenticationToken authentication = 
                     new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
                 authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
@@ -49,6 +57,36 @@ public class JwtAuthTokenFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
     
+    // Null unless the token verifies and has not been revoked
+    private Claims validate(String jwt) {
+        JwtValidationEvent event = new JwtValidationEvent();
+        event.begin();
+        Claims claims = jwtUtils.parseJwtClaims(jwt);
+        boolean revoked = claims != null && tokenRevocationService.isRevoked(claims);
+        event.end();
+        if (event.shouldCommit()) {
+            event.valid = claims != null;
+            event.revoked = revoked;
+            event.commit();
+        }
+        return revoked ? null : claims;
+    }
+    
+    private UserDetails loadUser(String username) {
+        UserLoadEvent event = new UserLoadEvent();
+        event.begin();
+        try {
+            UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+            event.found = true;
+            return userDetails;
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.commit();
+            }
+        }
+    }
+    
     private String parseJwt(HttpServletRequest request) {
         String headerAuth = request.getHeader("Authorization");
         
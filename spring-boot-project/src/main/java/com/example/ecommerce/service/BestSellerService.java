@@ -0,0 +1,274 @@
+package com.example.ecommerce.service;
+
+import com.example.ecommerce.dto.BestSeller;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+
+/**
+ * Per-category best sellers by units sold, over all orders ever placed and over the last 7 and 30
+ * days. Units are counted per product (and per day for the last 30 days) from OrderFeed, which
+ * reports new orders and counted orders cancelled since, so cancellations are subtracted. The
+ * first count, built off the startup path, also reads the delivered orders in archived_orders, so
+ * archiving an order leaves the all-time counts as they are, before and after a restart. Each
+ * refresh then keeps the top-n of every category with a bounded heap and publishes the lists, so
+ * reads are map lookups.
+ */
+@Service
+public class BestSellerService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BestSellerService.class);
+
+    private static final String PRODUCT_COLUMNS = "SELECT id, name, price, category, active FROM products ";
+
+    // Lowest units first, so the heap head is the entry to drop; ties keep the lower product id
+    private static final Comparator<long[]> WEAKEST_FIRST =
+            Comparator.<long[]>comparingLong(entry -> entry[1]).thenComparing(entry -> -entry[0]);
+
+    public enum Window {
+        DAYS_7("7d", 7), DAYS_30("30d", 30), ALL("all", 0);
+
+        private final String key;
+        private final int days;
+
+        Window(String key, int days) {
+            this.key = key;
+            this.days = days;
+        }
+
+        public static Window parse(String key) {
+            for (Window window : values()) {
+                if (window.key.equalsIgnoreCase(key)) {
+                    return window;
+                }
+            }
+            throw new QueryGuard.RejectedQueryException("window must be one of 7d, 30d, all");
+        }
+    }
+
+    // Catalog datasource
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private OrderFeed orderFeed;
+
+    @Autowired
+    private OrderArchiveService orderArchiveService;
+
+    @Value("${app.best-sellers.top-n:20}")
+    private int topN;
+
+    private final Map<Long, Long> totalUnits = new HashMap<>();
+    private final TreeMap<LocalDate, Map<Long, Long>> dailyUnits = new TreeMap<>();
+    private final Map<Long, ProductInfo> products = new HashMap<>();
+    private OrderFeed.Cursor cursor;
+    private LocalDateTime catalogSyncedAt;
+    private LocalDate rankedOn;
+
+    private volatile Map<Window, Map<String, List<BestSeller>>> rankings = Map.of();
+
+    // The first count reads every order; lists are empty until it is in
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildInBackground() {
+        Thread thread = new Thread(this::rebuild, "best-sellers-rebuild");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public synchronized void rebuild() {
+        long started = System.currentTimeMillis();
+        totalUnits.clear();
+        dailyUnits.clear();
+        products.clear();
+        cursor = orderFeed.cursor();
+        catalogSyncedAt = null;
+        rankedOn = null;
+        // Archived before now: read here. Archived later: still in orders when the first poll reads it,
+        // short of a batch committing in the moment between the two reads
+        LocalDate today = LocalDate.now();
+        int archived = orderArchiveService.forEachDeliveredLine(LocalDateTime.now(), (orderDate, productId, quantity) ->
+                count(today, orderDate, productId, quantity));
+        refresh();
+        logger.info("Best sellers ranked for {} products ({} archived orders) in {} ms",
+                totalUnits.size(), archived, System.currentTimeMillis() - started);
+    }
+
+    @Scheduled(initialDelayString = "${app.best-sellers.refresh-interval-ms:30000}",
+            fixedDelayString = "${app.best-sellers.refresh-interval-ms:30000}")
+    public synchronized void refresh() {
+        if (cursor == null) {
+            return;
+        }
+        LocalDate today = LocalDate.now();
+        int sold = applyNewOrders(today);
+        boolean catalogChanged = syncCatalog();
+        if (sold > 0 || catalogChanged || !today.equals(rankedOn)) {
+            rank(today);
+        }
+    }
+
+    // Null category: every category's list
+    public Map<String, List<BestSeller>> topSellers(Window window) {
+        return rankings.getOrDefault(window, Map.of());
+    }
+
+    public List<BestSeller> topSellers(String category, Window window, int limit) {
+        List<BestSeller> ranking = topSellers(window).getOrDefault(category, List.of());
+        return ranking.size() > limit ? ranking.subList(0, limit) : ranking;
+    }
+
+    // Returns the number of orders counted or subtracted
+    private int applyNewOrders(LocalDate today) {
+        return orderFeed.poll(cursor, (order, sign) -> {
+            for (int line = 0; line < order.size(); line++) {
+                count(today, order.getOrderDate(), order.getProductId(line), (long) sign * order.getQuantity(line));
+            }
+        });
+    }
+
+    private void count(LocalDate today, LocalDateTime orderDate, long productId, long quantity) {
+        totalUnits.merge(productId, quantity, BestSellerService::sumOrNull);
+        LocalDate day = orderDate != null ? orderDate.toLocalDate() : null;
+        if (day != null && !day.isBefore(today.minusDays(Window.DAYS_30.days - 1))) {
+            dailyUnits.computeIfAbsent(day, d -> new HashMap<>()).merge(productId, quantity, BestSellerService::sumOrNull);
+        }
+    }
+
+    // Products whose units drop to zero are removed, so a fully cancelled product is not ranked
+    private static Long sumOrNull(Long units, Long delta) {
+        long sum = units + delta;
+        return sum == 0 ? null : sum;
+    }
+
+    // Name, price, category and active flag of the counted products; returns true if any changed
+    private boolean syncCatalog() {
+        LocalDateTime syncStarted = LocalDateTime.now();
+        boolean changed = false;
+
+        List<Long> missing = new ArrayList<>();
+        for (Long productId : totalUnits.keySet()) {
+            if (!products.containsKey(productId)) {
+                missing.add(productId);
+            }
+        }
+        for (int from = 0; from < missing.size(); from += 1000) {
+            List<Long> chunk = missing.subList(from, Math.min(from + 1000, missing.size()));
+            jdbcTemplate.query(PRODUCT_COLUMNS + "WHERE id IN (" + String.join(", ", Collections.nCopies(chunk.size(), "?")) + ")",
+                    rs -> { products.put(rs.getLong("id"), ProductInfo.of(rs)); }, chunk.toArray());
+            changed = true;
+        }
+
+        if (catalogSyncedAt != null) {
+            // updated_at is stamped before commit; overlapping the previous sync catches late commits
+            boolean[] updated = {false};
+            jdbcTemplate.query(PRODUCT_COLUMNS + "WHERE updated_at > ?", rs -> {
+                long id = rs.getLong("id");
+                if (products.containsKey(id)) {
+                    ProductInfo current = ProductInfo.of(rs);
+                    updated[0] |= current.differsFrom(products.put(id, current));
+                }
+            }, Timestamp.valueOf(catalogSyncedAt.minusMinutes(1)));
+            changed |= updated[0];
+        }
+        catalogSyncedAt = syncStarted;
+        return changed;
+    }
+
+    private void rank(LocalDate today) {
+        dailyUnits.headMap(today.minusDays(Window.DAYS_30.days - 1)).clear();
+
+        Map<Window, Map<String, List<BestSeller>>> ranked = new EnumMap<>(Window.class);
+        for (Window window : Window.values()) {
+            Map<Long, Long> units = totalUnits;
+            if (window.days > 0) {
+                units = new HashMap<>();
+                for (Map<Long, Long> day : dailyUnits.tailMap(today.minusDays(window.days - 1)).values()) {
+                    for (Map.Entry<Long, Long> sold : day.entrySet()) {
+                        units.merge(sold.getKey(), sold.getValue(), Long::sum);
+                    }
+                }
+            }
+            ranked.put(window, topByCategory(units));
+        }
+        rankings = ranked;
+        rankedOn = today;
+    }
+
+    private Map<String, List<BestSeller>> topByCategory(Map<Long, Long> units) {
+        Map<String, PriorityQueue<long[]>> heaps = new HashMap<>();
+        units.forEach((productId, sold) -> {
+            ProductInfo product = products.get(productId);
+            if (product == null || !product.active || sold <= 0) {
+                return;
+            }
+            PriorityQueue<long[]> heap = heaps.computeIfAbsent(product.category, c -> new PriorityQueue<>(WEAKEST_FIRST));
+            long[] entry = {productId, sold};
+            if (heap.size() < topN) {
+                heap.add(entry);
+            } else if (WEAKEST_FIRST.compare(entry, heap.peek()) > 0) {
+                heap.poll();
+                heap.add(entry);
+            }
+        });
+
+        Map<String, List<BestSeller>> lists = new HashMap<>(heaps.size() * 2);
+        heaps.forEach((category, heap) -> {
+            List<long[]> entries = new ArrayList<>(heap);
+            entries.sort(WEAKEST_FIRST.reversed());
+            List<BestSeller> list = new ArrayList<>(entries.size());
+            for (long[] entry : entries) {
+                ProductInfo product = products.get(entry[0]);
+                list.add(new BestSeller(entry[0], product.name, product.price, entry[1]));
+            }
+            lists.put(category, Collections.unmodifiableList(list));
+        });
+        return Collections.unmodifiableMap(lists);
+    }
+
+    private static class ProductInfo {
+        private final String name;
+        private final BigDecimal price;
+        private final String category;
+        private final boolean active;
+
+        private ProductInfo(String name, BigDecimal price, String category, boolean active) {
+            this.name = name;
+            this.price = price;
+            this.category = category;
+            this.active = active;
+        }
+
+        static ProductInfo of(ResultSet rs) throws SQLException {
+            return new ProductInfo(rs.getString("name"), rs.getBigDecimal("price"), rs.getString("category"),
+                    rs.getBoolean("active"));
+        }
+
+        boolean differsFrom(ProductInfo other) {
+            return other == null || !name.equals(other.name) || price.compareTo(other.price) != 0
+                    || !category.equals(other.category) || active != other.active;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.ecommerce.service;
+
+import com.example.ecommerce.config.ShardRouter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deletes abandoned carts: every cart_items row of a user whose cart last changed (an item added,
+ * or a quantity updated) more than app.cart-purge.older-than-days ago. Users are walked in
+ * user_id order over idx_cart_items_user_updated, a small batch per transaction with a pause in
+ * between, so live cart traffic never waits long behind the purge. Carts the cart store is still
+ * holding for a session are skipped.
+ */
+@Service
+public class CartPurgeService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CartPurgeService.class);
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Autowired
+    private CartStore cartStore;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.cart-purge.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.cart-purge.older-than-days:30}")
+    private int olderThanDays;
+
+    @Value("${app.cart-purge.batch-size:200}")
+    private int batchSize;
+
+    @Value("${app.cart-purge.pause-ms:100}")
+    private long pauseMs;
+
+    @Value("${app.cart-purge.max-batches-per-run:50}")
+    private int maxBatchesPerRun;
+
+    @Scheduled(initialDelayString = "${app.cart-purge.interval-ms:3600000}",
+            fixedDelayString = "${app.cart-purge.interval-ms:3600000}")
+    public void purgeAbandonedCarts() throws InterruptedException {
+        if (!enabled) {
+            return;
+        }
+        long started = System.currentTimeMillis();
+        Timestamp cutoff = Timestamp.valueOf(LocalDateTime.now().minusDays(olderThanDays));
+
+        long carts = 0;
+        long rows = 0;
+        int batches = 0;
+        for (ShardRouter.Shard shard : shardRouter.all()) {
+            int shardBatches = 0;
+            long lastUserId = 0;
+            // Bounded per run so a large backlog drains over several runs instead of one long burst
+            while (shardBatches < maxBatchesPerRun) {
+                List<Long> userIds = shard.getJdbcTemplate().queryForList(
+                        "SELECT user_id FROM cart_items WHERE user_id > ? GROUP BY user_id " +
+                        "HAVING MAX(updated_at) < ? OR MAX(updated_at) IS NULL ORDER BY user_id LIMIT ?",
+                        Long.class, lastUserId, cutoff, batchSize);
+                if (userIds.isEmpty()) {
+                    break;
+                }
+                lastUserId = userIds.get(userIds.size() - 1);
+
+                List<Object[]> abandoned = new ArrayList<>(userIds.size());
+                for (Long userId : userIds) {
+                    if (!cartStore.isInUse(userId)) {
+                        abandoned.add(new Object[]{userId, userId, cutoff});
+                    }
+                }
+                // The cart is checked again in the DELETE itself: one that changed since the SELECT is
+                // kept whole, not stripped of its older lines. The derived table is for MySQL, which
+                // rejects a subquery on the table being deleted from.
+                int[] counts = shard.getTransactionTemplate().execute(status -> shard.getJdbcTemplate().batchUpdate(
+                        "DELETE FROM cart_items WHERE user_id = ? AND NOT EXISTS (SELECT 1 FROM " +
+                        "(SELECT updated_at FROM cart_items WHERE user_id = ?) cart WHERE cart.updated_at >= ?)",
+                        abandoned));
+                long deleted = 0;
+                int purged = 0;
+                for (int count : counts) {
+                    deleted += Math.max(count, 0);
+                    purged += count != 0 ? 1 : 0;
+                }
+
+                carts += purged;
+                rows += deleted;
+                meterRegistry.counter("ecommerce.cart.purge.carts").increment(purged);
+                meterRegistry.counter("ecommerce.cart.purge.rows").increment(deleted);
+                shardBatches++;
+                logger.debug("Cart purge on shard {}: {} carts ({} rows) up to user {}",
+                        shard.getIndex(), purged, deleted, lastUserId);
+
+                if (userIds.size() < batchSize) {
+                    break;
+                }
+                Thread.sleep(pauseMs);
+            }
+            batches += shardBatches;
+        }
+
+        meterRegistry.timer("ecommerce.cart.purge.duration")
+                .record(System.currentTimeMillis() - started, TimeUnit.MILLISECONDS);
+        if (carts > 0) {
+            logger.info("Purged {} abandoned carts ({} items, unchanged since {}) in {} batches ({} ms)",
+                    carts, rows, cutoff.toLocalDateTime(), batches, System.currentTimeMillis() - started);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.ecommerce.service;
+
+import com.example.ecommerce.entity.CartItem;
+import com.example.ecommerce.entity.Product;
+import com.example.ecommerce.entity.User;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface CartStore {
+
+    List<CartItem> findByUser(User user);
+
+    // The item is looked up where the user's cart lives; callers still check who owns it
+    Optional<CartItem> findById(User user, Long itemId);
+
+    Optional<CartItem> findByUserAndProduct(User user, Product product);
+
+    CartItem save(CartItem cartItem);
+
+    void delete(CartItem cartItem);
+
+    void deleteByUser(User user);
+
+    // True while the store holds the user's cart for a live session; CartPurgeService leaves it alone
+    default boolean isInUse(Long userId) {
+        return false;
+    }
+
+    /**
+     * A save against a line that changed since it was read, carrying the line as the store now holds
+     * it (null once it is gone) for the 409 response.
+     */
+    class ConflictException extends ObjectOptimisticLockingFailureException {
+        private final transient CartItem current;
+
+        public ConflictException(Long itemId, CartItem current) {
+            super(CartItem.class, itemId);
+            this.current = current;
+        }
+
+        public CartItem getCurrent() {
+            return current;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.ecommerce.service;
+
+import com.example.ecommerce.entity.CartItem;
+import com.example.ecommerce.entity.Product;
+import com.example.ecommerce.entity.User;
+import com.example.ecommerce.repository.CartItemRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Optional;
+
+@Service
+@ConditionalOnProperty(prefix = "app.cart", name = "store", havingValue = "jpa", matchIfMissing = true)
+public class JpaCartStore implements CartStore {
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Override
+    public List<CartItem> findByUser(User user) {
+        return cartItemRepository.findByUser(user);
+    }
+
+    @Override
+    public Optional<CartItem> findById(User user, Long itemId) {
+        return cartItemRepository.findById(itemId);
+    }
+
+    @Override
+    public Optional<CartItem> findByUserAndProduct(User user, Product product) {
+        return cartItemRepository.findByUserAndProduct(user, product);
+    }
+
+    @Override
+    public CartItem save(CartItem cartItem) {
+        return cartItemRepository.save(cartItem);
+    }
+
+    @Override
+    public void delete(CartItem cartItem) {
+        cartItemRepository.delete(cartItem);
+    }
+
+    @Override
+    @Transactional
+    public void deleteByUser(User user) {
+        cartItemRepository.deleteByUser(user);
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.ecommerce.service;
+
+import com.example.ecommerce.dto.OrderSummary;
+import com.example.ecommerce.entity.Order;
+import com.example.ecommerce.entity.User;
+import com.example.ecommerce.repository.OrderRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Service
+@ConditionalOnProperty(prefix = "app.sharding", name = "enabled", havingValue = "false", matchIfMissing = true)
+public class JpaOrderStore implements OrderStore {
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Override
+    public List<OrderSummary> findOrderSummaries(User user, LocalDateTime beforeDate, Long beforeId, int rows) {
+        PageRequest firstRows = PageRequest.of(0, rows);
+        if (beforeDate == null) {
+            return orderRepository.findOrderSummaries(user, firstRows);
+        }
+        return orderRepository.findOrderSummariesBefore(user, beforeDate, beforeId, firstRows);
+    }
+
+    @Override
+    public Optional<Order> findDetail(User user, Long id) {
+        // Items and their products arrive in the same query as the order
+        return orderRepository.findDetailByIdAndUser(id, user);
+    }
+
+    @Override
+    public List<OrderSummary> findOrderSummariesByStatus(Order.OrderStatus status, int rows) {
+        return orderRepository.findOrderSummariesByStatus(status, PageRequest.of(0, rows));
+    }
+
+    @Override
+    public long countByStatus(Order.OrderStatus status) {
+        return orderRepository.countByStatus(status);
+    }
+}
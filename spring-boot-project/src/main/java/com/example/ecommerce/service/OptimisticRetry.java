@@ -0,0 +1,67 @@
+package com.example.ecommerce.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Runs an operation in its own transaction and re-runs it when a @Version check fails.
+ * Only use it for operations that are safe to repeat from scratch, i.e. that re-read
+ * what they modify inside the action.
+ */
+@Service
+public class OptimisticRetry {
+
+    private static final Logger logger = LoggerFactory.getLogger(OptimisticRetry.class);
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.optimistic-retry.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${app.optimistic-retry.initial-backoff-ms:20}")
+    private long initialBackoffMs;
+
+    public <T> T execute(String operation, Supplier<T> action) {
+        long backoffMs = initialBackoffMs;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> action.get());
+            } catch (OptimisticLockingFailureException e) {
+                recordConflict(operation);
+                if (attempt >= maxAttempts) {
+                    logger.warn("Giving up on {} after {} optimistic lock conflicts", operation, attempt);
+                    throw e;
+                }
+                meterRegistry.counter("ecommerce.optimistic.retries", "operation", operation).increment();
+                sleep(backoffMs + ThreadLocalRandom.current().nextLong(backoffMs + 1));
+                backoffMs *= 2;
+            }
+        }
+    }
+
+    public void recordConflict(String operation) {
+        meterRegistry.counter("ecommerce.optimistic.conflicts", "operation", operation).increment();
+    }
+
+    private void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while backing off", e);
+        }
+    }
+}
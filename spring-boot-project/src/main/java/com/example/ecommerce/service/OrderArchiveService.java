@@ -0,0 +1,291 @@
+package com.example.ecommerce.service;
+
+import com.example.ecommerce.config.ShardRouter;
+import com.example.ecommerce.dto.OrderSummary;
+import com.example.ecommerce.entity.Money;
+import com.example.ecommerce.entity.Order;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Keeps orders and order_items small by moving delivered and cancelled orders older than
+ * app.archive.older-than-days into archived_orders, one committed batch at a time. Each archived
+ * order keeps its history columns plus a gzipped JSON snapshot shaped like GET /api/orders/{id},
+ * with products reduced to what they were called at archive time. Orders that can still change
+ * (pending, confirmed, shipped) are never archived, whatever their age. Each shard archives into
+ * its own archived_orders, so an order stays on the shard of its user.
+ */
+@Service
+public class OrderArchiveService {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderArchiveService.class);
+
+    private static final String SUMMARY_COLUMNS =
+            "SELECT id, order_date, status, total_amount, item_count FROM archived_orders WHERE user_id = ? ";
+    private static final String SUMMARY_ORDER = "ORDER BY order_date DESC, id DESC LIMIT ?";
+
+    private static final RowMapper<OrderSummary> SUMMARY_MAPPER = (rs, rowNum) -> new OrderSummary(
+            rs.getLong("id"), rs.getObject("order_date", LocalDateTime.class),
+            Order.OrderStatus.valueOf(rs.getString("status")), Money.of(rs.getBigDecimal("total_amount")),
+            rs.getLong("item_count"));
+
+    // Catalog datasource, for the product snapshot
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    public interface LineListener {
+        void apply(LocalDateTime orderDate, long productId, int quantity);
+    }
+
+    @Value("${app.archive.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.archive.older-than-days:365}")
+    private int olderThanDays;
+
+    @Value("${app.archive.batch-size:500}")
+    private int batchSize;
+
+    @Value("${app.archive.max-batches-per-run:20}")
+    private int maxBatchesPerRun;
+
+    @Scheduled(initialDelayString = "${app.archive.interval-ms:3600000}",
+            fixedDelayString = "${app.archive.interval-ms:3600000}")
+    public void archiveOldOrders() {
+        if (!enabled) {
+            return;
+        }
+        long started = System.currentTimeMillis();
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(olderThanDays);
+
+        int archived = 0;
+        int batches = 0;
+        for (ShardRouter.Shard shard : shardRouter.all()) {
+            int shardBatches = 0;
+            long lastId = 0;
+            // Bounded per run so a large backlog drains over several runs instead of one long burst
+            while (shardBatches < maxBatchesPerRun) {
+                long fromId = lastId;
+                List<Long> ids = shard.getTransactionTemplate().execute(status ->
+                        archiveBatch(shard.getJdbcTemplate(), cutoff, fromId));
+                if (ids.isEmpty()) {
+                    break;
+                }
+                archived += ids.size();
+                shardBatches++;
+                lastId = ids.get(ids.size() - 1);
+            }
+            batches += shardBatches;
+        }
+
+        if (archived > 0) {
+            logger.info("Archived {} orders placed before {} in {} batches ({} ms)",
+                    archived, cutoff, batches, System.currentTimeMillis() - started);
+        }
+    }
+
+    // Same ordering and keyset as the order history, without touching the payload
+    public List<OrderSummary> findOrderSummaries(Long userId, LocalDateTime beforeDate, Long beforeId, int rows) {
+        JdbcTemplate shardJdbc = shardRouter.forUser(userId).getJdbcTemplate();
+        if (beforeDate == null) {
+            return shardJdbc.query(SUMMARY_COLUMNS + SUMMARY_ORDER, SUMMARY_MAPPER, userId, rows);
+        }
+        Timestamp before = Timestamp.valueOf(beforeDate);
+        return shardJdbc.query(SUMMARY_COLUMNS + "AND (order_date < ? OR (order_date = ? AND id < ?)) " + SUMMARY_ORDER,
+                SUMMARY_MAPPER, userId, before, before, beforeId, rows);
+    }
+
+    /**
+     * The archived order as JSON, ready to be written to the response as-is.
+     */
+    public Optional<byte[]> findOrderJson(Long id, Long userId) {
+        List<byte[]> payloads = shardRouter.forUser(userId).getJdbcTemplate().query(
+                "SELECT payload FROM archived_orders WHERE id = ? AND user_id = ?",
+                (rs, rowNum) -> rs.getBytes("payload"), id, userId);
+        return payloads.stream().findFirst().map(OrderArchiveService::gunzip);
+    }
+
+    /**
+     * Every line of the delivered orders archived before the given time, on all shards, read from
+     * the payloads one row at a time. Returns the number of orders read.
+     */
+    public int forEachDeliveredLine(LocalDateTime archivedBefore, LineListener listener) {
+        int[] orders = {0};
+        for (ShardRouter.Shard shard : shardRouter.all()) {
+            shard.getJdbcTemplate().query(
+                    "SELECT order_date, payload FROM archived_orders WHERE status = 'DELIVERED' AND archived_at < ?",
+                    rs -> {
+                        LocalDateTime orderDate = rs.getObject("order_date", LocalDateTime.class);
+                        JsonNode order = readTree(gunzip(rs.getBytes("payload")));
+                        for (JsonNode item : order.path("orderItems")) {
+                            listener.apply(orderDate, item.path("product").path("id").asLong(), item.path("quantity").asInt());
+                        }
+                        orders[0]++;
+                    },
+                    Timestamp.valueOf(archivedBefore));
+        }
+        return orders[0];
+    }
+
+    // Returns the ids archived, in id order; empty once nothing older than the cutoff is left
+    private List<Long> archiveBatch(JdbcTemplate shardJdbc, LocalDateTime cutoff, long afterId) {
+        // Locks the orders so a concurrent status change either finishes first or waits for the delete
+        List<Map<String, Object>> orders = shardJdbc.query(
+                "SELECT id, user_id, total_amount, status, shipping_address, version, order_date, shipped_date, delivered_date, " +
+                "updated_at FROM orders WHERE id > ? AND order_date < ? AND status IN ('DELIVERED', 'CANCELLED') " +
+                "ORDER BY id LIMIT ? FOR UPDATE",
+                (rs, rowNum) -> {
+                    Map<String, Object> order = new LinkedHashMap<>();
+                    order.put("id", rs.getLong("id"));
+                    order.put("userId", rs.getLong("user_id"));
+                    order.put("totalAmount", rs.getBigDecimal("total_amount"));
+                    order.put("status", rs.getString("status"));
+                    order.put("shippingAddress", rs.getString("shipping_address"));
+                    order.put("version", rs.getLong("version"));
+                    order.put("orderDate", rs.getObject("order_date", LocalDateTime.class));
+                    order.put("shippedDate", rs.getObject("shipped_date", LocalDateTime.class));
+                    order.put("deliveredDate", rs.getObject("delivered_date", LocalDateTime.class));
+                    order.put("updatedAt", rs.getObject("updated_at", LocalDateTime.class));
+                    order.put("orderItems", new ArrayList<Map<String, Object>>());
+                    return order;
+                },
+                afterId, Timestamp.valueOf(cutoff), batchSize);
+        if (orders.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        List<Long> ids = new ArrayList<>(orders.size());
+        Map<Long, Map<String, Object>> ordersById = new LinkedHashMap<>();
+        for (Map<String, Object> order : orders) {
+            ids.add((Long) order.get("id"));
+            ordersById.put((Long) order.get("id"), order);
+        }
+        String placeholders = String.join(",", Collections.nCopies(ids.size(), "?"));
+
+        List<Map<String, Object>> products = new ArrayList<>();
+        shardJdbc.query(
+                "SELECT id, order_id, quantity, price, product_id FROM order_items " +
+                "WHERE order_id IN (" + placeholders + ") ORDER BY order_id, id",
+                rs -> {
+                    Map<String, Object> product = new LinkedHashMap<>();
+                    product.put("id", rs.getLong("product_id"));
+                    products.add(product);
+
+                    BigDecimal price = rs.getBigDecimal("price");
+                    int quantity = rs.getInt("quantity");
+                    Map<String, Object> item = new LinkedHashMap<>();
+                    item.put("id", rs.getLong("id"));
+                    item.put("product", product);
+                    item.put("quantity", quantity);
+                    item.put("price", price);
+                    item.put("subtotal", price.multiply(BigDecimal.valueOf(quantity)));
+                    itemsOf(ordersById.get(rs.getLong("order_id"))).add(item);
+                },
+                ids.toArray());
+        // Products live in the catalog, which may be another database than the orders
+        fillProductSnapshots(products);
+
+        Timestamp archivedAt = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> rows = new ArrayList<>(orders.size());
+        for (Map<String, Object> order : orders) {
+            Object userId = order.remove("userId");
+            order.put("archived", true);
+            rows.add(new Object[]{order.get("id"), userId, Timestamp.valueOf((LocalDateTime) order.get("orderDate")),
+                    order.get("status"), order.get("totalAmount"), itemsOf(order).size(), archivedAt, gzip(order)});
+        }
+        shardJdbc.batchUpdate(
+                "INSERT INTO archived_orders (id, user_id, order_date, status, total_amount, item_count, archived_at, payload) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?, ?)", rows);
+        shardJdbc.update("DELETE FROM order_items WHERE order_id IN (" + placeholders + ")", ids.toArray());
+        shardJdbc.update("DELETE FROM orders WHERE id IN (" + placeholders + ")", ids.toArray());
+        return ids;
+    }
+
+    // Adds name, category and imageUrl to each {id} product map; all null for a product that is gone
+    private void fillProductSnapshots(List<Map<String, Object>> products) {
+        Map<Long, List<Map<String, Object>>> byId = new LinkedHashMap<>();
+        for (Map<String, Object> product : products) {
+            product.put("name", null);
+            product.put("category", null);
+            product.put("imageUrl", null);
+            byId.computeIfAbsent((Long) product.get("id"), id -> new ArrayList<>()).add(product);
+        }
+        if (byId.isEmpty()) {
+            return;
+        }
+
+        String placeholders = String.join(",", Collections.nCopies(byId.size(), "?"));
+        jdbcTemplate.query("SELECT id, name, category, image_url FROM products WHERE id IN (" + placeholders + ")",
+                rs -> {
+                    for (Map<String, Object> product : byId.get(rs.getLong("id"))) {
+                        product.put("name", rs.getString("name"));
+                        product.put("category", rs.getString("category"));
+                        product.put("imageUrl", rs.getString("image_url"));
+                    }
+                },
+                byId.keySet().toArray());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Map<String, Object>> itemsOf(Map<String, Object> order) {
+        return (List<Map<String, Object>>) order.get("orderItems");
+    }
+
+    private byte[] gzip(Map<String, Object> order) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(512);
+        try (OutputStream out = new GZIPOutputStream(bytes)) {
+            objectMapper.writeValue(out, order);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private JsonNode readTree(byte[] json) {
+        try {
+            return objectMapper.readTree(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static byte[] gunzip(byte[] payload) {
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(payload))) {
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
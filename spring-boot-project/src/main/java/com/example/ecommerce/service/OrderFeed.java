@@ -0,0 +1,205 @@
+package com.example.ecommerce.service;
+
+import com.example.ecommerce.config.ShardRouter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Incremental reader of orders for the in-memory aggregates built from them. Each consumer keeps a
+ * Cursor; a poll reports every order placed since the previous poll once, and every counted order
+ * that has been cancelled since, so its lines can be subtracted.
+ *
+ * Order ids are handed out before commit, so a poll re-reads the last rescan-window ids of each
+ * shard and picks up orders that committed behind a higher id; an order committing more than
+ * rescan-window ids late is missed. Cancellations further back are found through orders.updated_at,
+ * which the database stamps on every update, read with cancel-overlap-ms of overlap for commit lag.
+ */
+@Service
+public class OrderFeed {
+
+    private static final String LINE_COLUMNS =
+            "SELECT o.id, o.status, o.order_date, o.updated_at, oi.product_id, oi.quantity " +
+            "FROM orders o JOIN order_items oi ON oi.order_id = o.id ";
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Value("${app.order-feed.rescan-window:1000}")
+    private long rescanWindow;
+
+    @Value("${app.order-feed.cancel-overlap-ms:60000}")
+    private long cancelOverlapMs;
+
+    public interface Listener {
+        // sign is 1 for a newly seen order and -1 for a counted order that has since been cancelled
+        void apply(FeedOrder order, int sign);
+    }
+
+    public Cursor cursor() {
+        return new Cursor(shardRouter.size());
+    }
+
+    // Returns the number of orders reported
+    public int poll(Cursor cursor, Listener listener) {
+        int reported = 0;
+        for (ShardRouter.Shard shard : shardRouter.all()) {
+            reported += poll(shard.getJdbcTemplate(), cursor.shards[shard.getIndex()], listener);
+        }
+        return reported;
+    }
+
+    private int poll(JdbcTemplate jdbcTemplate, ShardState state, Listener listener) {
+        Timestamp now = jdbcTemplate.queryForObject("SELECT CURRENT_TIMESTAMP", Timestamp.class);
+        Timestamp recent = new Timestamp(now.getTime() - cancelOverlapMs);
+        long floor = Math.max(0, state.lastOrderId - rescanWindow);
+        int[] reported = {0};
+
+        // On the first poll only the newest ids are tracked, not every order in the table
+        long tracked = floor;
+        if (state.polledAt == null) {
+            Long maxId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM orders", Long.class);
+            tracked = maxId != null ? Math.max(0, maxId - rescanWindow) : 0;
+        }
+        long trackedAbove = tracked;
+        OrderReader scanned = new OrderReader(order -> {
+            Boolean counted = state.window.get(order.id);
+            if (counted == null) {
+                if (order.cancelled) {
+                    // Never counted; keep it from being subtracted when the cancellation scan sees it
+                    if (order.updatedAt != null && order.updatedAt.after(recent)) {
+                        state.settled.put(order.id, order.updatedAt);
+                    }
+                } else {
+                    listener.apply(order, 1);
+                    reported[0]++;
+                }
+                if (order.id > trackedAbove) {
+                    state.window.put(order.id, !order.cancelled);
+                }
+            } else if (counted && order.cancelled) {
+                listener.apply(order, -1);
+                reported[0]++;
+                state.window.put(order.id, false);
+                state.settled.put(order.id, order.updatedAt != null ? order.updatedAt : now);
+            }
+            state.lastOrderId = Math.max(state.lastOrderId, order.id);
+        });
+        jdbcTemplate.query(LINE_COLUMNS + "WHERE o.id > ? ORDER BY o.id, oi.id", scanned, floor);
+        scanned.finish();
+
+        if (state.polledAt != null) {
+            OrderReader cancelled = new OrderReader(order -> {
+                if (state.settled.putIfAbsent(order.id, order.updatedAt) == null) {
+                    listener.apply(order, -1);
+                    reported[0]++;
+                }
+            });
+            jdbcTemplate.query(LINE_COLUMNS + "WHERE o.status = 'CANCELLED' AND o.updated_at > ? AND o.id <= ? ORDER BY o.id, oi.id",
+                    cancelled, new Timestamp(state.polledAt.getTime() - cancelOverlapMs), floor);
+            cancelled.finish();
+        }
+
+        long nextFloor = state.lastOrderId - rescanWindow;
+        state.window.keySet().removeIf(id -> id <= nextFloor);
+        state.settled.values().removeIf(updatedAt -> !updatedAt.after(recent));
+        state.polledAt = now;
+        return reported[0];
+    }
+
+    public static final class Cursor {
+
+        private final ShardState[] shards;
+
+        private Cursor(int shardCount) {
+            shards = new ShardState[shardCount];
+            for (int i = 0; i < shardCount; i++) {
+                shards[i] = new ShardState();
+            }
+        }
+    }
+
+    private static class ShardState {
+        private long lastOrderId;
+        private Timestamp polledAt;
+        // Order ids within the rescan window, and whether they are currently counted
+        private final Map<Long, Boolean> window = new HashMap<>();
+        // Cancelled orders already accounted for, until their updated_at leaves the overlap
+        private final Map<Long, Timestamp> settled = new HashMap<>();
+    }
+
+    public static final class FeedOrder {
+
+        private final long id;
+        private final LocalDateTime orderDate;
+        private final boolean cancelled;
+        private final Timestamp updatedAt;
+        private long[] productIds = new long[4];
+        private int[] quantities = new int[4];
+        private int size;
+
+        private FeedOrder(ResultSet rs) throws SQLException {
+            id = rs.getLong("id");
+            Timestamp date = rs.getTimestamp("order_date");
+            orderDate = date != null ? date.toLocalDateTime() : null;
+            cancelled = "CANCELLED".equals(rs.getString("status"));
+            updatedAt = rs.getTimestamp("updated_at");
+        }
+
+        private void add(long productId, int quantity) {
+            if (size == productIds.length) {
+                productIds = Arrays.copyOf(productIds, size * 2);
+                quantities = Arrays.copyOf(quantities, size * 2);
+            }
+            productIds[size] = productId;
+            quantities[size++] = quantity;
+        }
+
+        public long getId() { return id; }
+        public LocalDateTime getOrderDate() { return orderDate; }
+        public int size() { return size; }
+        public long getProductId(int line) { return productIds[line]; }
+        public int getQuantity(int line) { return quantities[line]; }
+    }
+
+    // Groups rows ordered by order id into one FeedOrder per order
+    private static class OrderReader implements RowCallbackHandler {
+
+        private final Consumer<FeedOrder> consumer;
+        private FeedOrder current;
+
+        OrderReader(Consumer<FeedOrder> consumer) {
+            this.consumer = consumer;
+        }
+
+        @Override
+        public void processRow(ResultSet rs) throws SQLException {
+            long orderId = rs.getLong("id");
+            if (current == null || current.id != orderId) {
+                if (current != null) {
+                    consumer.accept(current);
+                }
+                current = new FeedOrder(rs);
+            }
+            current.add(rs.getLong("product_id"), rs.getInt("quantity"));
+        }
+
+        void finish() {
+            if (current != null) {
+                consumer.accept(current);
+                current = null;
+            }
+        }
+    }
+}
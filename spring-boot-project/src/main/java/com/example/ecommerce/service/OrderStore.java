@@ -0,0 +1,23 @@
+package com.example.ecommerce.service;
+
+import com.example.ecommerce.dto.OrderSummary;
+import com.example.ecommerce.entity.Order;
+import com.example.ecommerce.entity.User;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+public interface OrderStore {
+
+    // Newest first, strictly after (beforeDate, beforeId) when a position is given
+    List<OrderSummary> findOrderSummaries(User user, LocalDateTime beforeDate, Long beforeId, int rows);
+
+    // The order with its items and their products
+    Optional<Order> findDetail(User user, Long id);
+
+    // Admin view across all users, newest first
+    List<OrderSummary> findOrderSummariesByStatus(Order.OrderStatus status, int rows);
+
+    long countByStatus(Order.OrderStatus status);
+}
@@ -0,0 +1,125 @@
+package com.example.ecommerce.service;
+
+import com.example.ecommerce.entity.StockMovement;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Catalog-wide price changes as set-based UPDATEs, committed in chunks so a large category
+ * never holds row locks for the whole run. Every touched row gets a new @Version, which makes
+ * concurrent load-modify-save updates conflict instead of overwriting the change and stops
+ * ProductJsonCache from serving the old rendering. Cart totals read live prices. Stock changes
+ * are appended to the StockLedger.
+ */
+@Service
+public class ProductBulkService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductBulkService.class);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ProductFacetIndex productFacetIndex;
+
+    @Autowired
+    private StockLedger stockLedger;
+
+    @Value("${app.bulk.chunk-size:1000}")
+    private int chunkSize;
+
+    public Map<String, Object> adjustCategoryPrices(String category, BigDecimal percent) {
+        long started = System.currentTimeMillis();
+        BigDecimal factor = BigDecimal.ONE.add(percent.movePointLeft(2)).setScale(6, RoundingMode.HALF_UP);
+
+        int updated = 0;
+        int chunks = 0;
+        long lastId = 0;
+        List<Long> skipped = new ArrayList<>();
+        while (true) {
+            // Keyset over the category's ids; each chunk is a single range UPDATE
+            List<Long> ids = jdbcTemplate.queryForList(
+                    "SELECT id FROM products WHERE category = ? AND id > ? ORDER BY id LIMIT ?",
+                    Long.class, category, lastId, chunkSize);
+            if (ids.isEmpty()) {
+                break;
+            }
+            long fromId = lastId;
+            long toId = ids.get(ids.size() - 1);
+            // A price that would round to zero is left as it is and reported. updated_at is taken when the
+            // chunk runs, so a late chunk is not stamped with the time the run started
+            updated += transactionTemplate.execute(status -> {
+                skipped.addAll(jdbcTemplate.queryForList(
+                        "SELECT id FROM products WHERE category = ? AND id > ? AND id <= ? AND ROUND(price * ?, 2) <= 0 " +
+                        "ORDER BY id", Long.class, category, fromId, toId, factor));
+                return jdbcTemplate.update(
+                        "UPDATE products SET price = ROUND(price * ?, 2), version = version + 1, updated_at = LOCALTIMESTAMP " +
+                        "WHERE category = ? AND id > ? AND id <= ? AND ROUND(price * ?, 2) > 0",
+                        factor, category, fromId, toId, factor);
+            });
+            chunks++;
+            lastId = toId;
+        }
+
+        if (updated > 0) {
+            productFacetIndex.rebuild();
+        }
+        logger.info("Adjusted prices by {}% for {} products in category {} ({} skipped, {} chunks)",
+                percent, updated, category, skipped.size(), chunks);
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("category", category);
+        response.put("percent", percent);
+        response.put("updated", updated);
+        response.put("skipped", skipped);
+        response.put("chunks", chunks);
+        response.put("durationMs", System.currentTimeMillis() - started);
+        return response;
+    }
+
+    /**
+     * Records stock movements by product id through the stock ledger. A movement that would take
+     * stock below zero, or names an unknown product, is skipped and reported rather than failing
+     * the whole batch.
+     */
+    public Map<String, Object> adjustStock(List<StockMovement> movements) {
+        long started = System.currentTimeMillis();
+
+        int updated = 0;
+        int chunks = 0;
+        List<Long> rejected = new ArrayList<>();
+        for (int from = 0; from < movements.size(); from += chunkSize) {
+            List<StockMovement> chunk = movements.subList(from, Math.min(from + chunkSize, movements.size()));
+            List<StockMovement> refused = stockLedger.appendIfAvailable(chunk);
+            for (StockMovement movement : refused) {
+                rejected.add(movement.getProductId());
+            }
+            updated += chunk.size() - refused.size();
+            chunks++;
+        }
+        logger.info("Applied {} stock adjustments ({} rejected, {} chunks)", updated, rejected.size(), chunks);
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("requested", movements.size());
+        response.put("updated", updated);
+        response.put("rejected", rejected);
+        response.put("chunks", chunks);
+        response.put("durationMs", System.currentTimeMillis() - started);
+        return response;
+    }
+}
@@ -0,0 +1,162 @@
+package com.example.ecommerce.service;
+
+import com.example.ecommerce.entity.Product;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Products created, updated or deactivated after a watermark, in (updated_at, id) order over
+ * idx_products_updated_at. Rows are written to the output as they are read, one JSON object per
+ * line, followed by a line with the watermark to resume from.
+ *
+ * updated_at is set before the change commits, so a row can appear with a timestamp slightly
+ * older than rows already returned. Changes younger than app.product-changes.settle-ms are held
+ * back, and rows updated within app.product-changes.reread-ms before the watermark are sent again
+ * on every call, so a change that commits up to settle-ms + reread-ms after its updated_at is still
+ * delivered. Consumers apply rows by version, which makes a repeat harmless.
+ */
+@Service
+public class ProductChangeFeed {
+
+    private static final String SELECT = "SELECT id, name, description, price, stock_quantity, category, image_url, " +
+            "active, version, created_at, updated_at FROM products WHERE ";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${app.product-changes.max-limit:5000}")
+    private int maxLimit;
+
+    @Value("${app.product-changes.settle-ms:5000}")
+    private long settleMs;
+
+    @Value("${app.product-changes.reread-ms:60000}")
+    private long rereadMs;
+
+    public int limit(int requested) {
+        return Math.max(1, Math.min(requested, maxLimit));
+    }
+
+    public void stream(Watermark since, int limit, OutputStream out) throws IOException {
+        Timestamp settled = Timestamp.valueOf(LocalDateTime.now().minusNanos(settleMs * 1_000_000));
+        String sql = SELECT;
+        Object[] args;
+        if (since == null) {
+            sql += "updated_at <= ? ORDER BY updated_at, id LIMIT ?";
+            args = new Object[]{settled, limit};
+        } else {
+            Timestamp after = Timestamp.valueOf(since.updatedAt);
+            // The leading updated_at >= ? gives the index range scan its start
+            sql += "updated_at >= ? AND (updated_at > ? OR id > ?) AND updated_at <= ? ORDER BY updated_at, id LIMIT ?";
+            args = new Object[]{after, after, since.id, settled, limit};
+        }
+
+        Watermark[] last = {since};
+        int[] rows = {0};
+        try {
+            if (since != null && rereadMs > 0) {
+                // The trailing window up to and including the watermark; it does not move the watermark
+                Timestamp from = Timestamp.valueOf(since.updatedAt.minusNanos(rereadMs * 1_000_000));
+                Timestamp upTo = Timestamp.valueOf(since.updatedAt);
+                jdbcTemplate.query(SELECT + "updated_at >= ? AND updated_at <= ? AND (updated_at < ? OR id <= ?) " +
+                        "ORDER BY updated_at, id", rs -> {
+                    write(read(rs), out);
+                }, from, upTo, upTo, since.id);
+            }
+            jdbcTemplate.query(sql, rs -> {
+                Product product = read(rs);
+                write(product, out);
+                last[0] = new Watermark(product.getUpdatedAt(), product.getId());
+                rows[0]++;
+            }, args);
+        } catch (UncheckedIOException e) {
+            // The client went away; nothing left to tell it
+            throw e.getCause();
+        }
+
+        Map<String, Object> trailer = new HashMap<>();
+        trailer.put("nextWatermark", last[0] != null ? last[0].toString() : null);
+        trailer.put("hasMore", rows[0] == limit);
+        out.write(objectMapper.writeValueAsBytes(trailer));
+        out.write('\n');
+    }
+
+    private static Product read(ResultSet rs) throws SQLException {
+        Product product = new Product();
+        product.setId(rs.getLong("id"));
+        product.setName(rs.getString("name"));
+        product.setDescription(rs.getString("description"));
+        product.setPrice(rs.getBigDecimal("price"));
+        product.setStockQuantity(rs.getInt("stock_quantity"));
+        product.setCategory(rs.getString("category"));
+        product.setImageUrl(rs.getString("image_url"));
+        product.setActive(rs.getBoolean("active"));
+        product.setVersion(rs.getLong("version"));
+        product.setCreatedAt(rs.getObject("created_at", LocalDateTime.class));
+        product.setUpdatedAt(rs.getObject("updated_at", LocalDateTime.class));
+        return product;
+    }
+
+    private void write(Product product, OutputStream out) {
+        try {
+            out.write(objectMapper.writeValueAsBytes(product));
+            out.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Position in the feed: the (updated_at, id) of the last product a consumer has seen,
+     * passed around as an opaque token.
+     */
+    public static class Watermark {
+        private final LocalDateTime updatedAt;
+        private final long id;
+
+        public Watermark(LocalDateTime updatedAt, long id) {
+            this.updatedAt = updatedAt;
+            this.id = id;
+        }
+
+        // null for a full sync from the start; a malformed token is answered with 400
+        public static Watermark parse(String token) {
+            if (token == null || token.isBlank()) {
+                return null;
+            }
+            try {
+                String decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+                int separator = decoded.lastIndexOf(',');
+                return new Watermark(LocalDateTime.parse(decoded.substring(0, separator)),
+                        Long.parseLong(decoded.substring(separator + 1)));
+            } catch (IllegalArgumentException | DateTimeParseException | IndexOutOfBoundsException e) {
+                throw new QueryGuard.RejectedQueryException("Invalid watermark: " + token);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return Base64.getUrlEncoder().withoutPadding()
+                    .encodeToString((updatedAt + "," + id).getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -0,0 +1,261 @@
+package com.example.ecommerce.service;
+
+import com.example.ecommerce.entity.Product;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Column-oriented copy of the active catalog used to count facets without touching the database.
+ * Each product is one row across parallel primitive arrays; product writes patch their row in
+ * place and a periodic rebuild picks up changes made by other nodes. Writes made while a rebuild
+ * is reading the catalog are replayed over its result, so a rebuild never undoes them.
+ */
+@Service
+public class ProductFacetIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductFacetIndex.class);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${app.facets.price-buckets:0,25,50,100,250,500,1000}")
+    private BigDecimal[] defaultPriceBuckets;
+
+    private final StampedLock lock = new StampedLock();
+
+    // Row-aligned columns; rows with active[i] == false are free slots, listed in freeRows
+    private int[] categoryOrdinals = new int[0];
+    private long[] priceCents = new long[0];
+    private String[] lowerNames = new String[0];
+    private boolean[] active = new boolean[0];
+    private int rowCount;
+    private int[] freeRows = new int[0];
+    private int freeCount;
+
+    // Latest write per product id ({id, name, category, price}, or null for a removal) since the
+    // oldest running rebuild started reading; null while no rebuild is running
+    private Map<Long, Object[]> writesDuringRebuild;
+    private int rebuildsRunning;
+
+    private final Map<Long, Integer> rowById = new HashMap<>();
+    private final List<String> categories = new ArrayList<>();
+    private final Map<String, Integer> categoryOrdinalByName = new HashMap<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${app.facets.rebuild-interval-ms:300000}",
+            fixedDelayString = "${app.facets.rebuild-interval-ms:300000}")
+    public void rebuild() {
+        long stamp = lock.writeLock();
+        try {
+            if (rebuildsRunning++ == 0) {
+                writesDuringRebuild = new LinkedHashMap<>();
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+
+        List<Object[]> rows = null;
+        try {
+            rows = jdbcTemplate.query(
+                    "SELECT id, name, category, price FROM products WHERE active = true",
+                    (rs, rowNum) -> new Object[]{rs.getLong(1), rs.getString(2), rs.getString(3), rs.getBigDecimal(4)});
+        } finally {
+            stamp = lock.writeLock();
+            try {
+                if (rows != null) {
+                    replace(rows);
+                }
+                if (--rebuildsRunning == 0) {
+                    writesDuringRebuild = null;
+                }
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+        logger.debug("Facet index rebuilt with {} active products", rows.size());
+    }
+
+    public void upsert(Product product) {
+        if (!Boolean.TRUE.equals(product.getActive())) {
+            remove(product.getId());
+            return;
+        }
+
+        write(product.getId(), new Object[]{product.getId(), product.getName(), product.getCategory(), product.getPrice()});
+    }
+
+    public void remove(Long productId) {
+        write(productId, null);
+    }
+
+    /**
+     * Counts per category (ignoring the category filter) and per price bucket (ignoring the
+     * price filter), plus the number of products matching every filter, in one pass.
+     */
+    public Map<String, Object> facets(String name, String category, BigDecimal minPrice, BigDecimal maxPrice,
+                                      BigDecimal[] priceBuckets) {
+        String nameFilter = name != null ? name.toLowerCase(Locale.ROOT) : null;
+        long minCents = minPrice != null ? minPrice.movePointRight(2).setScale(0, RoundingMode.CEILING).longValue() : Long.MIN_VALUE;
+        long maxCents = maxPrice != null ? maxPrice.movePointRight(2).setScale(0, RoundingMode.FLOOR).longValue() : Long.MAX_VALUE;
+        BigDecimal[] edges = priceBuckets != null && priceBuckets.length > 0 ? priceBuckets : defaultPriceBuckets;
+        long[] edgeCents = new long[edges.length];
+        for (int i = 0; i < edges.length; i++) {
+            edgeCents[i] = edges[i].movePointRight(2).setScale(0, RoundingMode.CEILING).longValue();
+        }
+        Arrays.sort(edgeCents);
+
+        long total = 0;
+        int[] categoryCounts;
+        long[] bucketCounts = new long[edgeCents.length];
+        List<String> categoryNames;
+
+        long stamp = lock.readLock();
+        try {
+            int wantedCategory = category == null ? -1 : categoryOrdinalByName.getOrDefault(category, -2);
+            categoryCounts = new int[categories.size()];
+            categoryNames = new ArrayList<>(categories);
+
+            for (int i = 0; i < rowCount; i++) {
+                if (!active[i] || (nameFilter != null && !lowerNames[i].contains(nameFilter))) {
+                    continue;
+                }
+                long cents = priceCents[i];
+                boolean priceMatches = cents >= minCents && cents <= maxCents;
+                boolean categoryMatches = wantedCategory == -1 || categoryOrdinals[i] == wantedCategory;
+
+                if (priceMatches) {
+                    categoryCounts[categoryOrdinals[i]]++;
+                }
+                if (categoryMatches) {
+                    int bucket = Arrays.binarySearch(edgeCents, cents);
+                    bucket = bucket >= 0 ? bucket : -bucket - 2;
+                    if (bucket >= 0) {
+                        bucketCounts[bucket]++;
+                    }
+                }
+                if (priceMatches && categoryMatches) {
+                    total++;
+                }
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+
+        List<Map<String, Object>> categoryFacets = new ArrayList<>();
+        for (int ordinal = 0; ordinal < categoryCounts.length; ordinal++) {
+            if (categoryCounts[ordinal] > 0) {
+                Map<String, Object> facet = new HashMap<>();
+                facet.put("category", categoryNames.get(ordinal));
+                facet.put("count", categoryCounts[ordinal]);
+                categoryFacets.add(facet);
+            }
+        }
+
+        List<Map<String, Object>> priceFacets = new ArrayList<>();
+        for (int i = 0; i < edgeCents.length; i++) {
+            Map<String, Object> facet = new HashMap<>();
+            facet.put("min", BigDecimal.valueOf(edgeCents[i], 2));
+            facet.put("max", i + 1 < edgeCents.length ? BigDecimal.valueOf(edgeCents[i + 1], 2) : null);
+            facet.put("count", bucketCounts[i]);
+            priceFacets.add(facet);
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("totalItems", total);
+        response.put("categories", categoryFacets);
+        response.put("priceBuckets", priceFacets);
+        return response;
+    }
+
+    private void write(Long productId, Object[] row) {
+        long stamp = lock.writeLock();
+        try {
+            apply(productId, row);
+            if (writesDuringRebuild != null) {
+                writesDuringRebuild.put(productId, row);
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    // Swaps in a freshly read catalog, then replays the writes it may have missed; under the write lock
+    private void replace(List<Object[]> rows) {
+        categoryOrdinals = new int[rows.size()];
+        priceCents = new long[rows.size()];
+        lowerNames = new String[rows.size()];
+        active = new boolean[rows.size()];
+        rowCount = 0;
+        freeCount = 0;
+        rowById.clear();
+        categories.clear();
+        categoryOrdinalByName.clear();
+
+        for (Object[] row : rows) {
+            writeRow(nextRow(), (Long) row[0], (String) row[1], (String) row[2], (BigDecimal) row[3]);
+        }
+        writesDuringRebuild.forEach(this::apply);
+    }
+
+    // A null row removes the product; under the write lock
+    private void apply(Long productId, Object[] row) {
+        Integer existing = rowById.get(productId);
+        if (row != null) {
+            writeRow(existing != null ? existing : nextRow(), productId, (String) row[1], (String) row[2], (BigDecimal) row[3]);
+        } else if (existing != null) {
+            rowById.remove(productId);
+            active[existing] = false;
+            if (freeCount == freeRows.length) {
+                freeRows = Arrays.copyOf(freeRows, Math.max(16, freeRows.length * 2));
+            }
+            freeRows[freeCount++] = existing;
+        }
+    }
+
+    private int nextRow() {
+        if (freeCount > 0) {
+            return freeRows[--freeCount];
+        }
+        if (rowCount == active.length) {
+            int capacity = Math.max(16, active.length * 2);
+            categoryOrdinals = Arrays.copyOf(categoryOrdinals, capacity);
+            priceCents = Arrays.copyOf(priceCents, capacity);
+            lowerNames = Arrays.copyOf(lowerNames, capacity);
+            active = Arrays.copyOf(active, capacity);
+        }
+        return rowCount++;
+    }
+
+    private void writeRow(int row, long id, String name, String category, BigDecimal price) {
+        Integer ordinal = categoryOrdinalByName.get(category);
+        if (ordinal == null) {
+            ordinal = categories.size();
+            categories.add(category);
+            categoryOrdinalByName.put(category, ordinal);
+        }
+
+        categoryOrdinals[row] = ordinal;
+        priceCents[row] = price.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValue();
+        lowerNames[row] = name.toLowerCase(Locale.ROOT);
+        active[row] = true;
+        rowById.put(id, row);
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.ecommerce.service;
+
+import com.example.ecommerce.entity.Product;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Holds the rendered UTF-8 JSON of recently served products so hot SKUs are serialized
+ * once per version instead of on every request. An entry is only used while the product's
+ * @Version and stock_quantity match the ones it was rendered from; stock snapshots change the
+ * latter without a new version.
+ */
+@Service
+public class ProductJsonCache {
+
+    private static final byte[] LIST_START = "{\"products\":[".getBytes(StandardCharsets.UTF_8);
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${app.product-json-cache.max-entries:500}")
+    private int maxEntries;
+
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+
+    public byte[] toJson(Product product) {
+        Entry entry = entries.get(product.getId());
+        if (entry != null && Objects.equals(entry.version, product.getVersion())
+                && Objects.equals(entry.stockQuantity, product.getStockQuantity())) {
+            entry.hits.increment();
+            return entry.json;
+        }
+
+        byte[] json = render(product);
+        if (entry == null && entries.size() >= maxEntries) {
+            trim();
+        }
+        entries.put(product.getId(), new Entry(product.getVersion(), product.getStockQuantity(), json));
+        return json;
+    }
+
+    public byte[] toJsonPage(Page<Product> page) {
+        List<byte[]> fragments = new ArrayList<>(page.getNumberOfElements());
+        int size = LIST_START.length + 96;
+        for (Product product : page.getContent()) {
+            byte[] fragment = toJson(product);
+            fragments.add(fragment);
+            size += fragment.length + 1;
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(size);
+        out.writeBytes(LIST_START);
+        for (int i = 0; i < fragments.size(); i++) {
+            if (i > 0) {
+                out.write(',');
+            }
+            out.writeBytes(fragments.get(i));
+        }
+        String paging = "],\"currentPage\":" + page.getNumber()
+                + ",\"totalItems\":" + page.getTotalElements()
+                + ",\"totalPages\":" + page.getTotalPages() + "}";
+        out.writeBytes(paging.getBytes(StandardCharsets.UTF_8));
+        return out.toByteArray();
+    }
+
+    // {"products":[...],"missing":[...]}, products in the given order
+    public byte[] toJsonBatch(List<Product> products, List<Long> missing) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(LIST_START.length + 64 + products.size() * 512);
+        out.writeBytes(LIST_START);
+        for (int i = 0; i < products.size(); i++) {
+            if (i > 0) {
+                out.write(',');
+            }
+            out.writeBytes(toJson(products.get(i)));
+        }
+        StringBuilder tail = new StringBuilder("],\"missing\":[");
+        for (int i = 0; i < missing.size(); i++) {
+            if (i > 0) {
+                tail.append(',');
+            }
+            tail.append(missing.get(i));
+        }
+        out.writeBytes(tail.append("]}").toString().getBytes(StandardCharsets.UTF_8));
+        return out.toByteArray();
+    }
+
+    public void evict(Long productId) {
+        entries.remove(productId);
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    private byte[] render(Product product) {
+        try {
+            return objectMapper.writeValueAsBytes(product);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize product " + product.getId(), e);
+        }
+    }
+
+    // Drops the coldest tenth of the entries and halves the remaining hit counts
+    private synchronized void trim() {
+        if (entries.size() < maxEntries) {
+            return;
+        }
+        List<Map.Entry<Long, Entry>> snapshot = new ArrayList<>(entries.entrySet());
+        snapshot.sort((a, b) -> Long.compare(a.getValue().hits.sum(), b.getValue().hits.sum()));
+
+        int toRemove = Math.max(1, snapshot.size() / 10);
+        for (int i = 0; i < toRemove; i++) {
+            entries.remove(snapshot.get(i).getKey(), snapshot.get(i).getValue());
+        }
+        for (Entry entry : entries.values()) {
+            long hits = entry.hits.sumThenReset();
+            entry.hits.add(hits / 2);
+        }
+    }
+
+    private static class Entry {
+        private final Long version;
+        private final Integer stockQuantity;
+        private final byte[] json;
+        private final LongAdder hits = new LongAdder();
+
+        Entry(Long version, Integer stockQuantity, byte[] json) {
+            this.version = version;
+            this.stockQuantity = stockQuantity;
+            this.json = json;
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.example.ecommerce.service;
+
+import com.example.ecommerce.entity.Product;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Sparse fieldsets for product reads (fields=id,name,price). The product list selects only the
+ * requested columns, so a listing without description never reads the TEXT column. stockQuantity and
+ * inStock come from the StockLedger, not from the snapshot column.
+ */
+@Service
+public class ProductProjection {
+
+    // Client field names, in the order they appear in a full product
+    private static final Set<String> FIELDS = new LinkedHashSet<>(List.of(
+            "id", "name", "description", "price", "stockQuantity", "category", "imageUrl",
+            "active", "version", "createdAt", "updatedAt", "inStock"));
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private StockLedger stockLedger;
+
+    /**
+     * The requested fields in request order, always starting with id; null when all are wanted.
+     */
+    public List<String> parseFields(String fields) {
+        if (fields == null || fields.isBlank()) {
+            return null;
+        }
+        Set<String> selected = new LinkedHashSet<>();
+        selected.add("id");
+        for (String field : fields.split(",")) {
+            String trimmed = field.trim();
+            if (!FIELDS.contains(trimmed)) {
+                throw new QueryGuard.RejectedQueryException("fields must be drawn from " + FIELDS);
+            }
+            selected.add(trimmed);
+        }
+        return new ArrayList<>(selected);
+    }
+
+    // Same filters as ProductRepository.findProductsWithFilters
+    public Page<Map<String, Object>> findProductsWithFilters(List<String> fields, String name, String category,
+                                                             BigDecimal minPrice, BigDecimal maxPrice,
+                                                             Pageable pageable) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<Product> product = query.from(Product.class);
+
+        List<Selection<?>> selections = new ArrayList<>();
+        for (String column : columns(fields)) {
+            selections.add(product.get(column).alias(column));
+        }
+        query.multiselect(selections)
+                .where(filters(cb, product, name, category, minPrice, maxPrice))
+                .orderBy(QueryUtils.toOrders(pageable.getSort(), product, cb));
+
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (Tuple tuple : entityManager.createQuery(query)
+                .setFirstResult((int) pageable.getOffset())
+                .setMaxResults(pageable.getPageSize())
+                .getResultList()) {
+            rows.add(toRow(fields, tuple));
+        }
+        Map<Long, Long> stock = stockFor(fields, rows.stream().map(row -> (Long) row.get("id")).toList());
+        for (Map<String, Object> row : rows) {
+            putStock(fields, row, stock.getOrDefault((Long) row.get("id"), 0L));
+        }
+
+        return PageableExecutionUtils.getPage(rows, pageable, () -> {
+            CriteriaQuery<Long> count = cb.createQuery(Long.class);
+            Root<Product> counted = count.from(Product.class);
+            count.select(cb.count(counted)).where(filters(cb, counted, name, category, minPrice, maxPrice));
+            return entityManager.createQuery(count).getSingleResult();
+        });
+    }
+
+    /**
+     * Ledger stock for the products when the fields ask for it, in one query; empty otherwise.
+     */
+    public Map<Long, Long> stockFor(List<String> fields, Collection<Long> productIds) {
+        if (!fields.contains("stockQuantity") && !fields.contains("inStock")) {
+            return Map.of();
+        }
+        return stockLedger.currentStock(productIds);
+    }
+
+    /**
+     * The requested fields of an already loaded product, e.g. one in a cart, with its stock from stockFor.
+     */
+    public Map<String, Object> project(List<String> fields, Product product, Map<Long, Long> stock) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        for (String field : fields) {
+            row.put(field, switch (field) {
+                case "id" -> product.getId();
+                case "name" -> product.getName();
+                case "description" -> product.getDescription();
+                case "price" -> product.getPrice();
+                case "stockQuantity", "inStock" -> null;
+                case "category" -> product.getCategory();
+                case "imageUrl" -> product.getImageUrl();
+                case "active" -> product.getActive();
+                case "version" -> product.getVersion();
+                case "createdAt" -> product.getCreatedAt();
+                case "updatedAt" -> product.getUpdatedAt();
+                default -> throw new IllegalArgumentException(field);
+            });
+        }
+        putStock(fields, row, stock.getOrDefault(product.getId(), 0L));
+        return row;
+    }
+
+    // Stock fields are filled in from the ledger afterwards, keeping their place in the row
+    private static Set<String> columns(List<String> fields) {
+        Set<String> columns = new LinkedHashSet<>();
+        for (String field : fields) {
+            if (!isStockField(field)) {
+                columns.add(field);
+            }
+        }
+        return columns;
+    }
+
+    private static Map<String, Object> toRow(List<String> fields, Tuple tuple) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        for (String field : fields) {
+            row.put(field, isStockField(field) ? null : tuple.get(field));
+        }
+        return row;
+    }
+
+    private static void putStock(List<String> fields, Map<String, Object> row, long stock) {
+        if (fields.contains("stockQuantity")) {
+            row.put("stockQuantity", (int) stock);
+        }
+        if (fields.contains("inStock")) {
+            row.put("inStock", stock > 0);
+        }
+    }
+
+    private static boolean isStockField(String field) {
+        return "stockQuantity".equals(field) || "inStock".equals(field);
+    }
+
+    private static Predicate filters(CriteriaBuilder cb, Root<Product> product, String name, String category,
+                                     BigDecimal minPrice, BigDecimal maxPrice) {
+        List<Predicate> predicates = new ArrayList<>();
+        predicates.add(cb.isTrue(product.get("active")));
+        if (name != null) {
+            predicates.add(cb.like(cb.lower(product.get("name")), "%" + name.toLowerCase(Locale.ROOT) + "%"));
+        }
+        if (category != null) {
+            predicates.add(cb.equal(product.get("category"), category));
+        }
+        if (minPrice != null) {
+            predicates.add(cb.greaterThanOrEqualTo(product.get("price"), minPrice));
+        }
+        if (maxPrice != null) {
+            predicates.add(cb.lessThanOrEqualTo(product.get("price"), maxPrice));
+        }
+        return cb.and(predicates.toArray(new Predicate[0]));
+    }
+}
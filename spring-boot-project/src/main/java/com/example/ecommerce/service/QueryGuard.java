@@ -0,0 +1,139 @@
+package com.example.ecommerce.service;
+
+import com.example.ecommerce.config.QueryGuardProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.jpa.SpecHints;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Limits what a single list request can ask of the database: sorting only on indexed columns,
+ * capped page sizes and offsets, and a statement timeout per endpoint, applied to every JPA
+ * query the endpoint runs. Rejected, timed-out and slow queries are logged and counted under
+ * ecommerce.query.*.
+ */
+@Service
+@EnableConfigurationProperties(QueryGuardProperties.class)
+public class QueryGuard {
+
+    private static final Logger logger = LoggerFactory.getLogger(QueryGuard.class);
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private QueryGuardProperties properties;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public int pageSize(String endpoint, int requested) {
+        if (requested > properties.getMaxPageSize()) {
+            meterRegistry.counter("ecommerce.query.capped", "endpoint", endpoint).increment();
+            return properties.getMaxPageSize();
+        }
+        return Math.max(1, requested);
+    }
+
+    /**
+     * @param sortable client sort keys mapped to entity properties, each backed by an index
+     */
+    public Pageable pageable(String endpoint, int page, int size, String sortBy, String sortDir,
+                             Map<String, String> sortable) {
+        String property = sortable.get(sortBy);
+        if (property == null) {
+            throw reject(endpoint, "sort", "sortBy must be one of " + new TreeSet<>(sortable.keySet()));
+        }
+        if (page < 0) {
+            throw reject(endpoint, "page", "page must not be negative");
+        }
+        int pageSize = pageSize(endpoint, size);
+        if ((long) page * pageSize > properties.getMaxOffset()) {
+            throw reject(endpoint, "offset", "Only the first " + properties.getMaxOffset()
+                    + " results can be paged through; narrow the filters");
+        }
+
+        Sort.Direction direction = "desc".equalsIgnoreCase(sortDir) ? Sort.Direction.DESC : Sort.Direction.ASC;
+        Sort sort = Sort.by(direction, property);
+        if (!"id".equals(property)) {
+            // Ties on the sort column would otherwise shuffle rows between pages
+            sort = sort.and(Sort.by(direction, "id"));
+        }
+        return PageRequest.of(page, pageSize, sort);
+    }
+
+    public <T> T execute(String endpoint, Supplier<T> query) {
+        long started = System.nanoTime();
+        try {
+            return readOnlyTransaction().execute(status -> {
+                // A transaction timeout would do, but Hibernate counts it down in whole seconds and
+                // gives up once less than one remains; a query timeout applies in full to each statement
+                Object previous = entityManager.getProperties().get(SpecHints.HINT_SPEC_QUERY_TIMEOUT);
+                entityManager.setProperty(SpecHints.HINT_SPEC_QUERY_TIMEOUT, timeoutMillis(endpoint));
+                try {
+                    return query.get();
+                } finally {
+                    entityManager.setProperty(SpecHints.HINT_SPEC_QUERY_TIMEOUT, previous != null ? previous : 0);
+                }
+            });
+        } catch (QueryTimeoutException e) {
+            meterRegistry.counter("ecommerce.query.rejected", "endpoint", endpoint, "reason", "timeout").increment();
+            logger.warn("Cancelled {} query after {} ms", endpoint,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+            throw e;
+        } finally {
+            long elapsed = System.nanoTime() - started;
+            meterRegistry.timer("ecommerce.query.duration", "endpoint", endpoint).record(elapsed, TimeUnit.NANOSECONDS);
+            if (elapsed > properties.getSlowQueryThreshold().toNanos()) {
+                meterRegistry.counter("ecommerce.query.slow", "endpoint", endpoint).increment();
+                logger.warn("Slow {} query: {} ms", endpoint, TimeUnit.NANOSECONDS.toMillis(elapsed));
+            }
+        }
+    }
+
+    // Read-only, so the queries can go to a replica when read routing is enabled
+    private TransactionTemplate readOnlyTransaction() {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setReadOnly(true);
+        return template;
+    }
+
+    // JDBC timeouts are whole seconds, so round up rather than let a sub-second value become "none"
+    private int timeoutMillis(String endpoint) {
+        Duration timeout = properties.getTimeouts().getOrDefault(endpoint, properties.getDefaultTimeout());
+        return (int) Math.max(1, (timeout.toMillis() + 999) / 1000) * 1000;
+    }
+
+    private RejectedQueryException reject(String endpoint, String reason, String message) {
+        meterRegistry.counter("ecommerce.query.rejected", "endpoint", endpoint, "reason", reason).increment();
+        logger.debug("Rejected {} query ({}): {}", endpoint, reason, message);
+        return new RejectedQueryException(message);
+    }
+
+    public static class RejectedQueryException extends RuntimeException {
+
+        public RejectedQueryException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,348 @@
+package com.example.ecommerce.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * "Frequently bought together" from order_items co-occurrence. The sparse product-by-product
+ * matrix is built once off the startup path, then kept current from OrderFeed: new orders are
+ * added and orders cancelled since are subtracted. The build streams orders in chunks of
+ * build-chunk-size baskets, counts each chunk in parallel and merges it into the running counts,
+ * so it holds one chunk rather than the whole order history. Each product keeps at most
+ * max-neighbors counts (a few times that while building), which bounds memory at roughly
+ * products x max-neighbors entries; counts are therefore approximate for the tail.
+ */
+@Service
+public class RecommendationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RecommendationService.class);
+
+    @Autowired
+    private OrderFeed orderFeed;
+
+    @Value("${app.recommendations.max-neighbors:50}")
+    private int maxNeighbors;
+
+    @Value("${app.recommendations.max-basket-size:50}")
+    private int maxBasketSize;
+
+    @Value("${app.recommendations.build-chunk-size:10000}")
+    private int buildChunkSize;
+
+    private volatile Map<Long, CountMap> matrix = new ConcurrentHashMap<>();
+    private OrderFeed.Cursor cursor;
+
+    // Reading every order takes a while on a large store; the node doesn't wait for it, and
+    // lookups return nothing until the first build is in
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildInBackground() {
+        Thread thread = new Thread(this::rebuild, "recommendations-rebuild");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public synchronized void rebuild() {
+        long started = System.currentTimeMillis();
+        cursor = orderFeed.cursor();
+        Map<Long, CountMap> built = new HashMap<>();
+        List<long[]> chunk = new ArrayList<>();
+        int[] orders = {0};
+        orderFeed.poll(cursor, (order, sign) -> {
+            long[] basket = basket(order);
+            if (basket.length > 1) {
+                chunk.add(basket);
+                orders[0]++;
+                if (chunk.size() >= buildChunkSize) {
+                    merge(built, count(chunk));
+                    chunk.clear();
+                }
+            }
+        });
+        merge(built, count(chunk));
+
+        long entries = 0;
+        for (CountMap neighbors : built.values()) {
+            neighbors.prune(maxNeighbors);
+            entries += neighbors.size;
+        }
+        matrix = new ConcurrentHashMap<>(built);
+        logger.info("Co-occurrence matrix built from {} orders: {} products, {} pairs in {} ms",
+                orders[0], built.size(), entries, System.currentTimeMillis() - started);
+    }
+
+    // Co-occurrence counts within one chunk of baskets. Tasks split the products, not the baskets,
+    // so the chunk needs no merging of its own
+    private Map<Long, CountMap> count(List<long[]> baskets) {
+        Map<Long, int[]> basketsByProduct = invert(baskets);
+        Map<Long, CountMap> counts = new ConcurrentHashMap<>(basketsByProduct.size() * 2);
+        Long[] productIds = basketsByProduct.keySet().toArray(new Long[0]);
+        ForkJoinPool.commonPool().invoke(new BuildTask(productIds, 0, productIds.length, baskets,
+                basketsByProduct, counts, maxNeighbors));
+        return counts;
+    }
+
+    // Adds a chunk's counts to the running ones, trimmed the same way as within a chunk
+    private void merge(Map<Long, CountMap> built, Map<Long, CountMap> partial) {
+        partial.forEach((productId, counts) -> {
+            CountMap neighbors = built.putIfAbsent(productId, counts);
+            if (neighbors != null) {
+                neighbors.addAll(counts);
+                if (neighbors.size > maxNeighbors * 8) {
+                    neighbors.prune(maxNeighbors * 4);
+                }
+            }
+        });
+    }
+
+    @Scheduled(initialDelayString = "${app.recommendations.refresh-interval-ms:30000}",
+            fixedDelayString = "${app.recommendations.refresh-interval-ms:30000}")
+    public synchronized void applyNewOrders() {
+        if (cursor == null) {
+            return;
+        }
+        orderFeed.poll(cursor, (order, sign) -> {
+            long[] basket = basket(order);
+            for (int i = 0; i < basket.length && basket.length > 1; i++) {
+                CountMap neighbors = sign > 0 ? matrix.computeIfAbsent(basket[i], id -> new CountMap(16))
+                        : matrix.get(basket[i]);
+                if (neighbors == null) {
+                    continue;
+                }
+                synchronized (neighbors) {
+                    for (int j = 0; j < basket.length; j++) {
+                        if (i != j) {
+                            if (sign > 0) {
+                                neighbors.add(basket[j], 1);
+                            } else {
+                                neighbors.subtract(basket[j], 1);
+                            }
+                        }
+                    }
+                    if (neighbors.size > maxNeighbors * 2) {
+                        neighbors.prune(maxNeighbors);
+                    }
+                }
+            }
+        });
+    }
+
+    public List<Long> relatedProductIds(Long productId, int limit) {
+        CountMap neighbors = matrix.get(productId);
+        if (neighbors == null) {
+            return List.of();
+        }
+        synchronized (neighbors) {
+            return neighbors.top(limit);
+        }
+    }
+
+    // The order's distinct products, at most max-basket-size of them
+    private long[] basket(OrderFeed.FeedOrder order) {
+        long[] basket = new long[Math.min(order.size(), maxBasketSize)];
+        int size = 0;
+        for (int line = 0; line < order.size() && size < basket.length; line++) {
+            long productId = order.getProductId(line);
+            boolean seen = false;
+            for (int i = 0; i < size && !seen; i++) {
+                seen = basket[i] == productId;
+            }
+            if (!seen) {
+                basket[size++] = productId;
+            }
+        }
+        return size == basket.length ? basket : Arrays.copyOf(basket, size);
+    }
+
+    // For each product, the indexes of the baskets containing it
+    private static Map<Long, int[]> invert(List<long[]> baskets) {
+        Map<Long, int[]> counts = new HashMap<>();
+        for (long[] basket : baskets) {
+            for (long productId : basket) {
+                counts.computeIfAbsent(productId, id -> new int[1])[0]++;
+            }
+        }
+        Map<Long, int[]> postings = new HashMap<>(counts.size() * 2);
+        counts.forEach((productId, count) -> {
+            postings.put(productId, new int[count[0]]);
+            count[0] = 0;
+        });
+        for (int b = 0; b < baskets.size(); b++) {
+            for (long productId : baskets.get(b)) {
+                postings.get(productId)[counts.get(productId)[0]++] = b;
+            }
+        }
+        return postings;
+    }
+
+    private static class BuildTask extends RecursiveAction {
+
+        private static final int SEQUENTIAL_THRESHOLD = 256;
+
+        private final Long[] productIds;
+        private final int from;
+        private final int to;
+        private final List<long[]> baskets;
+        private final Map<Long, int[]> basketsByProduct;
+        private final Map<Long, CountMap> result;
+        private final int maxNeighbors;
+
+        BuildTask(Long[] productIds, int from, int to, List<long[]> baskets, Map<Long, int[]> basketsByProduct,
+                  Map<Long, CountMap> result, int maxNeighbors) {
+            this.productIds = productIds;
+            this.from = from;
+            this.to = to;
+            this.baskets = baskets;
+            this.basketsByProduct = basketsByProduct;
+            this.result = result;
+            this.maxNeighbors = maxNeighbors;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= SEQUENTIAL_THRESHOLD) {
+                for (int p = from; p < to; p++) {
+                    Long productId = productIds[p];
+                    CountMap neighbors = new CountMap(16);
+                    for (int basket : basketsByProduct.get(productId)) {
+                        for (long other : baskets.get(basket)) {
+                            if (other != productId) {
+                                neighbors.add(other, 1);
+                            }
+                        }
+                        // Popular products meet most of the catalog; trimming early keeps each map small
+                        if (neighbors.size > maxNeighbors * 8) {
+                            neighbors.prune(maxNeighbors * 4);
+                        }
+                    }
+                    // Kept wider than max-neighbors until the chunks are merged
+                    neighbors.prune(maxNeighbors * 4);
+                    result.put(productId, neighbors);
+                }
+                return;
+            }
+
+            int mid = (from + to) >>> 1;
+            invokeAll(new BuildTask(productIds, from, mid, baskets, basketsByProduct, result, maxNeighbors),
+                    new BuildTask(productIds, mid, to, baskets, basketsByProduct, result, maxNeighbors));
+        }
+    }
+
+    // Open-addressing long -> int counter; product ids are positive, so 0 marks an empty slot
+    private static final class CountMap {
+
+        private long[] keys;
+        private int[] counts;
+        private int size;
+
+        CountMap(int capacity) {
+            keys = new long[capacity];
+            counts = new int[capacity];
+        }
+
+        void add(long key, int delta) {
+            if ((size + 1) * 4 > keys.length * 3) {
+                resize(keys.length * 2);
+            }
+            int mask = keys.length - 1;
+            int slot = Long.hashCode(key * 0x9E3779B97F4A7C15L) & mask;
+            while (keys[slot] != 0 && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            if (keys[slot] == 0) {
+                keys[slot] = key;
+                size++;
+            }
+            counts[slot] += delta;
+        }
+
+        void addAll(CountMap other) {
+            for (int i = 0; i < other.keys.length; i++) {
+                if (other.keys[i] != 0) {
+                    add(other.keys[i], other.counts[i]);
+                }
+            }
+        }
+
+        // Only lowers a count that is still held; pruned pairs stay dropped
+        void subtract(long key, int delta) {
+            int mask = keys.length - 1;
+            int slot = Long.hashCode(key * 0x9E3779B97F4A7C15L) & mask;
+            while (keys[slot] != 0) {
+                if (keys[slot] == key) {
+                    counts[slot] -= delta;
+                    return;
+                }
+                slot = (slot + 1) & mask;
+            }
+        }
+
+        // Keeps only the keep highest counts
+        void prune(int keep) {
+            if (size <= keep) {
+                return;
+            }
+            int[] order = sortedSlots();
+            long[] oldKeys = keys;
+            int[] oldCounts = counts;
+            keys = new long[Integer.highestOneBit(Math.max(keep, 8) * 2) * 2];
+            counts = new int[keys.length];
+            size = 0;
+            for (int i = 0; i < keep; i++) {
+                add(oldKeys[order[i]], oldCounts[order[i]]);
+            }
+        }
+
+        List<Long> top(int n) {
+            int[] order = sortedSlots();
+            List<Long> result = new ArrayList<>(Math.min(n, order.length));
+            for (int i = 0; i < order.length && i < n && counts[order[i]] > 0; i++) {
+                result.add(keys[order[i]]);
+            }
+            return result;
+        }
+
+        private int[] sortedSlots() {
+            Integer[] slots = new Integer[size];
+            int next = 0;
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != 0) {
+                    slots[next++] = i;
+                }
+            }
+            Arrays.sort(slots, (x, y) -> Integer.compare(counts[y], counts[x]));
+            int[] result = new int[size];
+            for (int i = 0; i < size; i++) {
+                result[i] = slots[i];
+            }
+            return result;
+        }
+
+        private void resize(int capacity) {
+            long[] oldKeys = keys;
+            int[] oldCounts = counts;
+            keys = new long[capacity];
+            counts = new int[capacity];
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0) {
+                    add(oldKeys[i], oldCounts[i]);
+                }
+            }
+        }
+    }
+}
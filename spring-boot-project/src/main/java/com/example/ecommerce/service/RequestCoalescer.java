@@ -0,0 +1,53 @@
+package com.example.ecommerce.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Single-flight execution: while a call for a key is running, identical calls wait for it and
+ * share its result or exception instead of running their own. Nothing is kept once the call
+ * finishes, so results are never staler than an uncoalesced call started at the same moment.
+ * Shared results must be immutable; callers coalesce rendered responses, not managed entities.
+ */
+@Service
+public class RequestCoalescer {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final Map<String, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String endpoint, String key, Supplier<T> call) {
+        String flightKey = endpoint + '\n' + key;
+        CompletableFuture<Object> flight = new CompletableFuture<>();
+        CompletableFuture<Object> running = inFlight.putIfAbsent(flightKey, flight);
+        if (running != null) {
+            meterRegistry.counter("ecommerce.query.coalesced", "endpoint", endpoint).increment();
+            try {
+                return (T) running.join();
+            } catch (CompletionException e) {
+                // Waiters see the leader's own exception, e.g. a query timeout
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+
+        try {
+            T result = call.get();
+            flight.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(flightKey, flight);
+        }
+    }
+}
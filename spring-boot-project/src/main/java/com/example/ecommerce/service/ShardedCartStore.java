@@ -0,0 +1,169 @@
+package com.example.ecommerce.service;
+
+import com.example.ecommerce.config.ShardRouter;
+import com.example.ecommerce.entity.CartItem;
+import com.example.ecommerce.entity.Product;
+import com.example.ecommerce.entity.User;
+import com.example.ecommerce.repository.ProductRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Service;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Write-through cart_items on the shard of each user, for app.sharding.enabled=true where the
+ * JPA store cannot follow. Products come from the catalog in one query per cart, and the
+ * version column is checked on update just as @Version does, so OptimisticRetry still applies.
+ */
+@Service
+@ConditionalOnProperty(prefix = "app.cart", name = "store", havingValue = "sharded")
+public class ShardedCartStore implements CartStore {
+
+    private static final String COLUMNS = "SELECT id, user_id, product_id, quantity, version, added_at FROM cart_items ";
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Override
+    public List<CartItem> findByUser(User user) {
+        List<CartRow> rows = jdbcFor(user).query(COLUMNS + "WHERE user_id = ? ORDER BY id",
+                (rs, rowNum) -> new CartRow(rs), user.getId());
+
+        List<Long> productIds = new ArrayList<>(rows.size());
+        for (CartRow row : rows) {
+            productIds.add(row.productId);
+        }
+        Map<Long, Product> products = new HashMap<>();
+        for (Product product : productRepository.findAllById(productIds)) {
+            products.put(product.getId(), product);
+        }
+
+        List<CartItem> items = new ArrayList<>(rows.size());
+        for (CartRow row : rows) {
+            Product product = products.get(row.productId);
+            if (product != null) {
+                items.add(row.toCartItem(user, product));
+            }
+        }
+        return items;
+    }
+
+    @Override
+    public Optional<CartItem> findById(User user, Long itemId) {
+        List<CartRow> rows = jdbcFor(user).query(COLUMNS + "WHERE id = ?", (rs, rowNum) -> new CartRow(rs), itemId);
+        if (rows.isEmpty()) {
+            return Optional.empty();
+        }
+
+        // Another user's item is returned with its real owner so the caller can refuse it
+        CartRow row = rows.get(0);
+        User owner = user;
+        if (!user.getId().equals(row.userId)) {
+            owner = new User();
+            owner.setId(row.userId);
+        }
+        CartItem item = row.toCartItem(owner, null);
+        return productRepository.findById(row.productId).map(product -> {
+            item.setProduct(product);
+            return item;
+        });
+    }
+
+    @Override
+    public Optional<CartItem> findByUserAndProduct(User user, Product product) {
+        List<CartRow> rows = jdbcFor(user).query(COLUMNS + "WHERE user_id = ? AND product_id = ?",
+                (rs, rowNum) -> new CartRow(rs), user.getId(), product.getId());
+        return rows.stream().findFirst().map(row -> row.toCartItem(user, product));
+    }
+
+    @Override
+    public CartItem save(CartItem cartItem) {
+        JdbcTemplate jdbcTemplate = jdbcFor(cartItem.getUser());
+
+        if (cartItem.getId() == null) {
+            LocalDateTime addedAt = cartItem.getAddedAt() != null ? cartItem.getAddedAt() : LocalDateTime.now();
+            KeyHolder keyHolder = new GeneratedKeyHolder();
+            jdbcTemplate.update(connection -> {
+                PreparedStatement statement = connection.prepareStatement(
+                        "INSERT INTO cart_items (user_id, product_id, quantity, version, added_at) VALUES (?, ?, ?, 0, ?)",
+                        new String[]{"id"});
+                statement.setLong(1, cartItem.getUser().getId());
+                statement.setLong(2, cartItem.getProduct().getId());
+                statement.setInt(3, cartItem.getQuantity());
+                statement.setTimestamp(4, Timestamp.valueOf(addedAt));
+                return statement;
+            }, keyHolder);
+            cartItem.setId(keyHolder.getKey().longValue());
+            cartItem.setVersion(0L);
+            cartItem.setAddedAt(addedAt);
+            return cartItem;
+        }
+
+        int updated = jdbcTemplate.update(
+                "UPDATE cart_items SET quantity = ?, version = version + 1 WHERE id = ? AND version = ?",
+                cartItem.getQuantity(), cartItem.getId(), cartItem.getVersion());
+        if (updated == 0) {
+            throw new ConflictException(cartItem.getId(), findById(cartItem.getUser(), cartItem.getId()).orElse(null));
+        }
+        cartItem.setVersion(cartItem.getVersion() + 1);
+        return cartItem;
+    }
+
+    @Override
+    public void delete(CartItem cartItem) {
+        jdbcFor(cartItem.getUser()).update("DELETE FROM cart_items WHERE id = ? AND user_id = ?",
+                cartItem.getId(), cartItem.getUser().getId());
+    }
+
+    @Override
+    public void deleteByUser(User user) {
+        jdbcFor(user).update("DELETE FROM cart_items WHERE user_id = ?", user.getId());
+    }
+
+    private JdbcTemplate jdbcFor(User user) {
+        return shardRouter.forUser(user.getId()).getJdbcTemplate();
+    }
+
+    private static class CartRow {
+        private final long id;
+        private final long userId;
+        private final long productId;
+        private final int quantity;
+        private final long version;
+        private final LocalDateTime addedAt;
+
+        CartRow(ResultSet rs) throws SQLException {
+            this.id = rs.getLong("id");
+            this.userId = rs.getLong("user_id");
+            this.productId = rs.getLong("product_id");
+            this.quantity = rs.getInt("quantity");
+            this.version = rs.getLong("version");
+            Timestamp added = rs.getTimestamp("added_at");
+            this.addedAt = added != null ? added.toLocalDateTime() : null;
+        }
+
+        CartItem toCartItem(User user, Product product) {
+            CartItem item = new CartItem(user, product, quantity);
+            item.setId(id);
+            item.setVersion(version);
+            item.setAddedAt(addedAt);
+            return item;
+        }
+    }
+}
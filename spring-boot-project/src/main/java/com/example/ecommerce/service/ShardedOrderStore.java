@@ -0,0 +1,135 @@
+package com.example.ecommerce.service;
+
+import com.example.ecommerce.config.ShardRouter;
+import com.example.ecommerce.dto.OrderSummary;
+import com.example.ecommerce.entity.Money;
+import com.example.ecommerce.entity.Order;
+import com.example.ecommerce.entity.OrderItem;
+import com.example.ecommerce.entity.Product;
+import com.example.ecommerce.entity.User;
+import com.example.ecommerce.repository.ProductRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Orders on the shard of their user. A user's own queries touch one shard; admin queries across
+ * users ask every shard in parallel for its first rows and merge them, so a page of n costs
+ * n rows per shard. Products are read from the catalog after the order rows.
+ */
+@Service
+@ConditionalOnProperty(prefix = "app.sharding", name = "enabled", havingValue = "true")
+public class ShardedOrderStore implements OrderStore {
+
+    private static final String SUMMARY_COLUMNS =
+            "SELECT o.id, o.order_date, o.status, o.total_amount, COUNT(i.id) AS item_count " +
+            "FROM orders o LEFT JOIN order_items i ON i.order_id = o.id ";
+    private static final String SUMMARY_ORDER =
+            "GROUP BY o.id, o.order_date, o.status, o.total_amount ORDER BY o.order_date DESC, o.id DESC LIMIT ?";
+
+    private static final RowMapper<OrderSummary> SUMMARY_MAPPER = (rs, rowNum) -> new OrderSummary(
+            rs.getLong("id"), rs.getObject("order_date", LocalDateTime.class),
+            Order.OrderStatus.valueOf(rs.getString("status")), Money.of(rs.getBigDecimal("total_amount")),
+            rs.getLong("item_count"));
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Override
+    public List<OrderSummary> findOrderSummaries(User user, LocalDateTime beforeDate, Long beforeId, int rows) {
+        JdbcTemplate jdbcTemplate = shardRouter.forUser(user.getId()).getJdbcTemplate();
+        if (beforeDate == null) {
+            return jdbcTemplate.query(SUMMARY_COLUMNS + "WHERE o.user_id = ? " + SUMMARY_ORDER,
+                    SUMMARY_MAPPER, user.getId(), rows);
+        }
+        Timestamp before = Timestamp.valueOf(beforeDate);
+        return jdbcTemplate.query(SUMMARY_COLUMNS + "WHERE o.user_id = ? " +
+                        "AND (o.order_date < ? OR (o.order_date = ? AND o.id < ?)) " + SUMMARY_ORDER,
+                SUMMARY_MAPPER, user.getId(), before, before, beforeId, rows);
+    }
+
+    @Override
+    public Optional<Order> findDetail(User user, Long id) {
+        JdbcTemplate jdbcTemplate = shardRouter.forUser(user.getId()).getJdbcTemplate();
+        List<Order> orders = jdbcTemplate.query(
+                "SELECT id, total_amount, status, shipping_address, version, order_date, shipped_date, delivered_date " +
+                "FROM orders WHERE id = ? AND user_id = ?",
+                (rs, rowNum) -> {
+                    Order order = new Order();
+                    order.setId(rs.getLong("id"));
+                    order.setUser(user);
+                    order.setTotalAmount(Money.of(rs.getBigDecimal("total_amount")));
+                    order.setStatus(Order.OrderStatus.valueOf(rs.getString("status")));
+                    order.setShippingAddress(rs.getString("shipping_address"));
+                    order.setVersion(rs.getLong("version"));
+                    order.setOrderDate(rs.getObject("order_date", LocalDateTime.class));
+                    order.setShippedDate(rs.getObject("shipped_date", LocalDateTime.class));
+                    order.setDeliveredDate(rs.getObject("delivered_date", LocalDateTime.class));
+                    return order;
+                },
+                id, user.getId());
+        if (orders.isEmpty()) {
+            return Optional.empty();
+        }
+
+        Order order = orders.get(0);
+        List<Long> productIds = new ArrayList<>();
+        List<OrderItem> items = jdbcTemplate.query(
+                "SELECT id, product_id, quantity, price FROM order_items WHERE order_id = ? ORDER BY id",
+                (rs, rowNum) -> {
+                    productIds.add(rs.getLong("product_id"));
+                    OrderItem item = new OrderItem(order, null, rs.getInt("quantity"), Money.of(rs.getBigDecimal("price")));
+                    item.setId(rs.getLong("id"));
+                    return item;
+                },
+                id);
+
+        Map<Long, Product> products = new HashMap<>();
+        for (Product product : productRepository.findAllById(productIds)) {
+            products.put(product.getId(), product);
+        }
+        Set<OrderItem> orderItems = new LinkedHashSet<>();
+        for (int i = 0; i < items.size(); i++) {
+            items.get(i).setProduct(products.get(productIds.get(i)));
+            orderItems.add(items.get(i));
+        }
+        order.setOrderItems(orderItems);
+        return Optional.of(order);
+    }
+
+    @Override
+    public List<OrderSummary> findOrderSummariesByStatus(Order.OrderStatus status, int rows) {
+        List<OrderSummary> merged = new ArrayList<>();
+        for (List<OrderSummary> shardRows : shardRouter.scatter(shard -> shard.getJdbcTemplate().query(
+                SUMMARY_COLUMNS + "WHERE o.status = ? " + SUMMARY_ORDER, SUMMARY_MAPPER, status.name(), rows))) {
+            merged.addAll(shardRows);
+        }
+        merged.sort(OrderSummary.NEWEST_FIRST);
+        return merged.size() > rows ? new ArrayList<>(merged.subList(0, rows)) : merged;
+    }
+
+    @Override
+    public long countByStatus(Order.OrderStatus status) {
+        long total = 0;
+        for (Long count : shardRouter.scatter(shard -> shard.getJdbcTemplate().queryForObject(
+                "SELECT COUNT(*) FROM orders WHERE status = ?", Long.class, status.name()))) {
+            total += count;
+        }
+        return total;
+    }
+}
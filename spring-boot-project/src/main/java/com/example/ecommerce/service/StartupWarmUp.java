@@ -0,0 +1,299 @@
+package com.example.ecommerce.service;
+
+import com.example.ecommerce.config.ShardRouter;
+import com.example.ecommerce.entity.CartItem;
+import com.example.ecommerce.entity.Product;
+import com.example.ecommerce.entity.User;
+import com.example.ecommerce.repository.ProductRepository;
+import com.example.ecommerce.repository.UserRepository;
+import com.example.ecommerce.security.JwtUtils;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zaxxer.hikari.HikariDataSource;
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs representative work in-process before the node reports ready, so the first real requests
+ * don't pay for a cold JIT, empty Hibernate query plan cache, unopened pool connections and
+ * unbuilt Jackson serializers. Runs on ApplicationReadyEvent; readiness only switches to
+ * ACCEPTING_TRAFFIC once every ready listener has returned.
+ *
+ * Phases run in rounds, one pass of each per round, until app.warm-up.rounds is reached or the
+ * time budget runs out, so a short budget still touches every phase. Everything is read-only.
+ */
+@Service
+public class StartupWarmUp {
+
+    private static final Logger logger = LoggerFactory.getLogger(StartupWarmUp.class);
+
+    // Product list sorts the controller accepts; all backed by indexes
+    private static final List<String> SORTS = List.of("id", "name", "price", "createdAt");
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ProductProjection productProjection;
+
+    @Autowired
+    private ProductJsonCache productJsonCache;
+
+    @Autowired
+    private QueryGuard queryGuard;
+
+    @Autowired
+    private CartStore cartStore;
+
+    @Autowired
+    private JwtUtils jwtUtils;
+
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+
+    @Autowired
+    private UserDetailsServiceImpl userDetailsService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.warm-up.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.warm-up.budget:20s}")
+    private Duration budget;
+
+    @Value("${app.warm-up.rounds:200}")
+    private int rounds;
+
+    @Value("${app.warm-up.users:20}")
+    private int sampleUsers;
+
+    @Value("${app.warm-up.connections:10}")
+    private int connections;
+
+    private final Map<String, PhaseTiming> timings = new LinkedHashMap<>();
+    private List<String> categories;
+    private List<User> users;
+    private List<Product> products;
+    private List<CartItem> cartItems;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (!enabled) {
+            return;
+        }
+        long started = System.nanoTime();
+        long deadline = started + budget.toNanos();
+        timings.clear();
+
+        try {
+            phase("connections", this::openConnections);
+            categories = productRepository.findDistinctCategories();
+            users = userRepository.findAll(PageRequest.of(0, sampleUsers, Sort.by("id"))).getContent();
+        } catch (RuntimeException e) {
+            logger.warn("Warm-up skipped, sample data could not be loaded: {}", e.getMessage());
+            return;
+        }
+
+        int round = 0;
+        while (round < rounds && System.nanoTime() < deadline) {
+            final int current = round;
+            phase("product-queries", () -> productQueries(current));
+            phase("cart-queries", () -> cartQueries(current));
+            phase("jwt", () -> jwt(current));
+            phase("json", this::json);
+            round++;
+        }
+
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("Warm-up finished: %d of %d rounds in %d ms%s%n", round, rounds,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started),
+                round < rounds ? " (budget " + budget.toMillis() + " ms used up)" : ""));
+        timings.forEach((name, timing) -> report.append(String.format(
+                "  %-16s %5d runs  %9.1f ms total  first %7.2f ms  last %7.2f ms%s%n",
+                name, timing.runs, timing.totalNanos / 1e6, timing.firstNanos / 1e6, timing.lastNanos / 1e6,
+                timing.failures > 0 ? "  (" + timing.failures + " failed)" : "")));
+        logger.info(report.toString());
+
+        users = null;
+        products = null;
+        cartItems = null;
+    }
+
+    private void phase(String name, Runnable work) {
+        PhaseTiming timing = timings.computeIfAbsent(name, n -> new PhaseTiming());
+        long started = System.nanoTime();
+        try {
+            work.run();
+        } catch (RuntimeException e) {
+            // A failing phase must not keep the node from becoming ready
+            if (timing.failures++ == 0) {
+                logger.warn("Warm-up phase {} failed: {}", name, e.toString());
+            }
+        }
+        long elapsed = System.nanoTime() - started;
+        if (timing.runs++ == 0) {
+            timing.firstNanos = elapsed;
+        }
+        timing.lastNanos = elapsed;
+        timing.totalNanos += elapsed;
+        meterRegistry.timer("ecommerce.warmup.phase", "phase", name).record(elapsed, TimeUnit.NANOSECONDS);
+    }
+
+    // Holds the connections together so each pool opens that many instead of reusing one
+    private void openConnections() {
+        Set<DataSource> dataSources = new LinkedHashSet<>();
+        dataSources.add(jdbcTemplate.getDataSource());
+        for (ShardRouter.Shard shard : shardRouter.all()) {
+            dataSources.add(shard.getJdbcTemplate().getDataSource());
+        }
+        for (DataSource dataSource : dataSources) {
+            int count = dataSource instanceof HikariDataSource hikari
+                    ? Math.min(connections, hikari.getMaximumPoolSize()) : connections;
+            List<Connection> opened = new ArrayList<>(count);
+            try {
+                for (int i = 0; i < count; i++) {
+                    Connection connection = dataSource.getConnection();
+                    opened.add(connection);
+                    connection.isValid(1);
+                }
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            } finally {
+                for (Connection connection : opened) {
+                    try {
+                        connection.close();
+                    } catch (SQLException e) {
+                        logger.debug("Closing warm-up connection failed", e);
+                    }
+                }
+            }
+        }
+    }
+
+    // The filter combinations of GET /api/products, through the same guard, projection and JSON cache
+    private void productQueries(int round) {
+        String category = categories.isEmpty() ? null : categories.get(round % categories.size());
+        String sort = SORTS.get(round % SORTS.size());
+        Sort.Direction direction = round % 2 == 0 ? Sort.Direction.ASC : Sort.Direction.DESC;
+        Sort order = "id".equals(sort) ? Sort.by(direction, "id") : Sort.by(direction, sort).and(Sort.by(direction, "id"));
+        Pageable pageable = PageRequest.of(round % 3, 10, order);
+
+        BigDecimal minPrice = round % 4 == 1 ? BigDecimal.valueOf(10) : null;
+        BigDecimal maxPrice = round % 4 == 2 ? BigDecimal.valueOf(500) : null;
+        String name = round % 5 == 3 ? "a" : null;
+
+        Page<Product> all = queryGuard.execute("product-list", () ->
+                productRepository.findProductsWithFilters(null, null, null, null, pageable));
+        productJsonCache.toJsonPage(all);
+        Page<Product> filtered = queryGuard.execute("product-list", () ->
+                productRepository.findProductsWithFilters(name, category, minPrice, maxPrice, pageable));
+        productJsonCache.toJsonPage(filtered);
+        queryGuard.execute("product-list", () -> productProjection.findProductsWithFilters(
+                List.of("id", "name", "price", "inStock"), name, category, minPrice, maxPrice, pageable));
+
+        if (!all.isEmpty()) {
+            productRepository.findById(all.getContent().get(round % all.getNumberOfElements()).getId());
+            products = all.getContent();
+        }
+    }
+
+    // Items are loaded with their products, as GET /api/cart does inside the request's session
+    private void cartQueries(int round) {
+        if (users.isEmpty()) {
+            return;
+        }
+        User user = users.get(round % users.size());
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setReadOnly(true);
+        List<CartItem> items = transaction.execute(status -> {
+            List<CartItem> loaded = cartStore.findByUser(user);
+            for (CartItem item : loaded) {
+                item.getSubtotalCents();
+            }
+            return loaded;
+        });
+        if (!items.isEmpty()) {
+            cartItems = items;
+        }
+    }
+
+    // What JwtAuthTokenFilter does per request, plus token generation at sign-in
+    private void jwt(int round) {
+        if (users.isEmpty()) {
+            return;
+        }
+        String username = users.get(round % users.size()).getUsername();
+        String token = jwtUtils.generateTokenFromUsername(username);
+        Claims claims = jwtUtils.parseJwtClaims(token);
+        if (claims != null && !tokenRevocationService.isRevoked(claims)) {
+            userDetailsService.loadUserByUsername(claims.getSubject());
+        }
+    }
+
+    private void json() {
+        try {
+            if (products != null) {
+                for (Product product : products) {
+                    objectMapper.writeValueAsBytes(product);
+                }
+            }
+            if (cartItems != null) {
+                objectMapper.writeValueAsBytes(cartItems);
+            }
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static class PhaseTiming {
+        private int runs;
+        private int failures;
+        private long firstNanos;
+        private long lastNanos;
+        private long totalNanos;
+    }
+}
@@ -0,0 +1,456 @@
+package com.example.ecommerce.service;
+
+import com.example.ecommerce.entity.StockMovement;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Stock as an append-only ledger. Every change is a stock_movements row; a product's stock is
+ * its last snapshot (or products.stock_quantity, the opening balance, before the first one) plus
+ * the movements after it. Appends from all callers are queued and written by a single thread as
+ * one batch insert per transaction, so a hot SKU never has its row locked by a writer.
+ *
+ * Decrements that must not go below zero are checked under a per-product lock and stay counted
+ * while their batch is in flight. products.stock_quantity is rewritten only by the snapshot
+ * job, which makes it a display copy that lags by up to one snapshot interval.
+ */
+@Service
+public class StockLedger {
+
+    private static final Logger logger = LoggerFactory.getLogger(StockLedger.class);
+
+    private static final int LOCK_STRIPES = 256;
+
+    // Last snapshot (or the opening balance) plus the movements after it
+    private static final String STOCK =
+            "COALESCE(s.balance, p.stock_quantity) + COALESCE((SELECT SUM(m.delta) FROM stock_movements m " +
+            "WHERE m.product_id = p.id AND m.id > COALESCE(s.movement_id, 0)), 0)";
+    private static final String INSERT_MOVEMENT =
+            "INSERT INTO stock_movements (product_id, delta, type, reference, created_at) VALUES (?, ?, ?, ?, ?)";
+    private static final String STOCK_COLUMNS =
+            "SELECT p.id, " + STOCK + " AS stock FROM products p LEFT JOIN stock_snapshots s ON s.product_id = p.id ";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ProductJsonCache productJsonCache;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.stock-ledger.batch-size:500}")
+    private int batchSize;
+
+    @Value("${app.stock-ledger.append-timeout-ms:10000}")
+    private long appendTimeoutMs;
+
+    private final BlockingQueue<Append> queue = new LinkedBlockingQueue<>();
+    private final ReentrantLock[] locks = new ReentrantLock[LOCK_STRIPES];
+    private final Map<Long, Long> inFlightDecrements = new ConcurrentHashMap<>();
+    private volatile boolean running = true;
+    private Thread writer;
+
+    // Movements up to snapshotWatermark are folded into snapshots; see takeSnapshots
+    private long snapshotWatermark;
+    private long lastSeenMovementId;
+
+    public StockLedger() {
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        writer = new Thread(this::writeLoop, "stock-ledger-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        writer.join(5000);
+        failPending(new IllegalStateException("Stock ledger is shut down"));
+    }
+
+    /**
+     * Current stock for the given products, including decrements accepted but not yet committed.
+     * Unknown product ids are absent from the result.
+     */
+    public Map<Long, Long> currentStock(Collection<Long> productIds) {
+        Map<Long, Long> stock = new HashMap<>();
+        if (productIds.isEmpty()) {
+            return stock;
+        }
+        List<Long> ids = new ArrayList<>(new LinkedHashSet<>(productIds));
+        // Read before the balances: a batch committing in between is then counted twice, never missed
+        Map<Long, Long> inFlight = new HashMap<>();
+        for (Long id : ids) {
+            inFlight.put(id, inFlightDecrements.getOrDefault(id, 0L));
+        }
+        jdbcTemplate.query(STOCK_COLUMNS + "WHERE p.id IN (" + placeholders(ids.size()) + ")",
+                rs -> {
+                    long id = rs.getLong("id");
+                    stock.put(id, rs.getLong("stock") + inFlight.get(id));
+                },
+                ids.toArray());
+        return stock;
+    }
+
+    /**
+     * Products whose current stock, as currentStock computes it, is below the threshold, by id.
+     */
+    public Map<Long, Long> stockBelow(long threshold) {
+        // In-flight decrements only lower stock, so the query widens the bound by the largest one
+        Map<Long, Long> inFlight = new HashMap<>(inFlightDecrements);
+        long widest = 0;
+        for (long decrement : inFlight.values()) {
+            widest = Math.min(widest, decrement);
+        }
+        Map<Long, Long> stock = new LinkedHashMap<>();
+        jdbcTemplate.query(STOCK_COLUMNS + "WHERE " + STOCK + " < ? ORDER BY p.id", rs -> {
+            long id = rs.getLong("id");
+            long current = rs.getLong("stock") + inFlight.getOrDefault(id, 0L);
+            if (current < threshold) {
+                stock.put(id, current);
+            }
+        }, threshold - widest);
+        return stock;
+    }
+
+    public boolean hasStock(Long productId, int quantity) {
+        return currentStock(List.of(productId)).getOrDefault(productId, 0L) >= quantity;
+    }
+
+    /**
+     * Appends movements without checking the balance, e.g. restocks. Returns once they are committed,
+     * or throws if the writer has not committed them within append-timeout-ms.
+     */
+    public void append(List<StockMovement> movements) {
+        if (movements.isEmpty()) {
+            return;
+        }
+        if (!running) {
+            throw new IllegalStateException("Stock ledger is shut down");
+        }
+        Append append = new Append(movements);
+        queue.add(append);
+        try {
+            append.done.get(appendTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("Stock ledger did not commit the movements within " + appendTimeoutMs + " ms", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the stock ledger", e);
+        }
+    }
+
+    /**
+     * Appends the movements that keep their product's stock at or above zero, applied in list
+     * order, and returns the rest. Movements for unknown products are returned too.
+     */
+    public List<StockMovement> appendIfAvailable(List<StockMovement> movements) {
+        List<Long> productIds = new ArrayList<>(movements.size());
+        for (StockMovement movement : movements) {
+            productIds.add(movement.getProductId());
+        }
+
+        List<StockMovement> accepted = new ArrayList<>();
+        List<StockMovement> rejected = new ArrayList<>();
+        List<ReentrantLock> held = lock(productIds);
+        try {
+            Map<Long, Long> balances = currentStock(productIds);
+            for (StockMovement movement : movements) {
+                Long balance = balances.get(movement.getProductId());
+                if (balance == null || balance + movement.getDelta() < 0) {
+                    rejected.add(movement);
+                    continue;
+                }
+                balances.put(movement.getProductId(), balance + movement.getDelta());
+                accepted.add(movement);
+                if (movement.getDelta() < 0) {
+                    inFlightDecrements.merge(movement.getProductId(), (long) movement.getDelta(), Long::sum);
+                }
+            }
+        } finally {
+            unlock(held);
+        }
+
+        // Until the batch is committed and visible, other checks see these decrements through
+        // inFlightDecrements. For a moment they are counted twice, which only errs towards rejecting.
+        try {
+            append(accepted);
+        } finally {
+            for (StockMovement movement : accepted) {
+                if (movement.getDelta() < 0) {
+                    releaseInFlight(movement.getProductId(), movement.getDelta());
+                }
+            }
+        }
+        return rejected;
+    }
+
+    /**
+     * Records the adjustment that brings a product to the given stock level and returns its delta.
+     * The movement is inserted in the caller's transaction, not through the writer, so it commits
+     * or rolls back together with the caller's other changes. The product's lock is held until the
+     * transaction completes, and a lowering adjustment counts as in flight until then.
+     */
+    public long setStock(Long productId, int target, String reference) {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("setStock must run inside a transaction");
+        }
+        List<ReentrantLock> held = lock(List.of(productId));
+        long[] decrement = {0};
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                releaseInFlight(productId, decrement[0]);
+                unlock(held);
+            }
+        });
+
+        Long current = currentStock(List.of(productId)).get(productId);
+        if (current == null) {
+            throw new IllegalArgumentException("Unknown product: " + productId);
+        }
+        long delta = target - current;
+        if (delta != 0) {
+            StockMovement adjustment = new StockMovement(productId, Math.toIntExact(delta),
+                    StockMovement.MovementType.ADJUSTMENT, reference);
+            if (delta < 0) {
+                inFlightDecrements.merge(productId, delta, Long::sum);
+                decrement[0] = delta;
+            }
+            jdbcTemplate.batchUpdate(INSERT_MOVEMENT, List.<Object[]>of(row(adjustment)));
+            meterRegistry.counter("ecommerce.stock.movements", "type", adjustment.getType().name()).increment();
+        }
+        return delta;
+    }
+
+    /**
+     * Folds committed movements into per-product snapshots and copies the new balances to
+     * products.stock_quantity. Only movements up to the highest id seen on the previous run are
+     * folded: identity values are handed out before commit, so a lower id can become visible
+     * after a higher one, but not a whole interval later.
+     */
+    @Scheduled(initialDelayString = "${app.stock-ledger.snapshot-interval-ms:15000}",
+               fixedDelayString = "${app.stock-ledger.snapshot-interval-ms:15000}")
+    public synchronized void takeSnapshots() {
+        long watermark = lastSeenMovementId;
+        lastSeenMovementId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM stock_movements", Long.class);
+        if (watermark <= snapshotWatermark) {
+            return;
+        }
+
+        List<Long> productIds = jdbcTemplate.queryForList(
+                "SELECT DISTINCT product_id FROM stock_movements WHERE id > ? AND id <= ? ORDER BY product_id",
+                Long.class, snapshotWatermark, watermark);
+        int snapshotted = 0;
+        for (int from = 0; from < productIds.size(); from += batchSize) {
+            List<Long> chunk = productIds.subList(from, Math.min(from + batchSize, productIds.size()));
+            List<Long> changed = transactionTemplate.execute(status -> snapshotChunk(chunk, watermark));
+            changed.forEach(productJsonCache::evict);
+            snapshotted += changed.size();
+        }
+        snapshotWatermark = watermark;
+        logger.info("Snapshotted stock for {} products up to movement {}", snapshotted, watermark);
+    }
+
+    private List<Long> snapshotChunk(List<Long> productIds, long watermark) {
+        String in = placeholders(productIds.size());
+        Object[] ids = productIds.toArray();
+
+        // Locking the product rows keeps snapshot runs on other nodes from folding the same movements twice
+        Map<Long, Integer> opening = new HashMap<>();
+        jdbcTemplate.query("SELECT id, stock_quantity FROM products WHERE id IN (" + in + ") ORDER BY id FOR UPDATE",
+                rs -> { opening.put(rs.getLong("id"), rs.getInt("stock_quantity")); }, ids);
+        Map<Long, Integer> balances = new HashMap<>();
+        jdbcTemplate.query("SELECT product_id, balance FROM stock_snapshots WHERE product_id IN (" + in + ")",
+                rs -> { balances.put(rs.getLong("product_id"), rs.getInt("balance")); }, ids);
+        Map<Long, Long> deltas = new HashMap<>();
+        Object[] args = new Object[ids.length + 1];
+        System.arraycopy(ids, 0, args, 0, ids.length);
+        args[ids.length] = watermark;
+        jdbcTemplate.query(
+                "SELECT m.product_id, SUM(m.delta) AS delta FROM stock_movements m " +
+                "LEFT JOIN stock_snapshots s ON s.product_id = m.product_id " +
+                "WHERE m.product_id IN (" + in + ") AND m.id > COALESCE(s.movement_id, 0) AND m.id <= ? GROUP BY m.product_id",
+                rs -> { deltas.put(rs.getLong("product_id"), rs.getLong("delta")); }, args);
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> inserts = new ArrayList<>();
+        List<Object[]> updates = new ArrayList<>();
+        List<Object[]> products = new ArrayList<>();
+        List<Long> changed = new ArrayList<>();
+        for (Long productId : productIds) {
+            Long delta = deltas.get(productId);
+            if (delta == null || !opening.containsKey(productId)) {
+                continue;
+            }
+            Integer previous = balances.get(productId);
+            int balance = Math.toIntExact((previous != null ? previous : opening.get(productId)) + delta);
+            if (previous != null) {
+                updates.add(new Object[]{balance, watermark, now, productId});
+            } else {
+                inserts.add(new Object[]{productId, balance, watermark, now});
+            }
+            products.add(new Object[]{balance, productId});
+            changed.add(productId);
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO stock_snapshots (product_id, balance, movement_id, taken_at) VALUES (?, ?, ?, ?)", inserts);
+        jdbcTemplate.batchUpdate("UPDATE stock_snapshots SET balance = ?, movement_id = ?, taken_at = ? WHERE product_id = ?", updates);
+        // Stock alone: version and updated_at belong to catalog edits, so snapshots neither conflict with
+        // an admin's edit nor show up in the change feed; the JSON cache entries are evicted by the caller
+        jdbcTemplate.batchUpdate("UPDATE products SET stock_quantity = ? WHERE id = ?", products);
+        return changed;
+    }
+
+    private void writeLoop() {
+        List<Append> batch = new ArrayList<>();
+        while (running || !queue.isEmpty()) {
+            try {
+                Append first = queue.poll(200, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                write(batch);
+            } catch (InterruptedException e) {
+                // Nobody will write what is queued, so its callers fail now instead of waiting out their timeout
+                running = false;
+                IllegalStateException stopped = new IllegalStateException("Stock ledger writer was interrupted");
+                batch.forEach(append -> append.done.completeExceptionally(stopped));
+                failPending(stopped);
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                logger.error("Stock ledger writer failed", e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void releaseInFlight(Long productId, long delta) {
+        if (delta == 0) {
+            return;
+        }
+        inFlightDecrements.computeIfPresent(productId, (id, sum) -> {
+            long remaining = sum - delta;
+            return remaining == 0 ? null : remaining;
+        });
+    }
+
+    private void failPending(RuntimeException cause) {
+        List<Append> pending = new ArrayList<>();
+        queue.drainTo(pending);
+        pending.forEach(append -> append.done.completeExceptionally(cause));
+    }
+
+    private void write(List<Append> batch) {
+        try {
+            insert(batch);
+            batch.forEach(append -> append.done.complete(null));
+        } catch (RuntimeException e) {
+            if (batch.size() == 1) {
+                batch.get(0).done.completeExceptionally(e);
+                return;
+            }
+            // One bad append must not fail the callers it happened to share a batch with
+            for (Append append : batch) {
+                write(List.of(append));
+            }
+        }
+    }
+
+    private void insert(List<Append> batch) {
+        List<Object[]> rows = new ArrayList<>();
+        for (Append append : batch) {
+            for (StockMovement movement : append.movements) {
+                rows.add(row(movement));
+            }
+        }
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(INSERT_MOVEMENT, rows));
+        meterRegistry.summary("ecommerce.stock.ledger.batch").record(rows.size());
+        for (Object[] row : rows) {
+            meterRegistry.counter("ecommerce.stock.movements", "type", (String) row[2]).increment();
+        }
+    }
+
+    // Stripes are taken in index order so two callers can never wait on each other
+    private List<ReentrantLock> lock(Collection<Long> productIds) {
+        TreeSet<Integer> stripes = new TreeSet<>();
+        for (Long productId : productIds) {
+            stripes.add(Math.floorMod(Long.hashCode(productId), LOCK_STRIPES));
+        }
+        List<ReentrantLock> held = new ArrayList<>(stripes.size());
+        for (int stripe : stripes) {
+            locks[stripe].lock();
+            held.add(locks[stripe]);
+        }
+        return held;
+    }
+
+    private void unlock(List<ReentrantLock> held) {
+        Collections.reverse(held);
+        held.forEach(ReentrantLock::unlock);
+    }
+
+    private static Object[] row(StockMovement movement) {
+        return new Object[]{movement.getProductId(), movement.getDelta(), movement.getType().name(),
+                movement.getReference(), Timestamp.valueOf(movement.getCreatedAt())};
+    }
+
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+
+    private static class Append {
+        private final List<StockMovement> movements;
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        private Append(List<StockMovement> movements) {
+            this.movements = movements;
+        }
+    }
+}
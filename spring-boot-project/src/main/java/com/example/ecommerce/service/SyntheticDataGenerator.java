@@ -0,0 +1,356 @@
+package com.example.ecommerce.service;
+
+import com.example.ecommerce.config.ShardRouter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Fills the database with a production-sized, skewed dataset on start-up
+ * (app.data-generator.enabled=true). Product popularity and orders per user follow Zipf
+ * distributions, so a few products and customers dominate as they do in real traffic.
+ * Rows are written with explicit ids in batched JDBC inserts, one transaction per batch,
+ * and the identity columns are moved past the generated ids afterwards. Orders and cart items
+ * go to the shard of their user.
+ */
+@Service
+@ConditionalOnProperty(prefix = "app.data-generator", name = "enabled", havingValue = "true")
+public class SyntheticDataGenerator implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(SyntheticDataGenerator.class);
+
+    private static final String[] CATEGORIES = {"Electronics", "Clothing", "Home & Kitchen", "Books", "Sports",
+            "Toys", "Beauty", "Automotive", "Garden", "Grocery", "Health", "Office", "Pet Supplies", "Music",
+            "Movies", "Jewelry", "Shoes", "Baby", "Tools", "Outdoors"};
+    private static final String[] ADJECTIVES = {"Classic", "Premium", "Compact", "Wireless", "Organic", "Ultra",
+            "Portable", "Vintage", "Smart", "Eco", "Deluxe", "Essential", "Pro", "Mini", "Heavy-Duty", "Soft"};
+    private static final String[] NOUNS = {"Speaker", "Jacket", "Blender", "Novel", "Backpack", "Puzzle",
+            "Serum", "Charger", "Planter", "Coffee", "Vitamins", "Notebook", "Leash", "Headphones", "Lamp",
+            "Watch", "Sneakers", "Stroller", "Drill", "Tent"};
+    private static final String[] STATUSES = {"DELIVERED", "SHIPPED", "CONFIRMED", "PENDING", "CANCELLED"};
+    private static final int[] STATUS_WEIGHTS = {60, 10, 10, 15, 5};
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Value("${app.data-generator.users:10000}")
+    private int userCount;
+
+    @Value("${app.data-generator.products:5000}")
+    private int productCount;
+
+    @Value("${app.data-generator.orders:50000}")
+    private int orderCount;
+
+    @Value("${app.data-generator.cart-items:20000}")
+    private int cartItemCount;
+
+    @Value("${app.data-generator.product-skew:1.1}")
+    private double productSkew;
+
+    @Value("${app.data-generator.user-skew:1.2}")
+    private double userSkew;
+
+    @Value("${app.data-generator.batch-size:5000}")
+    private int batchSize;
+
+    @Value("${app.data-generator.seed:42}")
+    private long seed;
+
+    @Value("${app.data-generator.password:password123}")
+    private String password;
+
+    private final LocalDateTime now = LocalDateTime.now();
+
+    @Override
+    public void run(ApplicationArguments args) {
+        long started = System.currentTimeMillis();
+        Random random = new Random(seed);
+
+        long firstUserId = nextId("users");
+        long firstProductId = nextId("products");
+        long firstOrderId = shardRouter.nextId("orders");
+        long firstOrderItemId = shardRouter.nextId("order_items");
+        long firstCartItemId = shardRouter.nextId("cart_items");
+
+        generateUsers(firstUserId);
+        long[] priceCents = generateProducts(firstProductId, random);
+
+        ZipfSampler products = new ZipfSampler(productCount, productSkew);
+        ZipfSampler customers = new ZipfSampler(userCount, userSkew);
+        long orderItems = generateOrders(firstOrderId, firstOrderItemId, firstUserId, firstProductId,
+                priceCents, products, customers, random);
+        generateCartItems(firstCartItemId, firstUserId, firstProductId, products, random);
+
+        restartIdentity("users", firstUserId + userCount);
+        restartIdentity("products", firstProductId + productCount);
+        shardRouter.restartIdentity("orders", firstOrderId + orderCount);
+        shardRouter.restartIdentity("order_items", firstOrderItemId + orderItems);
+        shardRouter.restartIdentity("cart_items", firstCartItemId + cartItemCount);
+
+        logger.info("Synthetic dataset loaded in {} s", (System.currentTimeMillis() - started) / 1000.0);
+    }
+
+    private void generateUsers(long firstId) {
+        // One hash for everyone: BCrypt per row would dominate the load time
+        String passwordHash = passwordEncoder.encode(password);
+        BatchWriter users = new BatchWriter("users",
+                "INSERT INTO users (id, name, email, password, role, created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?)");
+        Random random = new Random(seed + 1);
+        for (int i = 0; i < userCount; i++) {
+            long id = firstId + i;
+            Timestamp createdAt = pastTimestamp(random, 730);
+            users.add(id, "Customer " + id, "customer" + id + "@example.test", passwordHash, "CUSTOMER",
+                    createdAt, createdAt);
+        }
+        users.finish();
+    }
+
+    private long[] generateProducts(long firstId, Random random) {
+        long[] priceCents = new long[productCount];
+        ZipfSampler categories = new ZipfSampler(CATEGORIES.length, 0.8);
+        BatchWriter products = new BatchWriter("products",
+                "INSERT INTO products (id, name, description, price, stock_quantity, category, image_url, active, version, created_at, updated_at) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?, ?, 0, ?, ?)");
+        for (int i = 0; i < productCount; i++) {
+            long id = firstId + i;
+            String name = ADJECTIVES[random.nextInt(ADJECTIVES.length)] + " " + NOUNS[random.nextInt(NOUNS.length)] + " " + id;
+            // Log-normal prices: mostly under $100 with a long tail of expensive items
+            priceCents[i] = Math.max(99, Math.min(500_000, Math.round(Math.exp(3.5 + random.nextGaussian()) * 100)));
+            Timestamp createdAt = pastTimestamp(random, 730);
+            products.add(id, name, "Synthetic product " + name.toLowerCase(Locale.ROOT), BigDecimal.valueOf(priceCents[i], 2),
+                    random.nextInt(500), CATEGORIES[categories.sample(random)], "https://example.com/p/" + id + ".jpg",
+                    random.nextInt(100) >= 3, createdAt, createdAt);
+        }
+        products.finish();
+        return priceCents;
+    }
+
+    private long generateOrders(long firstOrderId, long firstOrderItemId, long firstUserId, long firstProductId,
+                                long[] priceCents, ZipfSampler products, ZipfSampler customers, Random random) {
+        BatchWriter[] orderWriters = new BatchWriter[shardRouter.size()];
+        BatchWriter[] orderItemWriters = new BatchWriter[shardRouter.size()];
+        for (ShardRouter.Shard shard : shardRouter.all()) {
+            orderWriters[shard.getIndex()] = new BatchWriter("orders",
+                    "INSERT INTO orders (id, user_id, total_amount, status, shipping_address, version, order_date, updated_at) VALUES (?, ?, ?, ?, ?, 0, ?, ?)",
+                    shard, null);
+            orderItemWriters[shard.getIndex()] = new BatchWriter("order_items",
+                    "INSERT INTO order_items (id, order_id, product_id, quantity, price) VALUES (?, ?, ?, ?, ?)",
+                    shard, orderWriters[shard.getIndex()]);
+        }
+        long orderItemId = firstOrderItemId;
+        Set<Integer> basket = new HashSet<>();
+
+        for (int i = 0; i < orderCount; i++) {
+            long orderId = firstOrderId + i;
+            // Geometric basket size, mean about 2.5 items
+            int size = 1;
+            while (size < 20 && random.nextDouble() < 0.6) {
+                size++;
+            }
+            basket.clear();
+            while (basket.size() < Math.min(size, productCount)) {
+                basket.add(products.sample(random));
+            }
+
+            long totalCents = 0;
+            int[] quantities = new int[basket.size()];
+            int line = 0;
+            for (int product : basket) {
+                quantities[line] = 1 + (random.nextInt(10) == 0 ? random.nextInt(4) : 0);
+                totalCents += priceCents[product] * quantities[line++];
+            }
+
+            long userId = firstUserId + scatter(customers.sample(random), userCount);
+            int shard = shardRouter.shardOf(userId);
+            Timestamp orderDate = pastTimestamp(random, 730);
+            orderWriters[shard].add(orderId, userId, BigDecimal.valueOf(totalCents, 2), weightedStatus(random),
+                    (100 + random.nextInt(9900)) + " Synthetic St, Springfield", orderDate, orderDate);
+
+            line = 0;
+            for (int product : basket) {
+                orderItemWriters[shard].add(orderItemId++, orderId, firstProductId + product, quantities[line++],
+                        BigDecimal.valueOf(priceCents[product], 2));
+            }
+        }
+        for (int shard = 0; shard < shardRouter.size(); shard++) {
+            orderWriters[shard].finish();
+            orderItemWriters[shard].finish();
+        }
+        return orderItemId - firstOrderItemId;
+    }
+
+    // Carts are spread over distinct users with distinct products, as the cart store expects
+    private void generateCartItems(long firstId, long firstUserId, long firstProductId, ZipfSampler products,
+                                   Random random) {
+        BatchWriter[] cartItemWriters = new BatchWriter[shardRouter.size()];
+        for (ShardRouter.Shard shard : shardRouter.all()) {
+            cartItemWriters[shard.getIndex()] = new BatchWriter("cart_items",
+                    "INSERT INTO cart_items (id, user_id, product_id, quantity, version, added_at, updated_at) VALUES (?, ?, ?, ?, 0, ?, ?)",
+                    shard, null);
+        }
+        Set<Integer> cart = new HashSet<>();
+        int written = 0;
+        for (int user = 0; user < userCount && written < cartItemCount; user++) {
+            int lines = Math.min(1 + random.nextInt(5), cartItemCount - written);
+            long userId = firstUserId + scatter(user, userCount);
+            BatchWriter cartItems = cartItemWriters[shardRouter.shardOf(userId)];
+            cart.clear();
+            while (cart.size() < Math.min(lines, productCount)) {
+                int product = products.sample(random);
+                if (cart.add(product)) {
+                    Timestamp addedAt = pastTimestamp(random, 60);
+                    cartItems.add(firstId + written++, userId, firstProductId + product,
+                            1 + random.nextInt(3), addedAt, addedAt);
+                }
+            }
+        }
+        for (BatchWriter cartItems : cartItemWriters) {
+            cartItems.finish();
+        }
+        cartItemCount = written;
+    }
+
+    private long nextId(String table) {
+        return jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) + 1 FROM " + table, Long.class);
+    }
+
+    private void restartIdentity(String table, long nextValue) {
+        String database = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                connection.getMetaData().getDatabaseProductName());
+        if ("MySQL".equalsIgnoreCase(database)) {
+            jdbcTemplate.execute("ALTER TABLE " + table + " AUTO_INCREMENT = " + nextValue);
+        } else {
+            jdbcTemplate.execute("ALTER TABLE " + table + " ALTER COLUMN id RESTART WITH " + nextValue);
+        }
+    }
+
+    private Timestamp pastTimestamp(Random random, int maxDaysAgo) {
+        return Timestamp.valueOf(now.minusMinutes((long) (random.nextDouble() * maxDaysAgo * 24 * 60)));
+    }
+
+    private static String weightedStatus(Random random) {
+        int roll = random.nextInt(100);
+        for (int i = 0; i < STATUSES.length; i++) {
+            roll -= STATUS_WEIGHTS[i];
+            if (roll < 0) {
+                return STATUSES[i];
+            }
+        }
+        return STATUSES[0];
+    }
+
+    // Maps a popularity rank to an id so the heaviest customers are not simply the oldest accounts
+    private static long scatter(int rank, int count) {
+        return (rank * 2_654_435_761L) % count;
+    }
+
+    /**
+     * Samples ranks 0..n-1 with probability proportional to 1 / (rank + 1)^exponent.
+     */
+    private static final class ZipfSampler {
+
+        private final double[] cumulative;
+
+        ZipfSampler(int n, double exponent) {
+            cumulative = new double[n];
+            double sum = 0;
+            for (int rank = 0; rank < n; rank++) {
+                sum += 1 / Math.pow(rank + 1, exponent);
+                cumulative[rank] = sum;
+            }
+            for (int rank = 0; rank < n; rank++) {
+                cumulative[rank] /= sum;
+            }
+        }
+
+        int sample(Random random) {
+            int index = Arrays.binarySearch(cumulative, random.nextDouble());
+            return Math.min(index >= 0 ? index : -index - 1, cumulative.length - 1);
+        }
+    }
+
+    private final class BatchWriter {
+
+        private final String table;
+        private final String sql;
+        private final JdbcTemplate target;
+        private final TransactionTemplate targetTransaction;
+        private final BatchWriter parent;
+        private final List<Object[]> batch = new ArrayList<>(batchSize);
+        private final long started = System.currentTimeMillis();
+        private long rows;
+
+        // A catalog table
+        BatchWriter(String table, String sql) {
+            this.table = table;
+            this.sql = sql;
+            this.target = jdbcTemplate;
+            this.targetTransaction = transactionTemplate;
+            this.parent = null;
+        }
+
+        // Rows referencing the parent table flush it first so foreign keys always resolve
+        BatchWriter(String table, String sql, ShardRouter.Shard shard, BatchWriter parent) {
+            this.table = shardRouter.size() > 1 ? table + " on shard " + shard.getIndex() : table;
+            this.sql = sql;
+            this.target = shard.getJdbcTemplate();
+            this.targetTransaction = shard.getTransactionTemplate();
+            this.parent = parent;
+        }
+
+        void add(Object... row) {
+            batch.add(row);
+            if (batch.size() >= batchSize) {
+                flush();
+            }
+        }
+
+        void finish() {
+            flush();
+            long elapsed = Math.max(1, System.currentTimeMillis() - started);
+            logger.info("Generated {} rows in {} ({} rows/s)", rows, table, rows * 1000 / elapsed);
+        }
+
+        private void flush() {
+            if (parent != null) {
+                parent.flush();
+            }
+            if (batch.isEmpty()) {
+                return;
+            }
+            targetTransaction.executeWithoutResult(status -> target.batchUpdate(sql, batch));
+            rows += batch.size();
+            batch.clear();
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package com.example.ecommerce.service;
+
+import com.example.ecommerce.entity.RevokedToken;
+import com.example.ecommerce.repository.RevokedTokenRepository;
+import com.example.ecommerce.repository.UserRepository;
+import io.jsonwebtoken.Claims;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Revoked JWTs, checked on every authenticated request without a database round trip.
+ * Single tokens are revoked by jti. A Bloom filter answers the common "not revoked" case, and
+ * an exact map confirms its rare positives. "Sign out everywhere" sets a per-user watermark
+ * instead: tokens issued before it are rejected. Both are persisted, re-read from the database
+ * periodically so other nodes see revocations, and pruned once the tokens they cover have expired.
+ */
+@Service
+public class TokenRevocationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenRevocationService.class);
+
+    @Autowired
+    private RevokedTokenRepository revokedTokenRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Value("${jwt.expiration}")
+    private long jwtExpirationMs;
+
+    @Value("${app.token-revocation.expected-revocations:100000}")
+    private int expectedRevocations;
+
+    // jti -> expiry in epoch millis
+    private final Map<String, Long> revokedIds = new ConcurrentHashMap<>();
+    // subject (email) -> tokens with iat before this epoch second are revoked
+    private final Map<String, Long> validAfterBySubject = new ConcurrentHashMap<>();
+    private volatile BloomFilter bloomFilter;
+    private volatile LocalDateTime lastSync = LocalDateTime.now();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void load() {
+        LocalDateTime now = LocalDateTime.now();
+        for (RevokedToken token : revokedTokenRepository.findByExpiresAtAfter(now)) {
+            revokedIds.put(token.getId(), toEpochMillis(token.getExpiresAt()));
+        }
+        for (Object[] watermark : userRepository.findTokenWatermarksSince(now.minus(jwtExpirationMs, ChronoUnit.MILLIS))) {
+            validAfterBySubject.merge((String) watermark[0], toEpochSecond((LocalDateTime) watermark[1]), Math::max);
+        }
+        rebuildFilter();
+        lastSync = now;
+        logger.info("Loaded {} revoked tokens and {} sign-out watermarks", revokedIds.size(), validAfterBySubject.size());
+    }
+
+    /**
+     * Hot path: a few hash probes and at most one map lookup.
+     */
+    public boolean isRevoked(Claims claims) {
+        Long validAfter = validAfterBySubject.get(claims.getSubject());
+        if (validAfter != null && (claims.getIssuedAt() == null || claims.getIssuedAt().getTime() / 1000 < validAfter)) {
+            return true;
+        }
+        String jti = claims.getId();
+        BloomFilter filter = bloomFilter;
+        return jti != null && (filter == null || filter.mightContain(jti)) && revokedIds.containsKey(jti);
+    }
+
+    public synchronized void revoke(Claims claims) {
+        if (claims.getId() == null) {
+            // Tokens minted before jti was added can only be revoked through the watermark
+            revokeAllFor(claims.getSubject());
+            return;
+        }
+        Date expiration = claims.getExpiration();
+        revokedTokenRepository.save(new RevokedToken(claims.getId(), claims.getSubject(),
+                LocalDateTime.ofInstant(expiration.toInstant(), ZoneId.systemDefault())));
+        addRevokedId(claims.getId(), expiration.getTime());
+    }
+
+    public void revokeAllFor(String subject) {
+        // iat has second precision, so the watermark is the next whole second: tokens from this
+        // second are revoked too, at the cost of rejecting a sign-in made within the same second
+        LocalDateTime validAfter = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS).plusSeconds(1);
+        userRepository.updateTokensValidAfter(subject, validAfter);
+        validAfterBySubject.merge(subject, toEpochSecond(validAfter), Math::max);
+    }
+
+    // Picks up revocations made on other nodes
+    @Scheduled(initialDelayString = "${app.token-revocation.sync-interval-ms:5000}",
+            fixedDelayString = "${app.token-revocation.sync-interval-ms:5000}")
+    public void syncFromDatabase() {
+        // Overlap by a second so rows committed while the previous sync ran are not skipped
+        LocalDateTime since = lastSync.minusSeconds(1);
+        LocalDateTime now = LocalDateTime.now();
+        for (RevokedToken token : revokedTokenRepository.findByRevokedAtAfter(since)) {
+            if (!revokedIds.containsKey(token.getId())) {
+                addRevokedId(token.getId(), toEpochMillis(token.getExpiresAt()));
+            }
+        }
+        for (Object[] watermark : userRepository.findTokenWatermarksSince(since)) {
+            validAfterBySubject.merge((String) watermark[0], toEpochSecond((LocalDateTime) watermark[1]), Math::max);
+        }
+        lastSync = now;
+    }
+
+    @Scheduled(initialDelayString = "${app.token-revocation.prune-interval-ms:600000}",
+            fixedDelayString = "${app.token-revocation.prune-interval-ms:600000}")
+    public synchronized void pruneExpired() {
+        long nowMillis = System.currentTimeMillis();
+        int before = revokedIds.size();
+        revokedIds.values().removeIf(expiresAt -> expiresAt < nowMillis);
+        // Every token issued before now - expiration has expired, so older watermarks reject nothing
+        long oldestLiveIat = (nowMillis - jwtExpirationMs) / 1000;
+        validAfterBySubject.values().removeIf(validAfter -> validAfter < oldestLiveIat);
+        // A Bloom filter cannot forget, so pruning rebuilds it from the surviving ids
+        rebuildFilter();
+        int deleted = revokedTokenRepository.deleteExpired(LocalDateTime.now());
+        logger.debug("Pruned {} expired revocations from memory and {} from the database",
+                before - revokedIds.size(), deleted);
+    }
+
+    private synchronized void addRevokedId(String jti, long expiresAtMillis) {
+        revokedIds.put(jti, expiresAtMillis);
+        BloomFilter filter = bloomFilter;
+        if (filter == null || revokedIds.size() > filter.capacity) {
+            rebuildFilter();
+        } else {
+            filter.add(jti);
+        }
+    }
+
+    private void rebuildFilter() {
+        BloomFilter filter = new BloomFilter(Math.max(expectedRevocations, revokedIds.size() * 2));
+        revokedIds.keySet().forEach(filter::add);
+        bloomFilter = filter;
+    }
+
+    private static long toEpochMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static long toEpochSecond(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toEpochSecond();
+    }
+
+    /**
+     * About 1% false positives at capacity: 10 bits and 7 probes per element, probes derived
+     * from one 64-bit FNV-1a hash (Kirsch-Mitzenmacher double hashing).
+     */
+    static final class BloomFilter {
+
+        private static final int PROBES = 7;
+
+        private final long[] words;
+        private final long bits;
+        private final int capacity;
+
+        BloomFilter(int capacity) {
+            this.capacity = capacity;
+            this.words = new long[(int) ((capacity * 10L + 63) / 64)];
+            this.bits = words.length * 64L;
+        }
+
+        // Concurrent readers may miss a bit being set; the exact map is updated first, so a
+        // just-revoked token is at worst accepted for the request that races its revocation
+        void add(String key) {
+            long hash = hash(key);
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 1; i <= PROBES; i++) {
+                long bit = Math.floorMod(h1 + i * h2, bits);
+                words[(int) (bit >>> 6)] |= 1L << bit;
+            }
+        }
+
+        boolean mightContain(String key) {
+            long hash = hash(key);
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 1; i <= PROBES; i++) {
+                long bit = Math.floorMod(h1 + i * h2, bits);
+                if ((words[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static long hash(String key) {
+            long hash = 0xcbf29ce484222325L;
+            for (int i = 0; i < key.length(); i++) {
+                hash ^= key.charAt(i);
+                hash *= 0x100000001b3L;
+            }
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,472 @@
+package com.example.ecommerce.service;
+
+import com.example.ecommerce.config.ShardRouter;
+import com.example.ecommerce.entity.CartItem;
+import com.example.ecommerce.entity.Product;
+import com.example.ecommerce.entity.User;
+import com.example.ecommerce.repository.ProductRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Keeps each user's cart in memory and writes it back to cart_items in batches.
+ * The table is the recovery point after a crash: carts active within idle-eviction-ms are
+ * reloaded on startup, any other cart on first access, and at most max-flush-delay of
+ * mutations can be lost. A new line is inserted right away so its id comes from the table's
+ * identity like every other cart_items row; quantity changes and removals are written behind.
+ * Saves are version-checked against the in-memory line, so OptimisticRetry applies as with the
+ * other stores. Carts live on the node that served them, so this mode needs sticky routing
+ * when more than one node is running. Each cart is read from and flushed to the shard
+ * of its user.
+ */
+@Service
+@ConditionalOnProperty(prefix = "app.cart", name = "store", havingValue = "memory")
+public class WriteBehindCartStore implements CartStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(WriteBehindCartStore.class);
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.cart.flush-batch-size:500}")
+    private int flushBatchSize;
+
+    @Value("${app.cart.max-flush-attempts:5}")
+    private int maxFlushAttempts;
+
+    @Value("${app.cart.recover-on-startup:true}")
+    private boolean recoverOnStartup;
+
+    @Value("${app.cart.idle-eviction-ms:600000}")
+    private long idleEvictionMs;
+
+    private final Map<Long, UserCart> carts = new ConcurrentHashMap<>();
+    private final Map<Long, Long> itemOwners = new ConcurrentHashMap<>();
+    private final Set<Long> dirtyUsers = ConcurrentHashMap.newKeySet();
+
+    @Override
+    public List<CartItem> findByUser(User user) {
+        List<CartLine> lines = read(user.getId(), cart -> {
+            List<CartLine> copies = new ArrayList<>(cart.lines.size());
+            cart.lines.values().forEach(line -> copies.add(line.copy()));
+            return copies;
+        });
+        Map<Long, Product> products = loadProducts(lines);
+
+        List<CartItem> items = new ArrayList<>();
+        for (CartLine line : lines) {
+            Product product = products.get(line.productId);
+            if (product != null) {
+                items.add(toCartItem(user, product, line));
+            }
+        }
+        return items;
+    }
+
+    @Override
+    public Optional<CartItem> findById(User user, Long itemId) {
+        Long userId = itemOwners.get(itemId);
+        if (userId == null) {
+            // Not in memory yet: find the owner in the table and load their cart
+            List<Long> owners = shardRouter.forUser(user.getId()).getJdbcTemplate().queryForList(
+                    "SELECT user_id FROM cart_items WHERE id = ?", Long.class, itemId);
+            if (owners.isEmpty() || carts.containsKey(owners.get(0))) {
+                return Optional.empty();
+            }
+            userId = owners.get(0);
+        }
+
+        CartLine line = read(userId, cart -> {
+            for (CartLine candidate : cart.lines.values()) {
+                if (candidate.id == itemId) {
+                    return candidate.copy();
+                }
+            }
+            return null;
+        });
+        if (line == null) {
+            return Optional.empty();
+        }
+
+        User owner = new User();
+        owner.setId(userId);
+        return productRepository.findById(line.productId).map(product -> toCartItem(owner, product, line));
+    }
+
+    @Override
+    public Optional<CartItem> findByUserAndProduct(User user, Product product) {
+        CartLine line = read(user.getId(), cart -> {
+            CartLine found = cart.lines.get(product.getId());
+            return found != null ? found.copy() : null;
+        });
+        return Optional.ofNullable(line).map(found -> toCartItem(user, product, found));
+    }
+
+    @Override
+    public CartItem save(CartItem cartItem) {
+        Long userId = cartItem.getUser().getId();
+        Long productId = cartItem.getProduct().getId();
+
+        mutate(userId, cart -> {
+            CartLine existing = cart.lines.get(productId);
+            // Same check as @Version: the caller must have read the line as it is now
+            if (existing != null ? cartItem.getId() == null || !Long.valueOf(existing.version).equals(cartItem.getVersion())
+                    : cartItem.getId() != null) {
+                throw new ConflictException(existing != null ? existing.id : cartItem.getId(),
+                        existing != null ? toCartItem(cartItem.getUser(), cartItem.getProduct(), existing.copy()) : null);
+            }
+            if (existing != null) {
+                existing.quantity = cartItem.getQuantity();
+                existing.updatedAt = LocalDateTime.now();
+                existing.version++;
+                cartItem.setId(existing.id);
+                cartItem.setVersion(existing.version);
+                cartItem.setAddedAt(existing.addedAt);
+            } else {
+                LocalDateTime addedAt = cartItem.getAddedAt() != null ? cartItem.getAddedAt() : LocalDateTime.now();
+                LocalDateTime now = LocalDateTime.now();
+                long id = insertLine(userId, productId, cartItem.getQuantity(), addedAt, now);
+                CartLine line = new CartLine(id, productId, cartItem.getQuantity(), addedAt, now);
+                cart.lines.put(productId, line);
+                itemOwners.put(line.id, userId);
+                cartItem.setId(line.id);
+                cartItem.setVersion(line.version);
+                cartItem.setAddedAt(addedAt);
+            }
+        });
+        return cartItem;
+    }
+
+    @Override
+    public void delete(CartItem cartItem) {
+        Long productId = cartItem.getProduct().getId();
+        mutate(cartItem.getUser().getId(), cart -> {
+            CartLine removed = cart.lines.remove(productId);
+            if (removed != null) {
+                itemOwners.remove(removed.id);
+            }
+        });
+    }
+
+    @Override
+    public void deleteByUser(User user) {
+        mutate(user.getId(), cart -> {
+            for (CartLine line : cart.lines.values()) {
+                itemOwners.remove(line.id);
+            }
+            cart.lines.clear();
+        });
+    }
+
+    // Held carts were used within idle-eviction-ms, and the table copy of a dirty one is stale anyway
+    @Override
+    public boolean isInUse(Long userId) {
+        return carts.containsKey(userId);
+    }
+
+    @Scheduled(fixedDelayString = "${app.cart.max-flush-delay-ms:1000}")
+    public synchronized void flush() {
+        if (dirtyUsers.isEmpty()) {
+            evictIdleCarts();
+            return;
+        }
+
+        Map<ShardRouter.Shard, List<Long>> usersByShard = new HashMap<>();
+        for (Long userId : dirtyUsers) {
+            usersByShard.computeIfAbsent(shardRouter.forUser(userId), shard -> new ArrayList<>()).add(userId);
+        }
+        usersByShard.forEach((shard, users) -> {
+            for (int from = 0; from < users.size(); from += flushBatchSize) {
+                flushBatch(shard, users.subList(from, Math.min(from + flushBatchSize, users.size())));
+            }
+        });
+        evictIdleCarts();
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    // Carts in use when the node went down come back into memory before it takes traffic
+    @EventListener(ApplicationReadyEvent.class)
+    public void recover() {
+        if (!recoverOnStartup) {
+            return;
+        }
+        long started = System.currentTimeMillis();
+        Timestamp activeSince = new Timestamp(started - idleEvictionMs);
+        int[] recovered = {0};
+        for (ShardRouter.Shard shard : shardRouter.all()) {
+            Map<Long, UserCart> loaded = new LinkedHashMap<>();
+            shard.getJdbcTemplate().query(
+                    "SELECT id, user_id, product_id, quantity, added_at, updated_at FROM cart_items WHERE user_id IN " +
+                    "(SELECT user_id FROM cart_items GROUP BY user_id HAVING MAX(updated_at) >= ?) ORDER BY user_id, id",
+                    rs -> {
+                        CartLine line = CartLine.of(rs);
+                        loaded.computeIfAbsent(rs.getLong("user_id"), userId -> new UserCart()).lines.put(line.productId, line);
+                    }, activeSince);
+            loaded.forEach((userId, cart) -> {
+                if (carts.putIfAbsent(userId, cart) == null) {
+                    for (CartLine line : cart.lines.values()) {
+                        itemOwners.put(line.id, userId);
+                    }
+                    recovered[0]++;
+                }
+            });
+        }
+        logger.info("Recovered {} active carts from cart_items in {} ms", recovered[0], System.currentTimeMillis() - started);
+    }
+
+    // One transaction per batch; when it fails, each cart is retried alone so one bad cart can't hold back the rest
+    private void flushBatch(ShardRouter.Shard shard, List<Long> userIds) {
+        try {
+            write(shard, userIds);
+        } catch (Exception e) {
+            if (userIds.size() == 1) {
+                flushFailed(userIds.get(0), e);
+                return;
+            }
+            logger.warn("Cart flush failed for a batch of {} users, flushing them one by one: {}", userIds.size(), e.getMessage());
+            for (Long userId : userIds) {
+                flushBatch(shard, List.of(userId));
+            }
+        }
+    }
+
+    // A cart that keeps failing is parked, kept in memory but not retried until it changes again
+    private void flushFailed(Long userId, Exception e) {
+        UserCart cart = carts.get(userId);
+        if (cart == null) {
+            return;
+        }
+        synchronized (cart) {
+            if (++cart.flushFailures < maxFlushAttempts) {
+                logger.warn("Cart flush failed for user {} (attempt {}), will retry: {}", userId, cart.flushFailures, e.getMessage());
+                dirtyUsers.add(userId);
+            } else {
+                logger.error("Cart flush failed for user {} {} times, parking it until it changes: {}",
+                        userId, cart.flushFailures, e.getMessage());
+                meterRegistry.counter("ecommerce.cart.flush.parked").increment();
+            }
+        }
+    }
+
+    private void write(ShardRouter.Shard shard, List<Long> userIds) {
+        List<Object[]> deletes = new ArrayList<>();
+        List<Object[]> inserts = new ArrayList<>();
+        Map<UserCart, Long> flushedVersions = new HashMap<>();
+
+        for (Long userId : userIds) {
+            dirtyUsers.remove(userId);
+            UserCart cart = carts.get(userId);
+            if (cart == null) {
+                continue;
+            }
+            synchronized (cart) {
+                flushedVersions.put(cart, cart.version);
+                deletes.add(new Object[]{userId});
+                for (CartLine line : cart.lines.values()) {
+                    inserts.add(new Object[]{line.id, userId, line.productId, line.quantity,
+                            Timestamp.valueOf(line.addedAt), Timestamp.valueOf(line.updatedAt)});
+                }
+            }
+        }
+
+        shard.getTransactionTemplate().executeWithoutResult(status -> {
+            shard.getJdbcTemplate().batchUpdate("DELETE FROM cart_items WHERE user_id = ?", deletes);
+            shard.getJdbcTemplate().batchUpdate(
+                    "INSERT INTO cart_items (id, user_id, product_id, quantity, added_at, updated_at) VALUES (?, ?, ?, ?, ?, ?)",
+                    inserts);
+        });
+        flushedVersions.forEach((cart, version) -> {
+            synchronized (cart) {
+                cart.flushedVersion = Math.max(cart.flushedVersion, version);
+                cart.flushFailures = 0;
+            }
+        });
+    }
+
+    private void evictIdleCarts() {
+        long cutoff = System.currentTimeMillis() - idleEvictionMs;
+        for (Map.Entry<Long, UserCart> entry : carts.entrySet()) {
+            UserCart cart = entry.getValue();
+            synchronized (cart) {
+                if (cart.version == cart.flushedVersion && cart.lastAccess < cutoff) {
+                    cart.evicted = true;
+                    carts.remove(entry.getKey(), cart);
+                    for (CartLine line : cart.lines.values()) {
+                        itemOwners.remove(line.id);
+                    }
+                }
+            }
+        }
+    }
+
+    private <T> T read(Long userId, Function<UserCart, T> reader) {
+        while (true) {
+            UserCart cart = loadCart(userId);
+            synchronized (cart) {
+                if (cart.evicted) {
+                    continue;
+                }
+                cart.lastAccess = System.currentTimeMillis();
+                return reader.apply(cart);
+            }
+        }
+    }
+
+    private void mutate(Long userId, Consumer<UserCart> mutation) {
+        while (true) {
+            UserCart cart = loadCart(userId);
+            synchronized (cart) {
+                if (cart.evicted) {
+                    continue;
+                }
+                mutation.accept(cart);
+                cart.version++;
+                cart.flushFailures = 0;
+                cart.lastAccess = System.currentTimeMillis();
+            }
+            dirtyUsers.add(userId);
+            return;
+        }
+    }
+
+    private UserCart loadCart(Long userId) {
+        UserCart cart = carts.get(userId);
+        if (cart != null) {
+            return cart;
+        }
+
+        UserCart loaded = new UserCart();
+        shardRouter.forUser(userId).getJdbcTemplate().query(
+                "SELECT id, product_id, quantity, added_at, updated_at FROM cart_items WHERE user_id = ? ORDER BY id",
+                rs -> {
+                    CartLine line = CartLine.of(rs);
+                    loaded.lines.put(line.productId, line);
+                }, userId);
+
+        UserCart existing = carts.putIfAbsent(userId, loaded);
+        if (existing != null) {
+            return existing;
+        }
+        for (CartLine line : loaded.lines.values()) {
+            itemOwners.put(line.id, userId);
+        }
+        return loaded;
+    }
+
+    // The row also makes the new line durable at once; later changes to it are written behind
+    private long insertLine(Long userId, Long productId, int quantity, LocalDateTime addedAt, LocalDateTime updatedAt) {
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        shardRouter.forUser(userId).getJdbcTemplate().update(connection -> {
+            PreparedStatement statement = connection.prepareStatement(
+                    "INSERT INTO cart_items (user_id, product_id, quantity, added_at, updated_at) VALUES (?, ?, ?, ?, ?)",
+                    new String[]{"id"});
+            statement.setLong(1, userId);
+            statement.setLong(2, productId);
+            statement.setInt(3, quantity);
+            statement.setTimestamp(4, Timestamp.valueOf(addedAt));
+            statement.setTimestamp(5, Timestamp.valueOf(updatedAt));
+            return statement;
+        }, keyHolder);
+        return keyHolder.getKey().longValue();
+    }
+
+    private Map<Long, Product> loadProducts(List<CartLine> lines) {
+        List<Long> productIds = new ArrayList<>();
+        for (CartLine line : lines) {
+            productIds.add(line.productId);
+        }
+
+        Map<Long, Product> products = new HashMap<>();
+        for (Product product : productRepository.findAllById(productIds)) {
+            products.put(product.getId(), product);
+        }
+        return products;
+    }
+
+    private CartItem toCartItem(User user, Product product, CartLine line) {
+        CartItem item = new CartItem(user, product, line.quantity);
+        item.setId(line.id);
+        item.setVersion(line.version);
+        item.setAddedAt(line.addedAt);
+        return item;
+    }
+
+    private static class UserCart {
+        private final Map<Long, CartLine> lines = new LinkedHashMap<>();
+        private long version;
+        private long flushedVersion;
+        private long lastAccess = System.currentTimeMillis();
+        private int flushFailures;
+        private boolean evicted;
+    }
+
+    private static class CartLine {
+        private final long id;
+        private final long productId;
+        private int quantity;
+        private long version;
+        private final LocalDateTime addedAt;
+        // Written back as cart_items.updated_at, which CartPurgeService and recovery go by
+        private LocalDateTime updatedAt;
+
+        CartLine(long id, long productId, int quantity, LocalDateTime addedAt, LocalDateTime updatedAt) {
+            this.id = id;
+            this.productId = productId;
+            this.quantity = quantity;
+            this.addedAt = addedAt;
+            this.updatedAt = updatedAt;
+        }
+
+        // Lines change under the cart's lock; readers take a copy so quantity and version stay a matching pair
+        CartLine copy() {
+            CartLine copy = new CartLine(id, productId, quantity, addedAt, updatedAt);
+            copy.version = version;
+            return copy;
+        }
+
+        static CartLine of(ResultSet rs) throws SQLException {
+            Timestamp added = rs.getTimestamp("added_at");
+            Timestamp updated = rs.getTimestamp("updated_at");
+            LocalDateTime addedAt = added != null ? added.toLocalDateTime() : LocalDateTime.now();
+            return new CartLine(rs.getLong("id"), rs.getLong("product_id"), rs.getInt("quantity"),
+                    addedAt, updated != null ? updated.toLocalDateTime() : addedAt);
+        }
+    }
+}
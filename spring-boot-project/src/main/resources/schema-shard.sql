@@ -0,0 +1,55 @@
+-- Tables held by each shard when app.sharding.enabled=true (H2 syntax, matches the JPA mappings).
+-- user_id and product_id point at the catalog database, so they carry no foreign keys here.
+
+CREATE TABLE IF NOT EXISTS cart_items (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    user_id BIGINT NOT NULL,
+    product_id BIGINT NOT NULL,
+    quantity INTEGER NOT NULL CHECK (quantity >= 1),
+    version BIGINT DEFAULT 0 NOT NULL,
+    added_at TIMESTAMP(6),
+    updated_at TIMESTAMP(6) DEFAULT CURRENT_TIMESTAMP(6) ON UPDATE CURRENT_TIMESTAMP(6)
+);
+
+CREATE INDEX IF NOT EXISTS idx_cart_items_user ON cart_items (user_id);
+CREATE INDEX IF NOT EXISTS idx_cart_items_user_updated ON cart_items (user_id, updated_at);
+
+CREATE TABLE IF NOT EXISTS orders (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    user_id BIGINT NOT NULL,
+    total_amount NUMERIC(10,2) NOT NULL,
+    status VARCHAR(255) NOT NULL CHECK (status IN ('PENDING','CONFIRMED','SHIPPED','DELIVERED','CANCELLED')),
+    shipping_address TEXT,
+    version BIGINT DEFAULT 0 NOT NULL,
+    order_date TIMESTAMP(6),
+    shipped_date TIMESTAMP(6),
+    delivered_date TIMESTAMP(6),
+    updated_at TIMESTAMP(6) DEFAULT CURRENT_TIMESTAMP(6) ON UPDATE CURRENT_TIMESTAMP(6)
+);
+
+CREATE INDEX IF NOT EXISTS idx_orders_user_date ON orders (user_id, order_date, id);
+CREATE INDEX IF NOT EXISTS idx_orders_status_date ON orders (status, order_date, id);
+CREATE INDEX IF NOT EXISTS idx_orders_status_updated ON orders (status, updated_at);
+
+CREATE TABLE IF NOT EXISTS order_items (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    order_id BIGINT NOT NULL REFERENCES orders (id),
+    product_id BIGINT NOT NULL,
+    quantity INTEGER NOT NULL CHECK (quantity >= 1),
+    price NUMERIC(10,2) NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_order_items_order ON order_items (order_id);
+
+CREATE TABLE IF NOT EXISTS archived_orders (
+    id BIGINT NOT NULL PRIMARY KEY,
+    user_id BIGINT NOT NULL,
+    order_date TIMESTAMP(6) NOT NULL,
+    status VARCHAR(255) NOT NULL CHECK (status IN ('PENDING','CONFIRMED','SHIPPED','DELIVERED','CANCELLED')),
+    total_amount NUMERIC(10,2) NOT NULL,
+    item_count BIGINT NOT NULL,
+    archived_at TIMESTAMP(6) NOT NULL,
+    payload BLOB NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_archived_orders_user_date ON archived_orders (user_id, order_date, id);
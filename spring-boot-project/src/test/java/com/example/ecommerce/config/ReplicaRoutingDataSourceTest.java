@@ -0,0 +1,144 @@
+package com.example.ecommerce.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {
+        "app.warm-up.enabled=false",
+        "spring.jpa.show-sql=false",
+        // The replica is copied and checked by the tests
+        "app.datasource.routing.h2-feed.interval-ms=3600000",
+        "app.datasource.routing.lag-check-interval-ms=3600000"
+})
+@ActiveProfiles("replica")
+class ReplicaRoutingDataSourceTest {
+
+    private static final String PRIMARY = "ECOMMERCE";
+    private static final String REPLICA = "ECOMMERCE_REPLICA";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private H2ReplicaFeed h2ReplicaFeed;
+
+    @Autowired
+    private ReadReplicaRoutingConfig readReplicaRoutingConfig;
+
+    private TransactionTemplate readWrite;
+    private TransactionTemplate readOnly;
+
+    @BeforeEach
+    void setUp() {
+        readWrite = new TransactionTemplate(transactionManager);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        readOnly.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        h2ReplicaFeed.copy();
+        readReplicaRoutingConfig.checkReplicaLag();
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void writesGoToThePrimaryAndReadOnlyTransactionsToAHealthyReplica() {
+        assertThat(databaseIn(readWrite)).isEqualTo(PRIMARY);
+        assertThat(databaseIn(readOnly)).isEqualTo(REPLICA);
+    }
+
+    @Test
+    void laggingReplicaIsTakenOutOfRotation() throws Exception {
+        try (Connection connection = DriverManager.getConnection("jdbc:h2:mem:ecommerce_replica", "sa", "password");
+             Statement statement = connection.createStatement()) {
+            statement.executeUpdate("UPDATE replica_heartbeat SET applied_at = DATEADD('MINUTE', -1, CURRENT_TIMESTAMP)");
+        }
+        readReplicaRoutingConfig.checkReplicaLag();
+        assertThat(databaseIn(readOnly)).isEqualTo(PRIMARY);
+
+        h2ReplicaFeed.copy();
+        readReplicaRoutingConfig.checkReplicaLag();
+        assertThat(databaseIn(readOnly)).isEqualTo(REPLICA);
+    }
+
+    @Test
+    void readYourWritesStartsOnlyOnceTheWriteHasCommitted() {
+        signIn("ryw@example.com");
+
+        readWrite.executeWithoutResult(status -> {
+            jdbcTemplate.update("UPDATE products SET name = name WHERE id = 1");
+            // Not committed yet, so the user's reads still use the replica
+            assertThat(databaseIn(readOnly)).isEqualTo(REPLICA);
+        });
+        assertThat(databaseIn(readOnly)).isEqualTo(PRIMARY);
+
+        // Other users are not pinned
+        signIn("other@example.com");
+        assertThat(databaseIn(readOnly)).isEqualTo(REPLICA);
+    }
+
+    @Test
+    void rolledBackWriteDoesNotPinTheUser() {
+        signIn("rollback@example.com");
+
+        readWrite.executeWithoutResult(status -> {
+            jdbcTemplate.update("UPDATE products SET name = name WHERE id = 1");
+            status.setRollbackOnly();
+        });
+        assertThat(databaseIn(readOnly)).isEqualTo(REPLICA);
+    }
+
+    @Test
+    void onlyWriteVerbsCountAsWrites() {
+        signIn("reads-only@example.com");
+        readWrite.executeWithoutResult(status -> {
+            jdbcTemplate.queryForList("SELECT id FROM products WHERE id = 1 FOR UPDATE", Long.class);
+            jdbcTemplate.queryForList("SELECT 'UPDATE products SET name = 1' FROM products WHERE id = 1", String.class);
+        });
+        assertThat(databaseIn(readOnly)).isEqualTo(REPLICA);
+
+        for (String sql : List.of(
+                "  update products SET name = name WHERE id = 1",
+                "\nDELETE FROM cart_items WHERE id = -1",
+                "MERGE INTO replica_probe KEY (id) VALUES (1)")) {
+            signIn("writer-" + sql.strip().substring(0, 6).toLowerCase() + "@example.com");
+            readWrite.executeWithoutResult(status -> {
+                jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS replica_probe (id INT PRIMARY KEY)");
+                jdbcTemplate.update(sql);
+            });
+            assertThat(databaseIn(readOnly)).as(sql).isEqualTo(PRIMARY);
+        }
+    }
+
+    private String databaseIn(TransactionTemplate transaction) {
+        return transaction.execute(status -> jdbcTemplate.queryForObject("SELECT DATABASE()", String.class));
+    }
+
+    private static void signIn(String user) {
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(user, null, List.of()));
+    }
+}
@@ -0,0 +1,176 @@
+package com.example.ecommerce.controller;
+
+import com.example.ecommerce.entity.User;
+import com.example.ecommerce.repository.UserRepository;
+import com.example.ecommerce.service.OrderArchiveService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.authentication;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "app.warm-up.enabled=false",
+        "spring.jpa.show-sql=false",
+        // Archive runs are triggered by the test
+        "app.archive.enabled=true",
+        "app.archive.interval-ms=3600000"
+})
+@AutoConfigureMockMvc
+class OrderControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private OrderArchiveService orderArchiveService;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        // A user of their own, so the history holds only the orders placed here
+        String email = "orders-" + UUID.randomUUID() + "@example.com";
+        user = userRepository.save(new User("Order History", email, "unused"));
+    }
+
+    @Test
+    void historyMergesHotAndArchivedOrdersAcrossPages() throws Exception {
+        LocalDateTime now = LocalDateTime.now();
+        long h1 = placeOrder(now.minusDays(1), "PENDING");
+        long a2 = placeOrder(now.minusDays(2), "DELIVERED");
+        long h3 = placeOrder(now.minusDays(3), "SHIPPED");
+        long a4 = placeOrder(now.minusDays(4), "CANCELLED");
+        long h5 = placeOrder(now.minusDays(5), "CONFIRMED");
+        long a6 = placeOrder(now.minusDays(6), "DELIVERED");
+        moveToArchive(a2);
+        moveToArchive(a4);
+        moveToArchive(a6);
+        // Archived between the two reads of a page: in both tables, listed once
+        copyToArchive(h3);
+
+        List<Long> seen = new ArrayList<>();
+        List<Boolean> hasMore = new ArrayList<>();
+        String cursor = null;
+        do {
+            MockHttpServletRequestBuilder request = get("/api/orders").param("size", "2");
+            if (cursor != null) {
+                request.param("cursor", cursor);
+            }
+            JsonNode page = call(request);
+            assertThat(page.path("orders").size()).isLessThanOrEqualTo(2);
+            for (JsonNode order : page.path("orders")) {
+                seen.add(order.path("id").asLong());
+            }
+            hasMore.add(page.path("hasMore").asBoolean());
+            cursor = page.path("nextCursor").isNull() ? null : page.path("nextCursor").asText();
+        } while (cursor != null);
+
+        assertThat(seen).containsExactly(h1, a2, h3, a4, h5, a6);
+        assertThat(hasMore).containsExactly(true, true, false);
+    }
+
+    @Test
+    void archivedOrderIsServedInTheShapeOfTheLiveOne() throws Exception {
+        LocalDateTime orderDate = LocalDateTime.now().minusYears(2).withNano(0);
+        long orderId = placeOrder(orderDate, "DELIVERED");
+        jdbcTemplate.update("UPDATE orders SET shipped_date = ?, delivered_date = ? WHERE id = ?",
+                Timestamp.valueOf(orderDate.plusDays(1)), Timestamp.valueOf(orderDate.plusDays(3)), orderId);
+        List<Long> products = jdbcTemplate.queryForList("SELECT id FROM products ORDER BY id LIMIT 2", Long.class);
+        for (Long productId : products) {
+            jdbcTemplate.update("INSERT INTO order_items (order_id, product_id, quantity, price) VALUES (?, ?, 3, 4.25)",
+                    orderId, productId);
+        }
+        JsonNode live = call(get("/api/orders/{id}", orderId));
+
+        orderArchiveService.archiveOldOrders();
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM orders WHERE id = ?", Integer.class, orderId))
+                .isZero();
+        JsonNode archived = call(get("/api/orders/{id}", orderId));
+
+        // The same document, except that products are reduced to what they were called when archived
+        ObjectNode expected = live.deepCopy();
+        for (JsonNode item : expected.path("orderItems")) {
+            ((ObjectNode) item.path("product")).retain("id", "name", "category", "imageUrl");
+        }
+        expected.set("orderItems", byId(expected.path("orderItems")));
+        expected.put("archived", true);
+        ObjectNode actual = archived.deepCopy();
+        actual.set("orderItems", byId(actual.path("orderItems")));
+        assertThat(actual).isEqualTo(expected);
+    }
+
+    // Item order is not part of the contract: the live order holds its items in a set
+    private JsonNode byId(JsonNode items) {
+        List<JsonNode> sorted = new ArrayList<>();
+        items.forEach(sorted::add);
+        sorted.sort(Comparator.comparingLong(item -> item.path("id").asLong()));
+        return objectMapper.valueToTree(sorted);
+    }
+
+    private JsonNode call(MockHttpServletRequestBuilder request) throws Exception {
+        byte[] body = mockMvc.perform(request.accept(MediaType.APPLICATION_JSON)
+                        .with(authentication(new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities()))))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsByteArray();
+        return objectMapper.readTree(body);
+    }
+
+    private long placeOrder(LocalDateTime orderDate, String status) {
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement(
+                    "INSERT INTO orders (user_id, total_amount, status, shipping_address, order_date) VALUES (?, 25.50, ?, 'Test', ?)",
+                    new String[]{"id"});
+            statement.setLong(1, user.getId());
+            statement.setString(2, status);
+            statement.setTimestamp(3, Timestamp.valueOf(orderDate));
+            return statement;
+        }, keyHolder);
+        return keyHolder.getKey().longValue();
+    }
+
+    private void copyToArchive(long orderId) {
+        jdbcTemplate.update(
+                "INSERT INTO archived_orders (id, user_id, order_date, status, total_amount, item_count, archived_at, payload) " +
+                "SELECT id, user_id, order_date, status, total_amount, 0, CURRENT_TIMESTAMP, X'00' FROM orders WHERE id = ?",
+                orderId);
+    }
+
+    private void moveToArchive(long orderId) {
+        copyToArchive(orderId);
+        jdbcTemplate.update("DELETE FROM orders WHERE id = ?", orderId);
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.ecommerce.entity;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MoneyTest {
+
+    @Test
+    void writesJsonAsPlainDecimal() throws Exception {
+        ObjectMapper mapper = new ObjectMapper();
+
+        assertThat(mapper.writeValueAsString(Money.ofCents(-1205))).isEqualTo("-12.05");
+        assertThat(mapper.writeValueAsString(Money.ofCents(7))).isEqualTo("0.07");
+        assertThat(mapper.readValue("19.99", Money.class).getCents()).isEqualTo(1999);
+    }
+
+    @Test
+    void writesBinaryFormatsAsNativeDecimal() throws Exception {
+        for (ObjectMapper mapper : new ObjectMapper[]{new ObjectMapper(new CBORFactory()), new ObjectMapper(new SmileFactory())}) {
+            byte[] bytes = mapper.writeValueAsBytes(Money.ofCents(-1205));
+
+            try (JsonParser parser = mapper.getFactory().createParser(bytes)) {
+                assertThat(parser.nextToken()).isEqualTo(JsonToken.VALUE_NUMBER_FLOAT);
+                assertThat(parser.getDecimalValue()).isEqualTo(new BigDecimal("-12.05"));
+            }
+            assertThat(mapper.readValue(bytes, Money.class).getCents()).isEqualTo(-1205);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.ecommerce.service;
+
+import com.example.ecommerce.dto.BestSeller;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {
+        "app.warm-up.enabled=false",
+        "spring.jpa.show-sql=false",
+        // Refreshes and archive runs are triggered by the test
+        "app.best-sellers.refresh-interval-ms=3600000",
+        "app.archive.enabled=true",
+        "app.archive.interval-ms=3600000"
+})
+class BestSellerServiceTest {
+
+    @Autowired
+    private BestSellerService bestSellerService;
+
+    @Autowired
+    private OrderArchiveService orderArchiveService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void newOrdersAreCountedAndCancellationsSubtracted() {
+        Long productId = jdbcTemplate.queryForObject("SELECT id FROM products ORDER BY id LIMIT 1", Long.class);
+        String category = jdbcTemplate.queryForObject("SELECT category FROM products WHERE id = ?", String.class, productId);
+        bestSellerService.rebuild();
+        long before = unitsSold(category, productId, BestSellerService.Window.ALL);
+
+        long orderId = placeOrder(productId, 7);
+        bestSellerService.refresh();
+        assertThat(unitsSold(category, productId, BestSellerService.Window.ALL)).isEqualTo(before + 7);
+        assertThat(unitsSold(category, productId, BestSellerService.Window.DAYS_7)).isEqualTo(7);
+
+        jdbcTemplate.update("UPDATE orders SET status = 'CANCELLED' WHERE id = ?", orderId);
+        bestSellerService.refresh();
+        assertThat(unitsSold(category, productId, BestSellerService.Window.ALL)).isEqualTo(before);
+        assertThat(unitsSold(category, productId, BestSellerService.Window.DAYS_7)).isZero();
+
+        // Seen again on later refreshes, but subtracted only once
+        bestSellerService.refresh();
+        assertThat(unitsSold(category, productId, BestSellerService.Window.ALL)).isEqualTo(before);
+    }
+
+    @Test
+    void archivedOrdersStayInTheAllTimeCountAcrossRebuilds() {
+        Long productId = jdbcTemplate.queryForObject("SELECT id FROM products ORDER BY id LIMIT 1 OFFSET 1", Long.class);
+        String category = jdbcTemplate.queryForObject("SELECT category FROM products WHERE id = ?", String.class, productId);
+        long orderId = placeOrder(productId, 5);
+        jdbcTemplate.update("UPDATE orders SET status = 'DELIVERED', order_date = ? WHERE id = ?",
+                Timestamp.valueOf(LocalDateTime.now().minusYears(2)), orderId);
+        bestSellerService.rebuild();
+        long before = unitsSold(category, productId, BestSellerService.Window.ALL);
+
+        orderArchiveService.archiveOldOrders();
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM archived_orders WHERE id = ?", Integer.class, orderId))
+                .isEqualTo(1);
+        bestSellerService.refresh();
+        assertThat(unitsSold(category, productId, BestSellerService.Window.ALL)).isEqualTo(before);
+
+        bestSellerService.rebuild();
+        assertThat(unitsSold(category, productId, BestSellerService.Window.ALL)).isEqualTo(before);
+    }
+
+    private long placeOrder(Long productId, int quantity) {
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement(
+                    "INSERT INTO orders (user_id, total_amount, status, shipping_address, order_date) VALUES (2, 10.00, 'PENDING', 'Test', ?)",
+                    new String[]{"id"});
+            statement.setTimestamp(1, Timestamp.valueOf(LocalDateTime.now()));
+            return statement;
+        }, keyHolder);
+        long orderId = keyHolder.getKey().longValue();
+        jdbcTemplate.update("INSERT INTO order_items (order_id, product_id, quantity, price) VALUES (?, ?, ?, 1.00)",
+                orderId, productId, quantity);
+        return orderId;
+    }
+
+    private long unitsSold(String category, Long productId, BestSellerService.Window window) {
+        return bestSellerService.topSellers(category, window, 100).stream()
+                .filter(seller -> seller.getProductId().equals(productId))
+                .mapToLong(BestSeller::getUnitsSold)
+                .findFirst()
+                .orElse(0);
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.ecommerce.service;
+
+import com.example.ecommerce.entity.User;
+import com.example.ecommerce.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doCallRealMethod;
+
+@SpringBootTest(properties = {
+        "app.warm-up.enabled=false",
+        "spring.jpa.show-sql=false",
+        // Purge runs are triggered by the test
+        "app.cart-purge.enabled=true",
+        "app.cart-purge.interval-ms=3600000"
+})
+class CartPurgeServiceTest {
+
+    @Autowired
+    private CartPurgeService cartPurgeService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @SpyBean
+    private CartStore cartStore;
+
+    private User john;
+    private List<Long> productIds;
+
+    @BeforeEach
+    void setUp() {
+        john = userRepository.findByEmail("john@example.com").orElseThrow();
+        productIds = jdbcTemplate.queryForList("SELECT id FROM products ORDER BY id LIMIT 3", Long.class);
+        jdbcTemplate.update("DELETE FROM cart_items WHERE user_id = ?", john.getId());
+        doCallRealMethod().when(cartStore).isInUse(anyLong());
+    }
+
+    @Test
+    void quantityUpdateCountsAsActivity() throws Exception {
+        addLine(productIds.get(0), daysAgo(40));
+        // An update that does not set updated_at is stamped by the database
+        jdbcTemplate.update("UPDATE cart_items SET quantity = quantity + 1 WHERE user_id = ?", john.getId());
+
+        cartPurgeService.purgeAbandonedCarts();
+
+        assertThat(linesOf(john)).hasSize(1);
+    }
+
+    @Test
+    void abandonedCartIsDeletedWhole() throws Exception {
+        addLine(productIds.get(0), daysAgo(40));
+        addLine(productIds.get(1), daysAgo(35));
+
+        cartPurgeService.purgeAbandonedCarts();
+
+        assertThat(linesOf(john)).isEmpty();
+    }
+
+    @Test
+    void cartChangedAfterTheSelectIsKeptWhole() throws Exception {
+        addLine(productIds.get(0), daysAgo(40));
+        addLine(productIds.get(1), daysAgo(35));
+        // isInUse runs between the SELECT and the DELETE, which is where a live add would land
+        doAnswer(invocation -> {
+            if (john.getId().equals(invocation.getArgument(0))) {
+                addLine(productIds.get(2), Timestamp.valueOf(LocalDateTime.now()));
+            }
+            return false;
+        }).when(cartStore).isInUse(anyLong());
+
+        cartPurgeService.purgeAbandonedCarts();
+
+        assertThat(linesOf(john)).containsExactlyInAnyOrderElementsOf(productIds);
+    }
+
+    private void addLine(Long productId, Timestamp at) {
+        jdbcTemplate.update("INSERT INTO cart_items (user_id, product_id, quantity, version, added_at, updated_at) " +
+                "VALUES (?, ?, 1, 0, ?, ?)", john.getId(), productId, at, at);
+    }
+
+    private List<Long> linesOf(User user) {
+        return jdbcTemplate.queryForList("SELECT product_id FROM cart_items WHERE user_id = ?", Long.class, user.getId());
+    }
+
+    private static Timestamp daysAgo(int days) {
+        return Timestamp.valueOf(LocalDateTime.now().minusDays(days));
+    }
+}
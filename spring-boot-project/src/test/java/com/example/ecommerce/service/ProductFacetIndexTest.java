@@ -0,0 +1,142 @@
+package com.example.ecommerce.service;
+
+import com.example.ecommerce.entity.Product;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.spy;
+
+@SpringBootTest(properties = {
+        "app.warm-up.enabled=false",
+        "spring.jpa.show-sql=false",
+        // Rebuilds are triggered by the test
+        "app.facets.rebuild-interval-ms=3600000"
+})
+class ProductFacetIndexTest {
+
+    private static final BigDecimal[] BUCKETS = {new BigDecimal("0"), new BigDecimal("25"), new BigDecimal("100")};
+
+    @Autowired
+    private ProductFacetIndex productFacetIndex;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // Every product indexed here has this in its name, so the name filter leaves only them
+    private String tag;
+    private long nextId;
+
+    @BeforeEach
+    void setUp() {
+        tag = "facet-" + UUID.randomUUID();
+        nextId = 1_000_000_000L + (System.nanoTime() & 0xffffff) * 100;
+        index("FacetA", "10.00");
+        index("FacetA", "30.00");
+        index("FacetB", "30.00");
+        index("FacetB", "300.00");
+    }
+
+    @Test
+    void categoryCountsIgnoreTheCategoryFilter() {
+        Map<String, Object> facets = productFacetIndex.facets(tag, "FacetA", new BigDecimal("20"), new BigDecimal("400"), BUCKETS);
+
+        // The price filter applies, so FacetA's 10.00 product is left out, but FacetB is still counted
+        assertThat(categoryCounts(facets)).containsExactlyInAnyOrderEntriesOf(Map.of("FacetA", 1, "FacetB", 2));
+        assertThat(facets.get("totalItems")).isEqualTo(1L);
+    }
+
+    @Test
+    void priceBucketsIgnoreThePriceFilter() {
+        Map<String, Object> facets = productFacetIndex.facets(tag, "FacetA", new BigDecimal("20"), new BigDecimal("400"), BUCKETS);
+
+        // The category filter applies, so FacetB's products are left out, but the 10.00 product is still counted
+        assertThat(bucketCounts(facets)).containsExactly(1L, 1L, 0L);
+
+        facets = productFacetIndex.facets(tag, null, new BigDecimal("20"), new BigDecimal("40"), BUCKETS);
+        assertThat(bucketCounts(facets)).containsExactly(1L, 2L, 1L);
+        assertThat(facets.get("totalItems")).isEqualTo(2L);
+    }
+
+    @Test
+    void removedRowsAreReused() {
+        productFacetIndex.remove(index("FacetC", "5.00"));
+        int rows = (int) ReflectionTestUtils.getField(productFacetIndex, "rowCount");
+        for (int i = 0; i < 50; i++) {
+            long id = index("FacetC", "5.00");
+            productFacetIndex.remove(id);
+        }
+
+        assertThat(ReflectionTestUtils.getField(productFacetIndex, "rowCount")).isEqualTo(rows);
+        assertThat(categoryCounts(productFacetIndex.facets(tag, null, null, null, BUCKETS))).doesNotContainKey("FacetC");
+    }
+
+    @Test
+    void writesMadeWhileARebuildReadsTheCatalogAreKept() {
+        Map<String, Object> product = jdbcTemplate.queryForMap(
+                "SELECT id, name FROM products WHERE active = true ORDER BY id LIMIT 1");
+        Long removedId = (Long) product.get("id");
+        String removedName = (String) product.get("name");
+
+        // Lands after the catalog has been read and before the result is swapped in
+        JdbcTemplate slowRead = spy(jdbcTemplate);
+        doAnswer(invocation -> {
+            Object rows = invocation.callRealMethod();
+            index("FacetD", "42.00");
+            productFacetIndex.remove(removedId);
+            return rows;
+        }).when(slowRead).query(anyString(), any(RowMapper.class));
+        ReflectionTestUtils.setField(productFacetIndex, "jdbcTemplate", slowRead);
+        try {
+            productFacetIndex.rebuild();
+        } finally {
+            ReflectionTestUtils.setField(productFacetIndex, "jdbcTemplate", jdbcTemplate);
+        }
+
+        assertThat(categoryCounts(productFacetIndex.facets(tag, null, null, null, BUCKETS)))
+                .containsExactlyInAnyOrderEntriesOf(Map.of("FacetD", 1));
+        assertThat(productFacetIndex.facets(removedName, null, null, null, BUCKETS).get("totalItems")).isEqualTo(0L);
+
+        // The next rebuild has nothing to replay and reads the catalog as it is
+        productFacetIndex.rebuild();
+        assertThat(productFacetIndex.facets(removedName, null, null, null, BUCKETS).get("totalItems")).isEqualTo(1L);
+    }
+
+    private long index(String category, String price) {
+        long id = nextId++;
+        Product product = new Product(tag + " " + id, "facet test product", new BigDecimal(price), 1, category);
+        product.setId(id);
+        productFacetIndex.upsert(product);
+        return id;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Integer> categoryCounts(Map<String, Object> facets) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (Map<String, Object> facet : (List<Map<String, Object>>) facets.get("categories")) {
+            counts.put((String) facet.get("category"), (Integer) facet.get("count"));
+        }
+        return counts;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Long> bucketCounts(Map<String, Object> facets) {
+        return ((List<Map<String, Object>>) facets.get("priceBuckets")).stream()
+                .map(facet -> (Long) facet.get("count"))
+                .toList();
+    }
+}
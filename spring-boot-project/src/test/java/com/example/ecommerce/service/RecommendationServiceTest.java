@@ -0,0 +1,75 @@
+package com.example.ecommerce.service;
+
+import com.example.ecommerce.entity.Product;
+import com.example.ecommerce.repository.ProductRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {
+        "app.warm-up.enabled=false",
+        "spring.jpa.show-sql=false",
+        // Two baskets per chunk, so every pair below is counted across several chunks
+        "app.recommendations.build-chunk-size=2",
+        "app.recommendations.refresh-interval-ms=3600000"
+})
+class RecommendationServiceTest {
+
+    @Autowired
+    private RecommendationService recommendationService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void countsFromSeparateChunksAreMerged() {
+        Long a = newProduct("Basket anchor");
+        Long b = newProduct("Bought with anchor three times");
+        Long c = newProduct("Bought with anchor twice");
+        Long d = newProduct("Bought with anchor once");
+        placeOrder(a, b);
+        placeOrder(a, c);
+        placeOrder(a, b);
+        placeOrder(a, d);
+        placeOrder(a, b);
+        placeOrder(a, c);
+
+        recommendationService.rebuild();
+
+        assertThat(recommendationService.relatedProductIds(a, 10)).containsExactly(b, c, d);
+        assertThat(recommendationService.relatedProductIds(b, 10)).containsExactly(a);
+    }
+
+    private Long newProduct(String name) {
+        return productRepository.save(new Product(name, "test product", new BigDecimal("9.99"), 100, "Test")).getId();
+    }
+
+    private void placeOrder(Long... productIds) {
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement(
+                    "INSERT INTO orders (user_id, total_amount, status, shipping_address, order_date) VALUES (2, 10.00, 'PENDING', 'Test', ?)",
+                    new String[]{"id"});
+            statement.setTimestamp(1, Timestamp.valueOf(LocalDateTime.now()));
+            return statement;
+        }, keyHolder);
+        long orderId = keyHolder.getKey().longValue();
+        for (Long productId : productIds) {
+            jdbcTemplate.update("INSERT INTO order_items (order_id, product_id, quantity, price) VALUES (?, ?, 1, 1.00)",
+                    orderId, productId);
+        }
+    }
+}
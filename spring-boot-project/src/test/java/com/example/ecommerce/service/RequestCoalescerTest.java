@@ -0,0 +1,112 @@
+package com.example.ecommerce.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RequestCoalescerTest {
+
+    private static final int WAITERS = 8;
+
+    private final RequestCoalescer coalescer = new RequestCoalescer();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(coalescer, "meterRegistry", meterRegistry);
+        executor = Executors.newFixedThreadPool(WAITERS + 1);
+    }
+
+    @Test
+    void identicalConcurrentCallsShareOneExecution() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch leaderStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Future<String> leader = executor.submit(() -> coalescer.execute("products", "page=0", () -> {
+            calls.incrementAndGet();
+            leaderStarted.countDown();
+            await(release);
+            return "result";
+        }));
+        leaderStarted.await(5, TimeUnit.SECONDS);
+
+        List<Future<String>> waiters = new ArrayList<>();
+        for (int i = 0; i < WAITERS; i++) {
+            waiters.add(executor.submit(() -> coalescer.execute("products", "page=0", () -> {
+                calls.incrementAndGet();
+                return "own result";
+            })));
+        }
+        // Every waiter has joined the flight once the counter has seen all of them
+        while (meterRegistry.counter("ecommerce.query.coalesced", "endpoint", "products").count() < WAITERS) {
+            Thread.sleep(5);
+        }
+        release.countDown();
+
+        assertThat(leader.get(5, TimeUnit.SECONDS)).isEqualTo("result");
+        for (Future<String> waiter : waiters) {
+            assertThat(waiter.get(5, TimeUnit.SECONDS)).isEqualTo("result");
+        }
+        assertThat(calls.get()).isEqualTo(1);
+    }
+
+    @Test
+    void waitersSeeTheLeadersException() throws Exception {
+        CountDownLatch leaderStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Future<String> leader = executor.submit(() -> coalescer.execute("products", "page=0", () -> {
+            leaderStarted.countDown();
+            await(release);
+            throw new IllegalStateException("query timed out");
+        }));
+        leaderStarted.await(5, TimeUnit.SECONDS);
+        Future<String> waiter = executor.submit(() -> coalescer.execute("products", "page=0", () -> "own result"));
+        while (meterRegistry.counter("ecommerce.query.coalesced", "endpoint", "products").count() < 1) {
+            Thread.sleep(5);
+        }
+        release.countDown();
+
+        for (Future<String> call : List.of(leader, waiter)) {
+            assertThatThrownBy(() -> call.get(5, TimeUnit.SECONDS))
+                    .hasCauseInstanceOf(IllegalStateException.class)
+                    .hasRootCauseMessage("query timed out");
+        }
+    }
+
+    @Test
+    void nothingIsKeptOnceTheCallFinishes() {
+        AtomicInteger calls = new AtomicInteger();
+
+        coalescer.execute("products", "page=0", calls::incrementAndGet);
+        coalescer.execute("products", "page=0", calls::incrementAndGet);
+        coalescer.execute("products", "page=1", calls::incrementAndGet);
+        coalescer.execute("search", "page=0", calls::incrementAndGet);
+
+        assertThat(calls.get()).isEqualTo(4);
+        assertThat(meterRegistry.find("ecommerce.query.coalesced").counter()).isNull();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.ecommerce.service;
+
+import com.example.ecommerce.config.ShardRouter;
+import com.example.ecommerce.dto.OrderSummary;
+import com.example.ecommerce.entity.Order;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {
+        "app.warm-up.enabled=false",
+        "spring.jpa.show-sql=false"
+})
+@ActiveProfiles("sharded")
+class ShardedOrderStoreTest {
+
+    // Far enough ahead that no other order sorts before these
+    private static final LocalDateTime DAY = LocalDateTime.of(2100, 1, 1, 0, 0);
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Autowired
+    private ShardedOrderStore shardedOrderStore;
+
+    @Test
+    void usersStayOnTheShardTheyWerePlacedOn() {
+        assertThat(shardRouter.size()).isEqualTo(3);
+
+        // Changing these moves existing users' carts and orders to a shard that does not hold them
+        List<Integer> placement = new ArrayList<>();
+        for (long userId = 1; userId <= 12; userId++) {
+            placement.add(shardRouter.shardOf(userId));
+        }
+        assertThat(placement).containsExactly(1, 0, 2, 2, 0, 2, 1, 2, 1, 1, 2, 2);
+
+        int[] users = new int[3];
+        for (long userId = 1; userId <= 30000; userId++) {
+            users[shardRouter.shardOf(userId)]++;
+        }
+        for (int count : users) {
+            assertThat(count).isBetween(9500, 10500);
+        }
+    }
+
+    @Test
+    void ordersFromEveryShardAreMergedNewestFirst() {
+        long cancelled = shardedOrderStore.countByStatus(Order.OrderStatus.CANCELLED);
+        long firstAtTen = insertOrder(0, DAY.withHour(10));
+        long atSeven = insertOrder(0, DAY.withHour(7));
+        long atNine = insertOrder(1, DAY.withHour(9));
+        long secondAtTen = insertOrder(1, DAY.withHour(10));
+        long atEight = insertOrder(2, DAY.withHour(8));
+        insertOrder(2, DAY.withHour(6));
+
+        List<OrderSummary> newest = shardedOrderStore.findOrderSummariesByStatus(Order.OrderStatus.CANCELLED, 5);
+
+        // Equal order dates fall back to the higher id first, whichever shard handed it out
+        long laterAtTen = Math.max(firstAtTen, secondAtTen);
+        long earlierAtTen = Math.min(firstAtTen, secondAtTen);
+        assertThat(newest).extracting(OrderSummary::getId)
+                .containsExactly(laterAtTen, earlierAtTen, atNine, atEight, atSeven);
+        assertThat(shardedOrderStore.countByStatus(Order.OrderStatus.CANCELLED)).isEqualTo(cancelled + 6);
+    }
+
+    @Test
+    void shardsHandOutDisjointIds() {
+        Set<Long> ids = new HashSet<>();
+        for (ShardRouter.Shard shard : shardRouter.all()) {
+            for (int i = 0; i < 4; i++) {
+                long id = insertOrder(shard.getIndex(), LocalDateTime.now());
+                assertThat(Math.floorMod(id, 3L)).as("order %d on shard %d", id, shard.getIndex())
+                        .isEqualTo((shard.getIndex() + 1) % 3);
+                ids.add(id);
+            }
+        }
+        assertThat(ids).hasSize(12);
+    }
+
+    private long insertOrder(int shard, LocalDateTime orderDate) {
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        shardRouter.all().get(shard).getJdbcTemplate().update(connection -> {
+            PreparedStatement statement = connection.prepareStatement(
+                    "INSERT INTO orders (user_id, total_amount, status, shipping_address, order_date) VALUES (2, 10.00, 'CANCELLED', 'Test', ?)",
+                    new String[]{"id"});
+            statement.setTimestamp(1, Timestamp.valueOf(orderDate));
+            return statement;
+        }, keyHolder);
+        return keyHolder.getKey().longValue();
+    }
+}
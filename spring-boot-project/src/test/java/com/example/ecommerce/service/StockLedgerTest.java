@@ -0,0 +1,217 @@
+package com.example.ecommerce.service;
+
+import com.example.ecommerce.entity.StockMovement;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+@SpringBootTest(properties = {
+        "app.warm-up.enabled=false",
+        "spring.jpa.show-sql=false",
+        // Snapshots are taken by hand where a test needs one
+        "app.stock-ledger.snapshot-interval-ms=3600000"
+})
+class StockLedgerTest {
+
+    @Autowired
+    private StockLedger stockLedger;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private Long first;
+    private Long second;
+
+    @BeforeEach
+    void setUp() {
+        List<Long> ids = jdbcTemplate.queryForList("SELECT id FROM products ORDER BY id LIMIT 2", Long.class);
+        first = ids.get(0);
+        second = ids.get(1);
+    }
+
+    private void setStock(Long productId, int quantity) {
+        transactionTemplate.executeWithoutResult(status -> stockLedger.setStock(productId, quantity, "test"));
+    }
+
+    @Test
+    void concurrentDecrementsNeverTakeStockBelowZero() throws Exception {
+        setStock(first, 50);
+        int threads = 8;
+        int attemptsPerThread = 20;
+        AtomicInteger accepted = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < attemptsPerThread; i++) {
+                    List<StockMovement> rejected = stockLedger.appendIfAvailable(List.of(
+                            new StockMovement(first, -1, StockMovement.MovementType.SALE, "test")));
+                    if (rejected.isEmpty()) {
+                        accepted.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        // A decrement in flight can be counted twice for a moment, so a check may refuse stock that is
+        // there; whatever was refused can still be sold afterwards, and never more than the stock
+        assertThat(accepted.get()).isLessThanOrEqualTo(50);
+        while (stockLedger.appendIfAvailable(List.of(
+                new StockMovement(first, -1, StockMovement.MovementType.SALE, "test"))).isEmpty()) {
+            accepted.incrementAndGet();
+        }
+        assertThat(accepted.get()).isEqualTo(50);
+        assertThat(stockLedger.currentStock(List.of(first))).containsEntry(first, 0L);
+    }
+
+    @Test
+    void decrementsAcrossProductsInOppositeOrderDoNotDeadlock() {
+        setStock(first, 1000);
+        setStock(second, 1000);
+
+        assertTimeoutPreemptively(Duration.ofSeconds(30), () -> {
+            ExecutorService executor = Executors.newFixedThreadPool(4);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                Long a = t % 2 == 0 ? first : second;
+                Long b = t % 2 == 0 ? second : first;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 50; i++) {
+                        stockLedger.appendIfAvailable(List.of(
+                                new StockMovement(a, -1, StockMovement.MovementType.SALE, "test"),
+                                new StockMovement(b, -1, StockMovement.MovementType.SALE, "test")));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            executor.shutdown();
+        });
+
+        assertThat(stockLedger.currentStock(List.of(first, second)))
+                .containsEntry(first, 800L)
+                .containsEntry(second, 800L);
+    }
+
+    @Test
+    void rejectsWhatWouldGoBelowZeroAndKeepsTheRest() {
+        setStock(first, 3);
+        setStock(second, 10);
+
+        List<StockMovement> rejected = stockLedger.appendIfAvailable(List.of(
+                new StockMovement(first, -2, StockMovement.MovementType.SALE, "test"),
+                new StockMovement(first, -2, StockMovement.MovementType.SALE, "test"),
+                new StockMovement(second, -4, StockMovement.MovementType.SALE, "test")));
+
+        assertThat(rejected).hasSize(1);
+        assertThat(stockLedger.currentStock(List.of(first, second)))
+                .containsEntry(first, 1L)
+                .containsEntry(second, 6L);
+    }
+
+    @Test
+    void stockBelowUsesLedgerBalanceBeforeAndAfterSnapshot() {
+        setStock(first, 2);
+        setStock(second, 500);
+
+        assertThat(stockLedger.stockBelow(5)).containsEntry(first, 2L).doesNotContainKey(second);
+
+        // The first run only records the movement watermark; the second folds up to it
+        stockLedger.takeSnapshots();
+        stockLedger.takeSnapshots();
+        setStock(first, 7);
+
+        assertThat(stockLedger.stockBelow(5)).doesNotContainKey(first).doesNotContainKey(second);
+        assertThat(jdbcTemplate.queryForObject("SELECT stock_quantity FROM products WHERE id = ?", Integer.class, first))
+                .isEqualTo(2);
+    }
+
+    @Test
+    @DirtiesContext
+    void appendFailsOnceTheWriterIsInterrupted() throws Exception {
+        Thread writer = (Thread) ReflectionTestUtils.getField(stockLedger, "writer");
+        writer.interrupt();
+        writer.join(5000);
+        assertThat(writer.isAlive()).isFalse();
+
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () ->
+                assertThatThrownBy(() -> stockLedger.append(List.of(
+                        new StockMovement(first, 1, StockMovement.MovementType.RESTOCK, "test"))))
+                        .isInstanceOf(IllegalStateException.class));
+    }
+
+    @Test
+    void setStockRollsBackWithTheCallersTransaction() {
+        setStock(first, 40);
+        Integer movements = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM stock_movements WHERE product_id = ?", Integer.class, first);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            stockLedger.setStock(first, 10, "test");
+            status.setRollbackOnly();
+        });
+
+        assertThat(stockLedger.currentStock(List.of(first))).containsEntry(first, 40L);
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM stock_movements WHERE product_id = ?", Integer.class, first))
+                .isEqualTo(movements);
+    }
+
+    @Test
+    void setStockOutsideATransactionIsRejected() {
+        assertThatThrownBy(() -> stockLedger.setStock(first, 10, "test"))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void snapshotLeavesVersionAndUpdatedAtAlone() {
+        setStock(first, 12);
+        Long version = jdbcTemplate.queryForObject("SELECT version FROM products WHERE id = ?", Long.class, first);
+        Timestamp updatedAt = jdbcTemplate.queryForObject(
+                "SELECT updated_at FROM products WHERE id = ?", Timestamp.class, first);
+
+        stockLedger.takeSnapshots();
+        stockLedger.takeSnapshots();
+
+        assertThat(jdbcTemplate.queryForObject("SELECT stock_quantity FROM products WHERE id = ?", Integer.class, first))
+                .isEqualTo(12);
+        assertThat(jdbcTemplate.queryForObject("SELECT version FROM products WHERE id = ?", Long.class, first))
+                .isEqualTo(version);
+        assertThat(jdbcTemplate.queryForObject("SELECT updated_at FROM products WHERE id = ?", Timestamp.class, first))
+                .isEqualTo(updatedAt);
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.ecommerce.service;
+
+import com.example.ecommerce.repository.RevokedTokenRepository;
+import com.example.ecommerce.repository.UserRepository;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class TokenRevocationServiceTest {
+
+    private final TokenRevocationService service = new TokenRevocationService();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(service, "revokedTokenRepository", mock(RevokedTokenRepository.class));
+        ReflectionTestUtils.setField(service, "userRepository", mock(UserRepository.class));
+        ReflectionTestUtils.setField(service, "jwtExpirationMs", 86_400_000L);
+        // Small enough that revocations below outgrow the filter and force rebuilds while others read
+        ReflectionTestUtils.setField(service, "expectedRevocations", 64);
+    }
+
+    @Test
+    void bloomFilterHasNoFalseNegativesAndAboutOnePercentFalsePositives() {
+        int capacity = 10_000;
+        TokenRevocationService.BloomFilter filter = new TokenRevocationService.BloomFilter(capacity);
+        for (int i = 0; i < capacity; i++) {
+            filter.add("revoked-" + i);
+        }
+
+        for (int i = 0; i < capacity; i++) {
+            assertThat(filter.mightContain("revoked-" + i)).isTrue();
+        }
+        int falsePositives = 0;
+        int probes = 100_000;
+        for (int i = 0; i < probes; i++) {
+            if (filter.mightContain("live-" + i)) {
+                falsePositives++;
+            }
+        }
+        assertThat(falsePositives / (double) probes).isLessThan(0.02);
+    }
+
+    @Test
+    void revokedTokensStayRevokedWhileTheFilterIsRebuiltUnderReaders() throws Exception {
+        int writers = 4;
+        int perWriter = 250;
+        AtomicInteger missed = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        List<String> revoked = new ArrayList<>();
+        for (int i = 0; i < writers * perWriter; i++) {
+            revoked.add("jti-" + i);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(writers * 2);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int w = 0; w < writers; w++) {
+            List<String> own = revoked.subList(w * perWriter, (w + 1) * perWriter);
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (String jti : own) {
+                    Claims claims = claims(jti);
+                    service.revoke(claims);
+                    // Once revoke has returned, no later check may accept the token
+                    if (!service.isRevoked(claims)) {
+                        missed.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+            // Readers keep probing tokens that are never revoked
+            int reader = w;
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < perWriter * 4; i++) {
+                    if (service.isRevoked(claims("live-" + reader + "-" + i))) {
+                        missed.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertThat(missed.get()).isZero();
+        for (String jti : revoked) {
+            assertThat(service.isRevoked(claims(jti))).isTrue();
+        }
+    }
+
+    private static Claims claims(String jti) {
+        Claims claims = Jwts.claims();
+        claims.setId(jti);
+        claims.setSubject("user@example.com");
+        claims.setIssuedAt(new Date());
+        claims.setExpiration(new Date(System.currentTimeMillis() + 3_600_000L));
+        return claims;
+    }
+}
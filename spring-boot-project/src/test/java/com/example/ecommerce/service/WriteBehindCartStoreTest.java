@@ -0,0 +1,198 @@
+package com.example.ecommerce.service;
+
+import com.example.ecommerce.entity.CartItem;
+import com.example.ecommerce.entity.Product;
+import com.example.ecommerce.entity.User;
+import com.example.ecommerce.repository.ProductRepository;
+import com.example.ecommerce.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest(properties = {
+        "app.cart.store=memory",
+        "app.warm-up.enabled=false",
+        "spring.jpa.show-sql=false",
+        // Flushes are triggered by the tests
+        "app.cart.max-flush-delay-ms=3600000"
+})
+class WriteBehindCartStoreTest {
+
+    @Autowired
+    private WriteBehindCartStore cartStore;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private User john;
+    private User jane;
+
+    @BeforeEach
+    void setUp() {
+        john = userRepository.findByEmail("john@example.com").orElseThrow();
+        jane = userRepository.findByEmail("jane@example.com").orElseThrow();
+        cartStore.deleteByUser(john);
+        cartStore.deleteByUser(jane);
+        cartStore.flush();
+    }
+
+    @Test
+    void concurrentAddsToOneLineAreAllKeptAndFlushed() throws Exception {
+        Product product = newProduct("Concurrent add");
+        int threads = 8;
+        int addsPerThread = 25;
+        AtomicInteger conflicts = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < addsPerThread; i++) {
+                    // What the cart endpoint does under OptimisticRetry: re-read and re-apply on conflict
+                    while (true) {
+                        CartItem item = cartStore.findByUserAndProduct(john, product)
+                                .orElseGet(() -> new CartItem(john, product, 0));
+                        item.setQuantity(item.getQuantity() + 1);
+                        try {
+                            cartStore.save(item);
+                            break;
+                        } catch (ObjectOptimisticLockingFailureException e) {
+                            conflicts.incrementAndGet();
+                        }
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        int expected = threads * addsPerThread;
+        assertThat(cartStore.findByUserAndProduct(john, product)).get()
+                .extracting(CartItem::getQuantity).isEqualTo(expected);
+
+        cartStore.flush();
+        assertThat(jdbcTemplate.queryForList(
+                "SELECT quantity FROM cart_items WHERE user_id = ? AND product_id = ?", Integer.class, john.getId(), product.getId()))
+                .containsExactly(expected);
+    }
+
+    @Test
+    void staleSaveIsRejectedWithoutChangingTheLine() {
+        Product product = newProduct("Stale save");
+        CartItem first = cartStore.save(new CartItem(john, product, 1));
+        CartItem stale = cartStore.findByUserAndProduct(john, product).orElseThrow();
+
+        first.setQuantity(2);
+        cartStore.save(first);
+        stale.setQuantity(5);
+
+        // The conflict carries the line as it is now, for the 409 body
+        assertThatThrownBy(() -> cartStore.save(stale))
+                .isInstanceOfSatisfying(CartStore.ConflictException.class, e -> {
+                    assertThat(e.getCurrent().getQuantity()).isEqualTo(2);
+                    assertThat(e.getCurrent().getVersion()).isEqualTo(first.getVersion());
+                });
+        assertThatThrownBy(() -> cartStore.save(new CartItem(john, product, 1)))
+                .isInstanceOf(ObjectOptimisticLockingFailureException.class);
+        assertThat(cartStore.findByUserAndProduct(john, product)).get()
+                .extracting(CartItem::getQuantity).isEqualTo(2);
+    }
+
+    @Test
+    void newLinesTakeDistinctIdsFromTheTable() throws Exception {
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            products.add(newProduct("Line " + i));
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<Long>> futures = new ArrayList<>();
+        for (Product product : products) {
+            User user = product.getId() % 2 == 0 ? john : jane;
+            futures.add(executor.submit(() -> cartStore.save(new CartItem(user, product, 1)).getId()));
+        }
+        Set<Long> ids = new HashSet<>();
+        for (Future<Long> future : futures) {
+            ids.add(future.get(30, TimeUnit.SECONDS));
+        }
+        executor.shutdown();
+
+        assertThat(ids).hasSize(products.size());
+        // The rows are there before any flush
+        assertThat(jdbcTemplate.queryForList("SELECT id FROM cart_items WHERE user_id IN (?, ?)",
+                Long.class, john.getId(), jane.getId())).containsExactlyInAnyOrderElementsOf(ids);
+    }
+
+    @Test
+    void cartThatKeepsFailingIsParkedWithoutHoldingBackOthers() {
+        Product doomed = newProduct("Deleted later");
+        Product kept = newProduct("Kept");
+        CartItem failing = cartStore.save(new CartItem(john, doomed, 1));
+        cartStore.save(new CartItem(jane, kept, 1));
+        cartStore.flush();
+
+        // The product goes away under the held cart, so writing John's cart back violates the foreign key
+        jdbcTemplate.update("DELETE FROM cart_items WHERE user_id = ?", john.getId());
+        jdbcTemplate.update("DELETE FROM products WHERE id = ?", doomed.getId());
+        failing.setQuantity(2);
+        cartStore.save(failing);
+        CartItem other = cartStore.findByUserAndProduct(jane, kept).orElseThrow();
+        other.setQuantity(3);
+        cartStore.save(other);
+
+        double parkedBefore = meterRegistry.counter("ecommerce.cart.flush.parked").count();
+        for (int attempt = 0; attempt < 5; attempt++) {
+            cartStore.flush();
+        }
+
+        assertThat(meterRegistry.counter("ecommerce.cart.flush.parked").count()).isEqualTo(parkedBefore + 1);
+        assertThat(jdbcTemplate.queryForList("SELECT quantity FROM cart_items WHERE user_id = ?", Integer.class, jane.getId()))
+                .containsExactly(3);
+        assertThat(jdbcTemplate.queryForList("SELECT quantity FROM cart_items WHERE user_id = ?", Integer.class, john.getId()))
+                .isEmpty();
+
+        // Parked carts are not retried, and the cart is still served from memory
+        cartStore.flush();
+        assertThat(meterRegistry.counter("ecommerce.cart.flush.parked").count()).isEqualTo(parkedBefore + 1);
+        assertThat(cartStore.isInUse(john.getId())).isTrue();
+        cartStore.deleteByUser(john);
+        cartStore.flush();
+    }
+
+    private Product newProduct(String name) {
+        return productRepository.save(new Product(name, "test product", new BigDecimal("9.99"), 100, "Test"));
+    }
+}